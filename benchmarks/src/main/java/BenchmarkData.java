@@ -0,0 +1,73 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded collections of movies for the benchmarks. The same size always gives the same movies, so runs
+ * can be compared.
+ *
+ * @author Feras Yahya
+ */
+public class BenchmarkData {
+
+    /**
+     * Fields
+     */
+    public static final long SEED = 42;
+
+    private static final String[] PREFIXES = {"", "", "", "The ", "A ", "Return of the ", "Night of the ",
+            "Revenge of the ", "Legend of the "};
+    private static final String[] WORDS = {"Star", "Love", "Dark", "Lost", "City", "River", "Ghost", "King",
+            "Heart", "Storm", "Shadow", "Dream", "Fire", "Stone", "Garden", "Silence", "Hunter", "Island",
+            "Machine", "Winter", "Summer", "Road", "Empire", "Mirror", "Secret", "Journey", "Planet", "Ocean"};
+    private static final Movie.Genre[] GENRES = Movie.Genre.values();
+
+    /**
+     * Private constructor, the data is only created through the static methods
+     */
+    private BenchmarkData() {
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Creates a collection of movies. About one movie in twenty has a director of its own, and a few
+     * directors and genres are far more common than the others
+     *
+     * @param size The number of movies
+     * @return the movies
+     */
+    public static List<Movie> movies(int size) {
+        Random random = new Random(SEED);
+        int directors = Math.max(1, size / 20);
+        List<Movie> movies = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String title = PREFIXES[random.nextInt(PREFIXES.length)] + WORDS[random.nextInt(WORDS.length)] + " "
+                    + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            // Squaring a uniform number favours the low ids
+            double skew = random.nextDouble();
+            String director = "Director " + (int) (skew * skew * directors);
+            double genreSkew = random.nextDouble();
+            Movie.Genre genre = GENRES[(int) (genreSkew * genreSkew * GENRES.length)];
+            int year = 1920 + random.nextInt(104);
+            movies.add(new Movie(title, director, genre, year));
+        }
+        return movies;
+    }
+
+    /**
+     * Creates a movie list holding a collection of movies, with its indexes built
+     *
+     * @param size The number of movies
+     * @return the movie list, which is not backed by a file
+     */
+    public static MovieList movieList(int size) {
+        MovieList movieList = new MovieList();
+        movieList.addMovies(movies(size));
+        // Looking a movie up builds the indexes, which the application does when it first shows the list
+        movieList.getById(0);
+        return movieList;
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * The movie list operations measured by the benchmarks, see benchmark.Workload
+ *
+ * @author Feras Yahya
+ */
+public class MovieListWorkload implements benchmark.Workload {
+
+    /**
+     * Fields
+     */
+    private MovieList movieList;
+    private File file;
+    private Movie middle;
+    private String exactTitle;
+    private String searchTerm;
+
+    /**
+     * Public Methods
+     */
+
+    @Override
+    public void setUp(int size, String file) {
+        if (file == null) {
+            movieList = BenchmarkData.movieList(size);
+        } else {
+            this.file = new File(file);
+            movieList = new MovieList(file);
+            // Saved as a single snapshot instead of being journaled one movie at a time
+            movieList.beginBulkUpdate();
+            movieList.addMovies(BenchmarkData.movies(size));
+            movieList.endBulkUpdate();
+        }
+        middle = movieList.get_movies().get(size / 2);
+        exactTitle = middle.getTitle();
+        // The end of the second word of the title, typed in lower case as in the search bar
+        int end = exactTitle.lastIndexOf(' ');
+        searchTerm = exactTitle.substring(end - 4, end).toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void tearDown() {
+        if (file == null) {
+            return;
+        }
+        movieList.getWriter().close();
+        for (String suffix : new String[] {"", ".journal", ".tmp"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    @Override
+    public Object sortBy(String sortType, boolean ascending) {
+        movieList.sortBy(sortType, ascending);
+        return movieList.get_movies();
+    }
+
+    @Override
+    public Object filterBy(String filterType) {
+        MovieList filtered = new MovieList(movieList);
+        filtered.copyList(movieList);
+        filtered.filterBy(filterType, filterValue(Movie.FILTER.valueOf(filterType)));
+        return filtered;
+    }
+
+    @Override
+    public Object copyList() {
+        MovieList copy = new MovieList(movieList);
+        copy.copyList(movieList);
+        return copy;
+    }
+
+    @Override
+    public Object searchByTitle() {
+        return movieList.searchByTitle(exactTitle);
+    }
+
+    /**
+     * The query MainController.handleSearchAction runs as the user types
+     */
+    @Override
+    public Object searchByTitleContaining() {
+        return movieList.query().titleContains(searchTerm).list();
+    }
+
+    @Override
+    public Object printMovieCountByGenre() {
+        return movieList.printMovieCountByGenre();
+    }
+
+    @Override
+    public Object printMovieCountByYear() {
+        return movieList.printMovieCountByYear();
+    }
+
+    @Override
+    public Object printMovieCountByDirector() {
+        return movieList.printMovieCountByDirector();
+    }
+
+    @Override
+    public Object readFromFile() {
+        movieList.readFromFile();
+        return movieList;
+    }
+
+    @Override
+    public Object readFromFileAndIndex() {
+        movieList.readFromFile();
+        return movieList.getById(0);
+    }
+
+    @Override
+    public Object saveToFile() {
+        movieList.saveToFile();
+        return movieList;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private String filterValue(Movie.FILTER filter) {
+        switch (filter) {
+            case YEAR:
+                return Integer.toString(middle.getYear());
+            case GENRE:
+                return middle.getGenre().toString();
+            case DIRECTOR:
+            default:
+                return middle.getDirector();
+        }
+    }
+}
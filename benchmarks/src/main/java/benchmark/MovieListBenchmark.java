@@ -0,0 +1,123 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the in-memory operations of the movie list, at 1K, 100K and 1M movies: sorting,
+ * filtering, searching by title, the substring search of the search bar and the counts of the reports.
+ *
+ * The list is not backed by a file, so no benchmark measures disk writes; see MovieListFileBenchmark for
+ * those.
+ *
+ * @author Feras Yahya
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class MovieListBenchmark {
+
+    /**
+     * The collection, shared by every benchmark of a size
+     */
+    @State(Scope.Benchmark)
+    public static class Collection {
+
+        @Param({"1000", "100000", "1000000"})
+        public int size;
+
+        public Workload workload;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            workload = Workload.create(size, null);
+        }
+    }
+
+    /**
+     * The sort orders of the sort combo box
+     */
+    @State(Scope.Benchmark)
+    public static class SortOrder {
+
+        @Param({"Title", "Director", "Genre", "Year"})
+        public String sortType;
+
+        @Param({"true", "false"})
+        public boolean ascending;
+    }
+
+    /**
+     * The filters of the filter combo box
+     */
+    @State(Scope.Benchmark)
+    public static class Filter {
+
+        @Param({"YEAR", "GENRE", "DIRECTOR"})
+        public String filterType;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    @Benchmark
+    public Object sortBy(Collection collection, SortOrder order) {
+        return collection.workload.sortBy(order.sortType, order.ascending);
+    }
+
+    /**
+     * Filters a copy of the list. See copyList for the cost of the copy alone
+     */
+    @Benchmark
+    public Object filterBy(Collection collection, Filter filter) {
+        return collection.workload.filterBy(filter.filterType);
+    }
+
+    @Benchmark
+    public Object copyList(Collection collection) {
+        return collection.workload.copyList();
+    }
+
+    @Benchmark
+    public Object searchByTitle(Collection collection) {
+        return collection.workload.searchByTitle();
+    }
+
+    /**
+     * The query the search bar runs as the user types, see MainController.handleSearchAction
+     */
+    @Benchmark
+    public Object searchByTitleContaining(Collection collection) {
+        return collection.workload.searchByTitleContaining();
+    }
+
+    @Benchmark
+    public Object printMovieCountByGenre(Collection collection) {
+        return collection.workload.printMovieCountByGenre();
+    }
+
+    @Benchmark
+    public Object printMovieCountByYear(Collection collection) {
+        return collection.workload.printMovieCountByYear();
+    }
+
+    @Benchmark
+    public Object printMovieCountByDirector(Collection collection) {
+        return collection.workload.printMovieCountByDirector();
+    }
+}
@@ -0,0 +1,82 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of loading and saving the data file, at 1K, 100K and 1M movies. The file is written to a
+ * temporary folder, so the results depend on the disk it is on.
+ *
+ * Loading maps the data file and only decodes a movie when it is first accessed, so readFromFile on its
+ * own hardly depends on the size of the collection. readFromFileAndIndex also builds the indexes, which
+ * decodes every movie, as happens when the application shows the list after loading it.
+ *
+ * @author Feras Yahya
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class MovieListFileBenchmark {
+
+    /**
+     * Fields
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private File folder;
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("movie-benchmark").toFile();
+        workload = Workload.create(size, new File(folder, "movies.dat").getPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.tearDown();
+        folder.delete();
+    }
+
+    /**
+     * Public Methods
+     */
+
+    @Benchmark
+    public Object readFromFile() {
+        return workload.readFromFile();
+    }
+
+    @Benchmark
+    public Object readFromFileAndIndex() {
+        return workload.readFromFileAndIndex();
+    }
+
+    /**
+     * Writes the whole list as a new snapshot and syncs it to disk
+     */
+    @Benchmark
+    public Object saveToFile() {
+        return workload.saveToFile();
+    }
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+/**
+ * The operations of the movie list that the benchmarks measure.
+ *
+ * The application's classes are in the default package, which classes in a package cannot refer to,
+ * while JMH only accepts benchmarks in a package. The benchmarks therefore go through this interface,
+ * which MovieListWorkload in the default package implements. There is a single implementation, so the
+ * JIT inlines the calls and they cost nothing next to the operations they make.
+ *
+ * @author Feras Yahya
+ */
+public interface Workload {
+
+    /**
+     * Creates the workload
+     *
+     * @param size The number of movies, see BenchmarkData
+     * @param file The data file to back the list with, or null for a list that is only in memory
+     * @return the workload, with its movie list filled and indexed
+     */
+    static Workload create(int size, String file) {
+        try {
+            Workload workload = (Workload) Class.forName("MovieListWorkload").getConstructor().newInstance();
+            workload.setUp(size, file);
+            return workload;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("MovieListWorkload is missing from the class path", e);
+        }
+    }
+
+    void setUp(int size, String file);
+
+    /**
+     * Stops the list's background writer and deletes the data file, if the list has one
+     */
+    void tearDown();
+
+    Object sortBy(String sortType, boolean ascending);
+
+    /**
+     * Filters a copy of the list, as filtering changes the list it is called on, by the value of the
+     * movie in the middle of the list
+     */
+    Object filterBy(String filterType);
+
+    /**
+     * The copy made by filterBy, to subtract from it
+     */
+    Object copyList();
+
+    /**
+     * Searches for the title of the movie in the middle of the list
+     */
+    Object searchByTitle();
+
+    /**
+     * Runs the query of the search bar for a word shared by many titles
+     */
+    Object searchByTitleContaining();
+
+    Object printMovieCountByGenre();
+
+    Object printMovieCountByYear();
+
+    Object printMovieCountByDirector();
+
+    Object readFromFile();
+
+    /**
+     * Reads the file and builds the indexes, which decodes every movie
+     */
+    Object readFromFileAndIndex();
+
+    Object saveToFile();
+}
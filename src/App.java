@@ -5,12 +5,37 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 public class App extends Application {
+
+    private MovieServer server;
+
     @Override
     public void start(Stage primaryStage) throws Exception {
         Parent root = FXMLLoader.load(getClass().getResource("Main.fxml"));
         primaryStage.setTitle("Movie Collection Manager");
         primaryStage.setScene(new Scene(root));
         primaryStage.show();
+
+        // Optionally lets other tools on this machine query the collection, see MovieServer
+        String port = System.getProperty("movies.server.port");
+        if (port != null) {
+            server = new MovieServer(MainController.masterMovieList, Integer.parseInt(port));
+            server.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.stop();
+        }
+        // Changes are saved in the background, so write the ones still waiting before exiting
+        MainController.masterMovieList.flush();
+        PersistenceWriter writer = MainController.masterMovieList.getWriter();
+        if (writer != null) {
+            System.out.printf("Saved %d changes in %d writes (average save latency %.2f ms, max %.2f ms)%n",
+                    writer.getChangesWritten(), writer.getWriteCount(), writer.getAverageSaveLatencyMillis(),
+                    writer.getMaxSaveLatencyMillis());
+        }
     }
 
     public static void main(String[] args) {
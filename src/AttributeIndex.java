@@ -0,0 +1,258 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Secondary indexes over the attributes the movie list can be filtered by:
+ *
+ *   genre     a bit set of movie ids per genre
+ *   year      a primitive array of (year, id) pairs kept sorted, so a year or a range of years is found
+ *             with a binary search
+ *   director  a hash map from the director's name to the ids of their movies
+ *
+ * Filtering then becomes an index lookup instead of comparing every movie. The attributes each movie was
+ * indexed with are remembered, so a movie can be removed from the indexes after it was edited.
+ *
+ * @author Feras Yahya
+ */
+public class AttributeIndex {
+
+    /**
+     * Fields
+     */
+    private Map<Movie.Genre, BitSet> _genres = new EnumMap<>(Movie.Genre.class);
+    private Map<String, IdSet> _directors = new HashMap<>();
+
+    // Sorted (year << 32 | id) pairs
+    private long[] _years = new long[16];
+    private int _yearCount;
+
+    // The attributes each movie was indexed with, by id
+    private Movie.Genre[] _indexedGenres = new Movie.Genre[0];
+    private String[] _indexedDirectors = new String[0];
+    private int[] _indexedYears = new int[0];
+    private BitSet _indexed = new BitSet();
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Adds a movie to the indexes
+     *
+     * @param movie The movie, which must have an id
+     */
+    public void add(Movie movie) {
+        addAttributes(movie);
+
+        long entry = yearEntry(movie.getYear(), movie.getId());
+        int position = _yearCount > 0 && _years[_yearCount - 1] < entry ? _yearCount
+                : -Arrays.binarySearch(_years, 0, _yearCount, entry) - 1;
+        if (_yearCount == _years.length) {
+            _years = Arrays.copyOf(_years, _yearCount * 2);
+        }
+        System.arraycopy(_years, position, _years, position + 1, _yearCount - position);
+        _years[position] = entry;
+        _yearCount++;
+    }
+
+    /**
+     * Adds several movies to the indexes. The new (year, id) pairs are sorted among themselves and then
+     * merged into the year index in one pass, instead of shifting the index once per movie
+     *
+     * @param movies The movies, which must have ids
+     */
+    public void addAll(List<Movie> movies) {
+        long[] entries = new long[movies.size()];
+        for (int i = 0; i < entries.length; i++) {
+            Movie movie = movies.get(i);
+            addAttributes(movie);
+            entries[i] = yearEntry(movie.getYear(), movie.getId());
+        }
+        Arrays.sort(entries);
+
+        long[] merged = new long[Math.max(16, _yearCount + entries.length)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < _yearCount && j < entries.length) {
+            merged[k++] = _years[i] <= entries[j] ? _years[i++] : entries[j++];
+        }
+        while (i < _yearCount) {
+            merged[k++] = _years[i++];
+        }
+        while (j < entries.length) {
+            merged[k++] = entries[j++];
+        }
+        _years = merged;
+        _yearCount = k;
+    }
+
+    /**
+     * Removes a movie from the indexes, using the attributes it was indexed with
+     *
+     * @param id The movie's id
+     */
+    public void remove(int id) {
+        if (!_indexed.get(id)) {
+            return;
+        }
+        _indexed.clear(id);
+
+        if (_indexedGenres[id] != null) {
+            _genres.get(_indexedGenres[id]).clear(id);
+        }
+        IdSet directorIds = _directors.get(_indexedDirectors[id]);
+        directorIds.remove(id);
+        if (directorIds.size() == 0) {
+            _directors.remove(_indexedDirectors[id]);
+        }
+        int position = Arrays.binarySearch(_years, 0, _yearCount, yearEntry(_indexedYears[id], id));
+        if (position >= 0) {
+            System.arraycopy(_years, position + 1, _years, position, _yearCount - position - 1);
+            _yearCount--;
+        }
+
+        _indexedGenres[id] = null;
+        _indexedDirectors[id] = null;
+    }
+
+    /**
+     *
+     * @param genre The genre
+     * @return the ids of the movies of the genre
+     */
+    public BitSet byGenre(Movie.Genre genre) {
+        BitSet ids = _genres.get(genre);
+        return ids == null ? new BitSet() : (BitSet) ids.clone();
+    }
+
+    /**
+     *
+     * @param director The director's name
+     * @return the ids of the director's movies
+     */
+    public BitSet byDirector(String director) {
+        IdSet ids = _directors.get(director);
+        return ids == null ? new BitSet() : ids.toBitSet();
+    }
+
+    /**
+     *
+     * @param from The first year of the range
+     * @param to   The last year of the range, inclusive
+     * @return the ids of the movies released in the range of years
+     */
+    public BitSet byYears(int from, int to) {
+        BitSet ids = new BitSet();
+        if (from > to) {
+            return ids;
+        }
+        int start = Arrays.binarySearch(_years, 0, _yearCount, yearEntry(from, 0));
+        if (start < 0) {
+            start = -start - 1;
+        }
+        long end = yearEntry(to, Integer.MAX_VALUE);
+        for (int i = start; i < _yearCount && _years[i] <= end; i++) {
+            ids.set((int) _years[i]);
+        }
+        return ids;
+    }
+
+    /**
+     *
+     * @param id The movie's id
+     * @return the genre the movie was indexed with
+     */
+    public Movie.Genre indexedGenre(int id) {
+        return _indexedGenres[id];
+    }
+
+    /**
+     *
+     * @param id The movie's id
+     * @return the year the movie was indexed with
+     */
+    public int indexedYear(int id) {
+        return _indexedYears[id];
+    }
+
+    /**
+     *
+     * @param id The movie's id
+     * @return the director the movie was indexed with
+     */
+    public String indexedDirector(int id) {
+        return _indexedDirectors[id];
+    }
+
+    /**
+     * Looks up the movies matching a filter. The filter value is parsed once, not once per movie.
+     *
+     * @param filter The attribute to filter by
+     * @param value  The value to look for, as shown in the filter options. For example 2023 for a year
+     * @return the ids of the matching movies. Empty if the value cannot be parsed
+     */
+    public BitSet matching(Movie.FILTER filter, String value) {
+        switch (filter) {
+            case GENRE:
+                try {
+                    return byGenre(Movie.Genre.valueOf(value));
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    return new BitSet();
+                }
+            case YEAR:
+                try {
+                    int year = Integer.parseInt(value);
+                    return byYears(year, year);
+                } catch (NumberFormatException e) {
+                    return new BitSet();
+                }
+            case DIRECTOR:
+                return byDirector(value);
+            default:
+                return new BitSet();
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Indexes a movie's genre and director and remembers its attributes. The year index is left to the
+     * caller
+     */
+    private void addAttributes(Movie movie) {
+        int id = movie.getId();
+        if (_indexed.get(id)) {
+            remove(id);
+        }
+        if (id >= _indexedGenres.length) {
+            int newLength = Math.max(id + 1, _indexedGenres.length + (_indexedGenres.length >> 1) + 16);
+            _indexedGenres = Arrays.copyOf(_indexedGenres, newLength);
+            _indexedDirectors = Arrays.copyOf(_indexedDirectors, newLength);
+            _indexedYears = Arrays.copyOf(_indexedYears, newLength);
+        }
+        _indexedGenres[id] = movie.getGenre();
+        _indexedDirectors[id] = movie.getDirector();
+        _indexedYears[id] = movie.getYear();
+        _indexed.set(id);
+
+        if (movie.getGenre() != null) {
+            _genres.computeIfAbsent(movie.getGenre(), genre -> new BitSet()).set(id);
+        }
+        _directors.computeIfAbsent(movie.getDirector(), director -> new IdSet()).add(id);
+    }
+
+
+    /**
+     * Packs a year and an id into a single long that sorts by year first, then by id
+     */
+    private static long yearEntry(int year, int id) {
+        return ((long) year << 32) | (id & 0xFFFFFFFFL);
+    }
+}
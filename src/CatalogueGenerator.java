@@ -0,0 +1,429 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Year;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic movie collections of any size for performance and scale testing, and writes them
+ * straight to the data file (.dat) and to the CSV, TSV and JSON Lines formats that MovieImporter reads:
+ *
+ * <pre>
+ * java CatalogueGenerator [--seed N] [--directors N] [--zipf S] [--years FROM-TO] COUNT FILE...
+ * </pre>
+ *
+ * The collection only depends on the seed and the settings, so the same command always generates the
+ * same movies, whatever the files it writes. The movies are generated and written one at a time to
+ * every file at once, so only the directors are held in memory and collections of tens of millions of
+ * movies can be generated. A data file is limited to 2 GB, which is about 50 million movies.
+ *
+ * The values follow the shape of a real collection:
+ *
+ *   directors  Picked with a Zipfian distribution: the director of rank k directs about 1 / k^s as many
+ *              movies as the most popular one. By default there is one director for every 20 movies
+ *   genres     Drama and comedy are far more common than animation or science fiction
+ *   years      Spread over the range, with more movies in recent years than in early ones
+ *   titles     One to five words, a few of them much more common than the others, often after a shared
+ *              prefix such as "The" or "Return of the", and sometimes followed by a sequel number
+ *
+ * Titles are not unique, and the most popular directors make thousands of movies, so some movies share
+ * their title, director and year. MovieImporter counts those as duplicates: about 2% of a million movies
+ * with the default settings.
+ *
+ * @author Feras Yahya
+ */
+public class CatalogueGenerator {
+
+    /**
+     * Fields
+     */
+    private final long seed;
+    private final int minYear;
+    private final int maxYear;
+    private final List<String> directors;
+    // The cumulative weight of the directors, in order of popularity
+    private final double[] directorWeights;
+
+    public static final long DEFAULT_SEED = 42;
+    public static final int DEFAULT_MIN_YEAR = 1920;
+    public static final double DEFAULT_ZIPF_EXPONENT = 1.0;
+    public static final int MOVIES_PER_DIRECTOR = 20;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String[] FIRST_NAMES = {"James", "Mary", "Akira", "Sofia", "Pedro", "Agnes", "Jean",
+            "Ingrid", "Satyajit", "Kathryn", "Wong", "Greta", "Luis", "Chantal", "Fritz", "Ava", "Bong",
+            "Claire", "Yasujiro", "Lina", "Orson", "Jane", "Abbas", "Lucrecia", "Michael", "Nora", "Kenji",
+            "Alice", "Sergio", "Mira", "Billy", "Celine", "Andrei", "Julia", "Ousmane", "Sarah", "Hayao",
+            "Ida", "Roberto", "Elaine"};
+    private static final String[] LAST_NAMES = {"Smith", "Kurosawa", "Coppola", "Almodovar", "Varda", "Bergman",
+            "Ray", "Bigelow", "Kar-wai", "Gerwig", "Bunuel", "Akerman", "Lang", "DuVernay", "Joon-ho", "Denis",
+            "Ozu", "Wertmuller", "Welles", "Campion", "Kiarostami", "Martel", "Mann", "Ephron", "Mizoguchi",
+            "Guy", "Leone", "Nair", "Wilder", "Sciamma", "Tarkovsky", "Ducournau", "Sembene", "Polley",
+            "Miyazaki", "Lupino", "Rossellini", "May", "Novak", "Okafor", "Lindqvist", "Moreau", "Castillo",
+            "Haddad", "Petrov", "Tanaka", "Kowalski", "Fischer", "Mendes", "Osei"};
+    private static final String[] PREFIXES = {"The", "A", "Return of the", "Night of the", "Legend of the",
+            "Rise of the", "Curse of the", "Beyond the", "Last", "Star"};
+    private static final String[] WORDS = {"Love", "Night", "Man", "Story", "Life", "House", "Girl", "Dead",
+            "Day", "World", "Time", "Last", "King", "Blood", "City", "Heart", "Dark", "Black", "Home", "Lost",
+            "Summer", "Secret", "Queen", "War", "Road", "River", "Star", "Ghost", "Dream", "Fire",
+            "Stone", "Garden", "Silence", "Hunter", "Island", "Machine", "Winter", "Empire", "Mirror",
+            "Journey", "Planet", "Ocean", "Shadow", "Storm", "Angel", "Devil", "Moon", "Sun", "Wolf",
+            "Dragon", "Street", "Sky", "Train", "Child", "Father", "Mother", "Brother", "Sister", "Wedding",
+            "Revenge", "Escape", "Paradise", "Memory", "Promise", "Return", "Kingdom", "Forest", "Desert",
+            "Harbor", "Mountain", "Valley", "Bridge", "Tower", "Castle", "Detective", "Stranger", "Soldier",
+            "Doctor", "Thief", "Killer", "Lover", "Dancer", "Painter", "Pilot", "Spy", "Hero", "Legacy",
+            "Echo", "Horizon", "Voyage", "Frontier", "Signal", "Code", "Circle", "Game", "Prophecy", "Harvest",
+            "Orchid", "Lantern", "Crown", "Mask", "Letter", "Song", "Rain", "Snow", "Glass", "Iron", "Gold",
+            "Silver", "Crimson", "Midnight", "Morning", "Evening", "Tomorrow", "Yesterday", "Forever"};
+    private static final String[] SEQUELS = {" 2", " 3", " 4", " II", " III", ": Part Two", ": The Return",
+            ": Reloaded"};
+
+    private static final Movie.Genre[] GENRES = Movie.Genre.values();
+    // The cumulative share of each genre, see genreWeights()
+    private static final double[] GENRE_WEIGHTS = cumulative(genreWeights());
+
+    /**
+     * Parameterized constructor
+     *
+     * @param seed          The seed the collection is generated from
+     * @param directorCount The number of distinct directors
+     * @param zipfExponent  The exponent s of the Zipfian popularity of the directors. 0 makes every
+     *                      director equally popular; the higher it is, the more movies the most popular
+     *                      directors get
+     * @param minYear       The earliest year of release
+     * @param maxYear       The latest year of release
+     */
+    public CatalogueGenerator(long seed, int directorCount, double zipfExponent, int minYear, int maxYear) {
+        if (directorCount < 1) {
+            throw new IllegalArgumentException("There must be at least one director");
+        }
+        if (minYear > maxYear) {
+            throw new IllegalArgumentException("The year range " + minYear + "-" + maxYear + " is empty");
+        }
+        this.seed = seed;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        this.directors = new DirectorNames(directorCount);
+        double[] weights = new double[directorCount];
+        for (int rank = 0; rank < directorCount; rank++) {
+            weights[rank] = 1 / Math.pow(rank + 1, zipfExponent);
+        }
+        this.directorWeights = cumulative(weights);
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Runs the generator from the command line
+     *
+     * @param args [--seed N] [--directors N] [--zipf S] [--years FROM-TO] COUNT FILE...
+     */
+    public static void main(String[] args) {
+        long seed = DEFAULT_SEED;
+        int directorCount = -1;
+        double zipfExponent = DEFAULT_ZIPF_EXPONENT;
+        int minYear = DEFAULT_MIN_YEAR;
+        int maxYear = Year.now().getValue();
+        int count = -1;
+        List<File> outputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].startsWith("--") && i + 1 == args.length) {
+                    throw new IllegalArgumentException(args[i] + " needs a value");
+                }
+                switch (args[i]) {
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--directors":
+                        directorCount = Integer.parseInt(args[++i]);
+                        break;
+                    case "--zipf":
+                        zipfExponent = Double.parseDouble(args[++i]);
+                        break;
+                    case "--years":
+                        String[] years = args[++i].split("-");
+                        if (years.length != 2) {
+                            throw new IllegalArgumentException("--years takes FROM-TO, found " + args[i]);
+                        }
+                        minYear = Integer.parseInt(years[0].trim());
+                        maxYear = Integer.parseInt(years[1].trim());
+                        break;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option " + args[i]);
+                        } else if (count < 0) {
+                            count = Integer.parseInt(args[i]);
+                        } else {
+                            outputs.add(new File(args[i]));
+                        }
+                        break;
+                }
+            }
+            if (count < 0 || outputs.isEmpty()) {
+                throw new IllegalArgumentException("Give the number of movies and at least one file");
+            }
+            if (directorCount < 0) {
+                directorCount = Math.max(1, count / MOVIES_PER_DIRECTOR);
+            }
+            new CatalogueGenerator(seed, directorCount, zipfExponent, minYear, maxYear).generate(count, outputs);
+        } catch (IllegalArgumentException e) {
+            // Also catches the NumberFormatExceptions of the options
+            System.err.println("Error: " + e.getMessage());
+            System.err.println("Usage: java CatalogueGenerator [--seed N] [--directors N] [--zipf S] "
+                    + "[--years FROM-TO] COUNT FILE...");
+            System.err.println("The format of each file follows its extension: .dat, .csv, .tsv or .jsonl");
+            System.exit(2);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Generates a collection and writes it to every output file in a single pass
+     *
+     * @param count   The number of movies
+     * @param outputs The files to write, in the format of their extension: .dat for a data file, and
+     *                otherwise a format MovieExporter writes except REPORT
+     */
+    public void generate(int count, List<File> outputs) throws IOException {
+        long start = System.nanoTime();
+        List<Sink> sinks = new ArrayList<>(outputs.size());
+        try {
+            for (File output : outputs) {
+                sinks.add(open(output, count));
+            }
+
+            SplittableRandom random = new SplittableRandom(seed);
+            StringBuilder title = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                int director = pick(directorWeights, random);
+                Movie.Genre genre = GENRES[pick(GENRE_WEIGHTS, random)];
+                // The number of movies grows linearly over the years
+                int year = minYear + (int) ((maxYear - minYear + 1) * Math.sqrt(random.nextDouble()));
+                String name = title(random, title);
+                for (Sink sink : sinks) {
+                    sink.add(name, director, genre, year);
+                }
+            }
+        } finally {
+            IOException failure = null;
+            for (Sink sink : sinks) {
+                try {
+                    sink.close();
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        System.out.printf(Locale.ROOT, "Generated %d movies by %d directors (seed %d) to %s in %.0f ms%n", count,
+                directors.size(), seed, outputs, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Where the generated movies are written, one at a time
+     */
+    private interface Sink extends Closeable {
+
+        /**
+         * @param director The director's rank, which is its index in the directors list
+         */
+        void add(String title, int director, Movie.Genre genre, int year) throws IOException;
+    }
+
+    private Sink open(File output, int count) throws IOException {
+        if (output.getName().toLowerCase(Locale.ROOT).endsWith(".dat")) {
+            // A journal left next to an older file with the same name would be replayed onto this one
+            Files.deleteIfExists(new File(output.getPath() + ".journal").toPath());
+            MovieStorage.SnapshotWriter writer = new MovieStorage.SnapshotWriter(output, count, directors, 0);
+            return new Sink() {
+                @Override
+                public void add(String title, int director, Movie.Genre genre, int year) throws IOException {
+                    writer.add(title, director, genre, year);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    writer.close();
+                }
+            };
+        }
+
+        MovieExporter.Format format = MovieExporter.formatOf(output);
+        if (format == MovieExporter.Format.REPORT) {
+            throw new IllegalArgumentException("Unknown format for " + output + ", use .dat, .csv, .tsv or .jsonl");
+        }
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(output.toPath()), StandardCharsets.UTF_8), BUFFER_SIZE);
+        MovieExporter.writeHeader(writer, format);
+        // The directors' names are added to the DirectorDictionary the first time they are written
+        int[] directorIds = new int[directors.size()];
+        return new Sink() {
+            @Override
+            public void add(String title, int director, Movie.Genre genre, int year) throws IOException {
+                if (directorIds[director] == 0) {
+                    // Stored as id + 1, so 0 means the name has not been looked up yet
+                    directorIds[director] = DirectorDictionary.idOf(directors.get(director)) + 1;
+                }
+                MovieExporter.writeMovie(new Movie(title, directorIds[director] - 1, genre, year), writer, format);
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+        };
+    }
+
+    /**
+     * Generates a title: an optional shared prefix, one to five words and an optional sequel number
+     */
+    private static String title(SplittableRandom random, StringBuilder title) {
+        title.setLength(0);
+        if (random.nextInt(100) < 35) {
+            title.append(PREFIXES[random.nextInt(PREFIXES.length)]).append(' ');
+        }
+        int roll = random.nextInt(100);
+        int words = roll < 30 ? 1 : roll < 65 ? 2 : roll < 85 ? 3 : roll < 95 ? 4 : 5;
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(i == words - 1 && words > 2 && random.nextInt(4) == 0 ? " of the " : " ");
+            }
+            // Squaring a uniform number makes the first words of the list far more common
+            double skew = random.nextDouble();
+            title.append(WORDS[(int) (skew * skew * WORDS.length)]);
+        }
+        if (random.nextInt(100) < 6) {
+            title.append(SEQUELS[random.nextInt(SEQUELS.length)]);
+        }
+        return title.toString();
+    }
+
+    /**
+     * Picks an index at random, in proportion to its weight
+     *
+     * @param cumulative The cumulative weights, see cumulative()
+     */
+    private static int pick(double[] cumulative, SplittableRandom random) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] > target) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cumulative = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+
+    /**
+     * @return the relative share of each genre. Genres missing from the table get a share of 1
+     */
+    private static double[] genreWeights() {
+        double[] weights = new double[GENRES.length];
+        for (int i = 0; i < GENRES.length; i++) {
+            switch (GENRES[i]) {
+                case DRAMA:
+                    weights[i] = 30;
+                    break;
+                case COMEDY:
+                    weights[i] = 22;
+                    break;
+                case ACTION:
+                    weights[i] = 12;
+                    break;
+                case THRILLER:
+                    weights[i] = 10;
+                    break;
+                case ROMANCE:
+                case HORROR:
+                    weights[i] = 7;
+                    break;
+                case CRIME:
+                    weights[i] = 5;
+                    break;
+                case ADVENTURE:
+                    weights[i] = 4;
+                    break;
+                case SCIENCE_FICTION:
+                case ANIMATION:
+                    weights[i] = 2;
+                    break;
+                default:
+                    weights[i] = 1;
+                    break;
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * The directors' names, made up from the rank when they are read so they take no memory. Every rank
+     * gets a different name: once the first and last names run out, middle initials are added
+     */
+    private static class DirectorNames extends AbstractList<String> {
+
+        private final int size;
+
+        DirectorNames(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public String get(int rank) {
+            if (rank < 0 || rank >= size) {
+                throw new IndexOutOfBoundsException("Index " + rank + " out of " + size);
+            }
+            int pairs = FIRST_NAMES.length * LAST_NAMES.length;
+            StringBuilder name = new StringBuilder(FIRST_NAMES[rank % FIRST_NAMES.length]).append(' ');
+            int initials = rank / pairs;
+            if (initials > 0) {
+                // Bijective base 26, so A, B, ... Z, AA, AB, ...
+                StringBuilder letters = new StringBuilder();
+                for (int n = initials; n > 0; n = (n - 1) / 26) {
+                    letters.append((char) ('A' + (n - 1) % 26));
+                }
+                name.append(letters.reverse()).append(". ");
+            }
+            return name.append(LAST_NAMES[rank / FIRST_NAMES.length % LAST_NAMES.length]).toString();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of director names shared by every movie. A movie stores the int id of its director and
+ * resolves the name here, so each name is held in memory once however many movies share it, and however
+ * many times it was read from a file, imported or typed in.
+ *
+ * Ids are handed out in the order names are first seen and are never reused, so a name stays in the
+ * dictionary after the last movie of that director is removed. The dictionary only lives as long as the
+ * application: data files keep their own director table and are mapped to these ids when they are read.
+ *
+ * Looking a name up by id never locks. Adding a new name is synchronized.
+ *
+ * @author Feras Yahya
+ */
+public class DirectorDictionary {
+
+    /**
+     * Fields
+     */
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[1024];
+    private static int size;
+
+    // The id of a missing director
+    public static final int NONE = -1;
+
+    /**
+     * Private constructor, the dictionary is only used through its static methods
+     */
+    private DirectorDictionary() {
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the id of a director, adding the name to the dictionary the first time it is seen
+     *
+     * @param name The director's name
+     * @return the director's id, or NONE if the name is null
+     */
+    public static int idOf(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    /**
+     *
+     * @param id A director id handed out by idOf
+     * @return the director's name, or null for NONE
+     */
+    public static String nameOf(int id) {
+        return id == NONE ? null : names[id];
+    }
+
+    /**
+     *
+     * @return the number of names in the dictionary, which is one more than the largest id
+     */
+    public static synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static synchronized int add(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = name;
+        // Publish the name before its id, so a reader that was given the id can always resolve it
+        names = current;
+        ids.put(name, size);
+        return size++;
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted set of movie ids backed by a primitive int array. Used for index entries that only hold a few
+ * movies, such as the movies of one director or the movies that contain one trigram, where a BitSet
+ * sized to the whole collection would waste memory.
+ *
+ * @author Feras Yahya
+ */
+public class IdSet {
+
+    /**
+     * Fields
+     */
+    private int[] ids = new int[4];
+    private int size;
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Adds an id to the set
+     *
+     * @param id The id to add
+     */
+    public void add(int id) {
+        // Ids are mostly added in ascending order, so this is usually an append
+        int position = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0 && position < size) {
+            return;
+        }
+        if (position < 0) {
+            position = -position - 1;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = id;
+        size++;
+    }
+
+    /**
+     * Removes an id from the set
+     *
+     * @param id The id to remove
+     */
+    public void remove(int id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+    }
+
+    /**
+     *
+     * @param id The id to look for
+     * @return true if the id is in the set
+     */
+    public boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    /**
+     *
+     * @return the number of ids in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *
+     * @return the ids in ascending order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     *
+     * @return the ids as a bit set
+     */
+    public BitSet toBitSet() {
+        BitSet bits = new BitSet(size == 0 ? 0 : ids[size - 1] + 1);
+        for (int i = 0; i < size; i++) {
+            bits.set(ids[i]);
+        }
+        return bits;
+    }
+
+    /**
+     * Keeps only the candidates that are also in this set
+     *
+     * @param candidates Ids in ascending order. The ids that are kept are moved to the front
+     * @param count      The number of candidates in the array
+     * @return the number of candidates that were kept
+     */
+    public int retain(int[] candidates, int count) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < count; i++) {
+            int position = Arrays.binarySearch(ids, from, size, candidates[i]);
+            if (position >= 0) {
+                candidates[kept++] = candidates[i];
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+        }
+        return kept;
+    }
+}
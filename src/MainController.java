@@ -1,447 +1,582 @@
-import java.io.IOException;
-import java.util.HashSet;
-import java.util.Optional;
-import java.util.Set;
-import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
-import javafx.scene.control.*;
-import javafx.scene.control.Alert.AlertType;
-import javafx.scene.layout.GridPane;
-import javafx.stage.Modality;
-import javafx.stage.Stage;
-import java.lang.String;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-
-/**
- * Main controller class that controls the main UI that the user sees upon launching the
- * application.
- *
- * @author Feras Yahya
- */
-public class MainController {
-
-    static MovieList masterMovieList = new MovieList("movies.dat");
-    private MovieList adjustableMovieList;
-
-    //GUI Controls
-    @FXML private Button addButton;
-    @FXML private Button editButton;
-    @FXML private Button deleteButton;
-    @FXML private Button reportsButton;
-    @FXML private Button resetButton;
-    @FXML private ListView<String> movieListView;
-    @FXML private TextField searchField;
-    @FXML private TextField activeFilterField;
-    @FXML private TextArea generalField;
-    @FXML private ComboBox<String> filterComboBox;
-    @FXML private ComboBox<String> sortComboBox;
-    @FXML private ComboBox<String> generalStatsComboBox;
-    @FXML private TextArea detailsTextArea;
-    @FXML private ToggleButton sortOrder;
-
-    //A field that will determine what order the movie list will be sorted in based on the current sort state of the movie list 
-    private boolean sorted = false;
-
-    @FXML private void initialize() {
-
-        System.out.println("Initialize ran");
-
-        filterComboBox.getItems().addAll("Year", "Genre", "Director", null);
-        generalStatsComboBox.getItems().addAll("Year", "Genre", "Director");
-        sortComboBox.getItems().addAll("Year", "Genre", "Director", "Title", null);
-
-        // This is the movie list that will be used to filter and sort the movie list as
-        // per the user's selection
-        adjustableMovieList = new MovieList();
-
-        generalStats();
-        updateMovieList(masterMovieList);
-
-        /*
-        Selection  listner that will constantly monitor if the user has selected a movie 
-        from the movie list view. If a movie is selected, its information will be displayed in the
-        display text area. If no movie is selected, the display text area will be cleared
-        */
-        movieListView.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
-            if (newValue != null) {
-                Movie selectedMovie = masterMovieList.searchByTitle(newValue);
-
-                if (selectedMovie != null) {
-                    // Display the details of the selected movie in the details tab
-                    detailsTextArea.setText(selectedMovie.toString());
-
-                    System.out.println(
-                            "Selected movie is " + selectedMovie.getTitle() + ". Displaying info in details tab");
-                }
-            } else {
-                // Clear the details if no movie is selected
-                detailsTextArea.clear();
-
-                System.out.println("No active selection");
-            }
-        });
-
-        /*
-        Search field listner that will constantly monitor the contents of 
-        the search text field to determine if the user is search for a movie
-        */
-        searchField.textProperty().addListener((observable, oldValue, newValue) -> {
-            handleSearchAction(newValue);
-        });
-
-        /*
-        Sort order listner that will constantly the current sorting state of the movie list
-        and determine whether the sort order toggle button is currently set to ascending or
-        descending order 
-        */
-        sortOrder.selectedProperty().addListener((observable, oldValue, newValue) -> {
-            System.out.println("Sorted: " + sorted);
-            if (newValue) {
-                sortOrder.setText("Descending");
-                if (sorted) {
-                    handleSortAction();
-                }
-            } else {
-                sortOrder.setText("Ascending");
-                if (sorted) {
-                    handleSortAction();
-                }
-            }
-        });
-
-    }
-
-    @FXML private void openAboutMenu(){
-        
-        try {
-            Parent root = FXMLLoader.load(getClass().getResource("About.fxml"));
-
-            Stage stage = new Stage();
-            stage.initModality(Modality.APPLICATION_MODAL);
-            stage.setTitle("About Page");
-            stage.setScene(new Scene(root));
-            stage.showAndWait();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    @FXML private void onResetClicked() {
-        resetLayout();
-    }
-
-    @FXML private void onAddClicked() {
-        try {
-            
-            Parent root = FXMLLoader.load(getClass().getResource("AddMovie.fxml"));
-
-            Stage addMovieStage = new Stage();
-            addMovieStage.initModality(Modality.APPLICATION_MODAL);
-            addMovieStage.setTitle("Add Movie");
-            addMovieStage.setScene(new Scene(root));
-
-            addMovieStage.showAndWait();
-
-            // Refresh the movie list view after adding a movie
-            updateMovieList(masterMovieList); 
-            generalStats();
-
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    @FXML private void onEditClicked() {
-
-        // Store the current movie that the user has selected from the movie list.
-        String selectedMovieTitle = movieListView.getSelectionModel().getSelectedItem();
-        if (selectedMovieTitle != null) {
-            // Get the selected movie object
-            Movie selectedMovie = masterMovieList.searchByTitle(selectedMovieTitle);
-            
-            if (selectedMovie != null) {
-                masterMovieList.setSelectedMovie(selectedMovie);
-                try {
-                
-                    Parent root = FXMLLoader.load(getClass().getResource("AddMovie.fxml"));
-                    Stage editMoviStage = new Stage();
-                    editMoviStage.initModality(Modality.APPLICATION_MODAL);
-                    editMoviStage.setTitle("Edit movie");
-                    editMoviStage.setScene(new Scene(root));
-                    editMoviStage.showAndWait();
-
-                    // Refresh the movie list view after editing the movie
-                    updateMovieList(masterMovieList); 
-                    generalStats();
-                    masterMovieList.setSelectedMovie(null);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-    }
-
-    @FXML private void onDeleteClicked() {
-        String selectedMovieTitle = movieListView.getSelectionModel().getSelectedItem();
-        if (selectedMovieTitle != null) {
-            // Display confirmation dialog
-            System.out.println("Confirm deletion of " + selectedMovieTitle);
-            Alert confirmationDialog = new Alert(Alert.AlertType.CONFIRMATION);
-            confirmationDialog.setTitle("Delete Movie");
-            confirmationDialog.setHeaderText("Confirm Deletion");
-            confirmationDialog.setContentText("Are you sure you want to delete the selected movie?");
-
-            Optional<ButtonType> result = confirmationDialog.showAndWait();
-            if (result.isPresent() && result.get() == ButtonType.OK) {
-
-                // Get the selected movie object
-                Movie movieToDelete = masterMovieList.searchByTitle(selectedMovieTitle);
-
-                if (movieToDelete != null) {
-                    // Remove the movie from the movie list
-                    System.out.println(selectedMovieTitle + " successfully deleted");
-
-                    masterMovieList.get_movies().remove(movieToDelete);
-
-                    // Save the updated movie list to the file
-                    masterMovieList.saveToFile();
-
-                    // Refresh the movie list view
-                    updateMovieList(masterMovieList);
-                    generalStats();
-
-                }
-            } else {
-                System.out.println("Delete request canceled. " + selectedMovieTitle + " is still in movie list");
-            }
-        }
-    }
-
-    @FXML private void handleSearchAction(String searchTerm) {
-        /*When the user searches for a movie, if there is an active filter, 
-        it will be cleared and the search will encompass the entire movie list 
-        not the currently filtered one as the filter will be cleared
-        */
-        activeFilterField.clear();
-        if (searchTerm != "") {
-            adjustableMovieList.get_movies().clear();
-
-            // System.out.println("There is no active filters or sorting, searching master
-            // list...");
-
-            for (Movie movie : masterMovieList.get_movies()) {
-                if (movie.getTitle().toLowerCase().contains(searchTerm.toLowerCase())) {
-                    adjustableMovieList.addMovie(movie);
-                }
-            }
-            if (adjustableMovieList.get_movies().isEmpty()) {
-                movieListView.getItems().clear();
-                movieListView.getItems().add("Search yeilds no result..");
-            } else {
-                updateMovieList(adjustableMovieList);
-            }
-        } else {
-            System.out.println("Search bar is empty");
-            resetLayout();
-        }
-
-    }
-
-    @FXML private void handleSortAction() {
-        String selectedSort = sortComboBox.getValue();
-
-        if (selectedSort != null) {
-            if (adjustableMovieList.get_movies().isEmpty()) {
-                adjustableMovieList.copyList(masterMovieList);
-                adjustableMovieList.sortBy(selectedSort, sortOrder.isSelected());
-            } else {
-                adjustableMovieList.sortBy(selectedSort, sortOrder.isSelected());
-            }
-            System.out.println("Sorting by " + selectedSort);
-            sorted = true;
-            updateMovieList(adjustableMovieList);
-        }
-
-    }
-
-    @FXML private void handleFilterAction() {
-        String selectedFilter = filterComboBox.getValue();
-        if (selectedFilter != null) {
-            openFilterInputDialog(selectedFilter);
-        }
-    }
-
-    @FXML private void onReportsClicked() {
-        try {
-
-
-            Parent root = FXMLLoader.load(getClass().getResource("Reports.fxml"));
-
-            Stage reportsStage = new Stage();
-            reportsStage.initModality(Modality.APPLICATION_MODAL);
-            reportsStage.setTitle("Reports");
-            reportsStage.setScene(new Scene(root));
-            reportsStage.showAndWait();
-
-            // Refresh the movie list view after adding a movie
-            updateMovieList(masterMovieList); 
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    @FXML private void onComboBoxChanged(){
-        generalStats();
-    }
-
-    /**
-     * Helper methods
-     */
-
-    /**
-     * Opens the filter input dialog responsible for generating the various options 
-     * based on the user's selected filter type. The method utilizes a set to store 
-     * a unique entry of the current available directors, genres and years of release
-     * that is updated actively as the user enters new movies with new directors, genres 
-     * and years of release
-     * 
-     * @param filterType The type of filter to generate the various options based on
-     */
-    private void openFilterInputDialog(String filterType) {
-        System.out.println("Filter menu opened...");
-        Alert error = new Alert(AlertType.ERROR,
-                "You did not select anything!");
-
-        // The options in this combo box actively update as the user enters a movie with
-        // a new year, genre or director.
-        ComboBox<String> activeOptions = new ComboBox<>();
-
-        //Utilize a set (since sets dont allow duplicates) to create a unique list of the current options 
-        //in the user's movie list based on the selected filter. 
-        Set<String> options = new HashSet<>();
-
-        try {
-            //Determine the method to be called based on the user's selection. For example, if user selected Year,  
-            // the method to be called will be getYear()
-            Method method = Movie.class.getMethod("get" + filterType);
-            for (Movie movies : masterMovieList.get_movies()) {
-                options.add(method.invoke(movies).toString());
-            }
-            for (String option : options) {
-                activeOptions.getItems().add(option);
-            }
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            // TODO: handle exception
-        }
-
-        GridPane gridPane = new GridPane();
-        gridPane.add(activeOptions, 0, 0);
-
-        Alert alert = new Alert(AlertType.CONFIRMATION);
-        alert.setTitle("Confirmation Dialog");
-        alert.setHeaderText("Please select an option:");
-        alert.getDialogPane().setContent(gridPane);
-        alert.getButtonTypes().setAll(ButtonType.OK, ButtonType.CANCEL);
-
-        alert.showAndWait().ifPresent(result -> {
-            if (result == ButtonType.OK) {
-                String selectedOption = activeOptions.getValue();
-                System.out.println("Selected filter option: " + selectedOption);
-
-                if (selectedOption == null) {
-                    error.showAndWait();
-                    filterComboBox.setValue(null);
-
-                } else {
-                    // adjustableMovieList = masterMovieList.filterBy(filterType, selectedOption);
-                    if (adjustableMovieList.get_movies().isEmpty()) {
-
-                        System.out.println("Filter yeileded result");
-                        adjustableMovieList.copyList(masterMovieList);
-
-                    }
-                    adjustableMovieList.filterBy(filterType, selectedOption);
-                    if (adjustableMovieList.get_movies().isEmpty()) {
-                        System.out.println("Filter yeileded nothing");
-
-                        movieListView.getItems().clear();
-                        movieListView.getItems().add("Filter yeilds nothing..");
-                    } else {
-                        updateMovieList(adjustableMovieList);
-
-                    }
-
-                    //Print out the active filter in the appropriate text field
-                    activeFilterField.setText(filterType + ": " + selectedOption);
-
-                }
-
-            } else {
-                System.out.println("Filter selection canceled. Exiting to main view");
-            }
-        });
-
-    }
-
-    /**
-     * Displays general statistics about the movie list to include total movies, movies per genre, movies per year of release
-     * and movies per director.
-     *  
-     */
-    private void generalStats() {
-
-        String generalStats = generalStatsComboBox.getValue();
-
-        if (generalStats == "Genre"){
-            generalField.clear();
-            generalField.appendText("Total movies: " + masterMovieList.get_movies().size());
-            generalField.appendText("\nBy Genre:\n" + masterMovieList.printMovieCountByGenre());
-        }else if (generalStats == "Year") {
-            generalField.clear();
-            generalField.appendText("Total movies: " + masterMovieList.get_movies().size());
-            generalField.appendText("\nBy Year\n" + masterMovieList.printMovieCountByYear());
-        }else if (generalStats == "Director"){
-            generalField.clear();
-            generalField.appendText("Total movies: " + masterMovieList.get_movies().size());
-            generalField.appendText("\nBy Director:\n" + masterMovieList.printMovieCountByDirector());
-
-        }else{
-            generalField.clear();
-            generalField.appendText("Total movies: " + masterMovieList.get_movies().size());
-        }
-
-    }
-
-    /**
-     * 
-     * @param ml The movie list to be displayed in the list view
-     */
-    private void updateMovieList(MovieList ml) {
-        movieListView.getItems().clear(); // Clear the movie list view
-
-        for (Movie movie : ml.get_movies()) {
-            movieListView.getItems().add(movie.getTitle()); // Add movies from the movie list to the movie list view
-        }
-
-    }
-
-    /**
-     * Resets the overall layout of the UI by clearing all filters, sorts, and search values. Displays the original
-     * movie list according to the order in which the movies were originally added.
-     * 
-     */
-    private void resetLayout() {
-        System.out.println("Reseting layout...");
-        sorted = false;
-        sortOrder.setSelected(false);
-        activeFilterField.clear();
-        filterComboBox.setValue(null);
-        sortComboBox.setValue(null);
-        adjustableMovieList.get_movies().clear();
-        searchField.clear();
-        updateMovieList(masterMovieList);
-    }
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.layout.GridPane;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import java.lang.String;
+
+/**
+ * Main controller class that controls the main UI that the user sees upon launching the
+ * application.
+ *
+ * @author Feras Yahya
+ */
+public class MainController {
+
+    static MovieList masterMovieList = new MovieList("movies.dat");
+
+    // The search, filter and sort currently applied to the movie list view. They are combined into a
+    // query over the master movie list, so the master list is never copied or changed to display them
+    private String activeSearch;
+    private Movie.FILTER activeFilter;
+    private String activeFilterValue;
+    private Movie.SORT activeSort;
+
+    // Runs the searches typed in the search field on a background thread, 150ms after the last keystroke
+    private SearchExecutor searchExecutor;
+
+    // Ids of the movies displayed in the movie list view. Updating it only reports the rows that changed
+    private final MovieIdList displayedIds = new MovieIdList();
+
+    // Changes made to the master list that the movie list view has not caught up with yet. Guarded by
+    // itself; changes are only queued while the master list is locked
+    private final List<MovieChange> pendingChanges = new ArrayList<>();
+
+    // Beyond this many changes at once, running the query again is cheaper than placing each movie
+    private static final int MAX_INCREMENTAL_CHANGES = 1000;
+
+    //GUI Controls
+    @FXML private Button addButton;
+    @FXML private Button editButton;
+    @FXML private Button deleteButton;
+    @FXML private Button reportsButton;
+    @FXML private Button resetButton;
+    @FXML private ListView<Integer> movieListView;
+    @FXML private TextField searchField;
+    @FXML private TextField activeFilterField;
+    @FXML private TextArea generalField;
+    @FXML private ComboBox<String> filterComboBox;
+    @FXML private ComboBox<String> sortComboBox;
+    @FXML private ComboBox<String> generalStatsComboBox;
+    @FXML private TextArea detailsTextArea;
+    @FXML private ToggleButton sortOrder;
+
+    @FXML private void initialize() {
+
+        System.out.println("Initialize ran");
+
+        filterComboBox.getItems().addAll("Year", "Genre", "Director", null);
+        generalStatsComboBox.getItems().addAll("Year", "Genre", "Director");
+        sortComboBox.getItems().addAll("Year", "Genre", "Director", "Title", null);
+
+        searchExecutor = new SearchExecutor(masterMovieList, 150, Platform::runLater);
+
+        // The list view holds movie ids. Each cell looks up the title of the movie it displays
+        movieListView.setItems(displayedIds);
+        movieListView.setCellFactory(listView -> new ListCell<Integer>() {
+            @Override
+            protected void updateItem(Integer id, boolean empty) {
+                super.updateItem(id, empty);
+                Movie movie = empty || id == null ? null : masterMovieList.getById(id);
+                setText(movie == null ? null : movie.getTitle());
+            }
+        });
+
+        // The data file is mapped rather than read, and the master list gives movies their position as id
+        // until it is first searched, filtered, sorted or counted, so this only decodes the movies shown
+        generalStats();
+        refreshMovieList();
+
+        /*
+        Change listener that keeps the movie list view and the statistics up to date whenever a movie
+        is added, edited or deleted, whichever window made the change
+        */
+        masterMovieList.addListener(this::queueChanges);
+
+        /*
+        Selection  listner that will constantly monitor if the user has selected a movie 
+        from the movie list view. If a movie is selected, its information will be displayed in the
+        display text area. If no movie is selected, the display text area will be cleared
+        */
+        movieListView.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue != null) {
+                Movie selectedMovie = masterMovieList.getById(newValue);
+
+                if (selectedMovie != null) {
+                    // Display the details of the selected movie in the details tab
+                    detailsTextArea.setText(selectedMovie.toString());
+
+                    System.out.println(
+                            "Selected movie is " + selectedMovie.getTitle() + ". Displaying info in details tab");
+                }
+            } else {
+                // Clear the details if no movie is selected
+                detailsTextArea.clear();
+
+                System.out.println("No active selection");
+            }
+        });
+
+        /*
+        Search field listner that will constantly monitor the contents of 
+        the search text field to determine if the user is search for a movie
+        */
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> {
+            handleSearchAction(newValue);
+        });
+
+        /*
+        Sort order listner that will constantly the current sorting state of the movie list
+        and determine whether the sort order toggle button is currently set to ascending or
+        descending order 
+        */
+        sortOrder.selectedProperty().addListener((observable, oldValue, newValue) -> {
+            System.out.println("Sorted: " + (activeSort != null));
+            if (newValue) {
+                sortOrder.setText("Descending");
+                if (activeSort != null) {
+                    handleSortAction();
+                }
+            } else {
+                sortOrder.setText("Ascending");
+                if (activeSort != null) {
+                    handleSortAction();
+                }
+            }
+        });
+
+    }
+
+    @FXML private void openAboutMenu(){
+        
+        try {
+            Parent root = FXMLLoader.load(getClass().getResource("About.fxml"));
+
+            Stage stage = new Stage();
+            stage.initModality(Modality.APPLICATION_MODAL);
+            stage.setTitle("About Page");
+            stage.setScene(new Scene(root));
+            stage.showAndWait();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @FXML private void onResetClicked() {
+        resetLayout();
+    }
+
+    @FXML private void onAddClicked() {
+        try {
+            
+            Parent root = FXMLLoader.load(getClass().getResource("AddMovie.fxml"));
+
+            Stage addMovieStage = new Stage();
+            addMovieStage.initModality(Modality.APPLICATION_MODAL);
+            addMovieStage.setTitle("Add Movie");
+            addMovieStage.setScene(new Scene(root));
+
+            // The movie list view is refreshed by the change listener once the movie is added
+            addMovieStage.showAndWait();
+
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @FXML private void onEditClicked() {
+
+        // Store the current movie that the user has selected from the movie list.
+        Integer selectedMovieId = movieListView.getSelectionModel().getSelectedItem();
+        if (selectedMovieId != null) {
+            // Get the selected movie object
+            Movie selectedMovie = masterMovieList.getById(selectedMovieId);
+            
+            if (selectedMovie != null) {
+                masterMovieList.setSelectedMovie(selectedMovie);
+                try {
+                
+                    Parent root = FXMLLoader.load(getClass().getResource("AddMovie.fxml"));
+                    Stage editMoviStage = new Stage();
+                    editMoviStage.initModality(Modality.APPLICATION_MODAL);
+                    editMoviStage.setTitle("Edit movie");
+                    editMoviStage.setScene(new Scene(root));
+                    // The movie list view is refreshed by the change listener once the movie is edited
+                    editMoviStage.showAndWait();
+                    masterMovieList.setSelectedMovie(null);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @FXML private void onDeleteClicked() {
+        Integer selectedMovieId = movieListView.getSelectionModel().getSelectedItem();
+        // Get the selected movie object
+        Movie movieToDelete = selectedMovieId == null ? null : masterMovieList.getById(selectedMovieId);
+        if (movieToDelete != null) {
+            String selectedMovieTitle = movieToDelete.getTitle();
+            // Display confirmation dialog
+            System.out.println("Confirm deletion of " + selectedMovieTitle);
+            Alert confirmationDialog = new Alert(Alert.AlertType.CONFIRMATION);
+            confirmationDialog.setTitle("Delete Movie");
+            confirmationDialog.setHeaderText("Confirm Deletion");
+            confirmationDialog.setContentText("Are you sure you want to delete the selected movie?");
+
+            Optional<ButtonType> result = confirmationDialog.showAndWait();
+            if (result.isPresent() && result.get() == ButtonType.OK) {
+
+                // Remove the movie from the movie list
+                System.out.println(selectedMovieTitle + " successfully deleted");
+
+                // The removal is recorded in the change journal and the view is refreshed by the
+                // change listener
+                masterMovieList.removeMovie(movieToDelete.getId());
+
+            } else {
+                System.out.println("Delete request canceled. " + selectedMovieTitle + " is still in movie list");
+            }
+        }
+    }
+
+    @FXML private void handleSearchAction(String searchTerm) {
+        /*When the user searches for a movie, if there is an active filter, 
+        it will be cleared and the search will encompass the entire movie list 
+        not the currently filtered one as the filter will be cleared
+        */
+        activeFilterField.clear();
+        activeFilter = null;
+        if (searchTerm != "") {
+            activeSearch = searchTerm;
+            // The search runs in the background. Only the result of the latest search term is displayed
+            searchExecutor.submit(currentQuery(), this::showSearchResults);
+        } else {
+            System.out.println("Search bar is empty");
+            resetLayout();
+        }
+
+    }
+
+    @FXML private void handleSortAction() {
+        String selectedSort = sortComboBox.getValue();
+
+        if (selectedSort != null) {
+            activeSort = Movie.SORT.valueOf(selectedSort.toUpperCase());
+            System.out.println("Sorting by " + selectedSort);
+            refreshMovieList();
+        }
+
+    }
+
+    @FXML private void handleFilterAction() {
+        String selectedFilter = filterComboBox.getValue();
+        if (selectedFilter != null) {
+            openFilterInputDialog(selectedFilter);
+        }
+    }
+
+    @FXML private void onReportsClicked() {
+        try {
+
+
+            Parent root = FXMLLoader.load(getClass().getResource("Reports.fxml"));
+
+            Stage reportsStage = new Stage();
+            reportsStage.initModality(Modality.APPLICATION_MODAL);
+            reportsStage.setTitle("Reports");
+            reportsStage.setScene(new Scene(root));
+            reportsStage.showAndWait();
+
+            // Refresh the movie list view after adding a movie
+            refreshMovieList();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @FXML private void onComboBoxChanged(){
+        generalStats();
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Opens the filter input dialog responsible for generating the various options 
+     * based on the user's selected filter type. The options are the distinct directors, 
+     * genres or years of release counted by the master list, which are updated actively
+     * as the user enters new movies with new directors, genres and years of release
+     * 
+     * @param filterType The type of filter to generate the various options based on
+     */
+    private void openFilterInputDialog(String filterType) {
+        System.out.println("Filter menu opened...");
+        Alert error = new Alert(AlertType.ERROR,
+                "You did not select anything!");
+
+        // The options come from the live counts of the master list, so they always match the movies in
+        // the list, and each one shows how many movies it would keep
+        ComboBox<String> activeOptions = optionsComboBox(masterMovieList,
+                Movie.FILTER.valueOf(filterType.toUpperCase()));
+
+        GridPane gridPane = new GridPane();
+        gridPane.add(activeOptions, 0, 0);
+
+        Alert alert = new Alert(AlertType.CONFIRMATION);
+        alert.setTitle("Confirmation Dialog");
+        alert.setHeaderText("Please select an option:");
+        alert.getDialogPane().setContent(gridPane);
+        alert.getButtonTypes().setAll(ButtonType.OK, ButtonType.CANCEL);
+
+        alert.showAndWait().ifPresent(result -> {
+            if (result == ButtonType.OK) {
+                String selectedOption = activeOptions.getValue();
+                System.out.println("Selected filter option: " + selectedOption);
+
+                if (selectedOption == null) {
+                    error.showAndWait();
+                    filterComboBox.setValue(null);
+
+                } else {
+                    activeFilter = Movie.FILTER.valueOf(filterType.toUpperCase());
+                    activeFilterValue = selectedOption;
+                    refreshMovieList();
+
+                    //Print out the active filter in the appropriate text field
+                    activeFilterField.setText(filterType + ": " + selectedOption);
+
+                }
+
+            } else {
+                System.out.println("Filter selection canceled. Exiting to main view");
+            }
+        });
+
+    }
+
+    /**
+     * Creates a combo box listing the distinct values of an attribute in sorted order, each shown with
+     * its number of movies. The selected value is the value itself, without the count
+     * 
+     * @param movieList The movie list to take the values from
+     * @param filter    The attribute to list the values of
+     * @return the combo box
+     */
+    static ComboBox<String> optionsComboBox(MovieList movieList, Movie.FILTER filter) {
+        Map<String, Integer> counts = movieList.valueCounts(filter);
+        ComboBox<String> options = new ComboBox<>();
+        for (String value : counts.keySet()) {
+            if (value != null) {
+                options.getItems().add(value);
+            }
+        }
+        options.setCellFactory(listView -> new ListCell<String>() {
+            @Override
+            protected void updateItem(String value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null ? null : value + " (" + counts.get(value) + ")");
+            }
+        });
+        return options;
+    }
+
+    /**
+     * Displays the result of a search in the movie list view. Called on the JavaFX Application Thread
+     * once the background search has finished.
+     * 
+     * @param results The movies whose titles matched the search term
+     */
+    private void showSearchResults(List<Movie> results) {
+        if (results.isEmpty()) {
+            movieListView.setPlaceholder(new Label("Search yeilds no result.."));
+        }
+        updateMovieList(results);
+    }
+
+    /**
+     * Queues changes made to the master movie list for the JavaFX Application Thread. Called by the master
+     * list, with the list locked, on whichever thread made the change. Changes that arrive before the
+     * queue is drained are applied together
+     * 
+     * @param changes The movies that were added, edited or deleted
+     */
+    private void queueChanges(List<MovieChange> changes) {
+        synchronized (pendingChanges) {
+            if (pendingChanges.isEmpty()) {
+                Platform.runLater(this::onMoviesChanged);
+            }
+            pendingChanges.addAll(changes);
+        }
+    }
+
+    /**
+     * Applies the queued changes to the movie list view and the statistics. Called on the JavaFX
+     * Application Thread
+     */
+    private void onMoviesChanged() {
+        synchronized (masterMovieList) {
+            // No change can be queued while the master list is locked, so the view ends up matching it
+            List<MovieChange> changes;
+            synchronized (pendingChanges) {
+                changes = new ArrayList<>(pendingChanges);
+                pendingChanges.clear();
+            }
+            if (changes.size() > MAX_INCREMENTAL_CHANGES) {
+                refreshMovieList();
+            } else {
+                applyChanges(changes);
+            }
+        }
+        generalStats();
+    }
+
+    /**
+     * Updates the movie list view by the ids of the movies that changed, without running the query again.
+     * Every changed movie is taken out of the view, and those that still exist and match the query are
+     * put back where the query would place them. The master list must be locked
+     * 
+     * @param changes The movies that were added, edited or deleted
+     */
+    private void applyChanges(List<MovieChange> changes) {
+        MovieQuery query = currentQuery();
+        Integer selectedMovieId = movieListView.getSelectionModel().getSelectedItem();
+
+        BitSet changed = new BitSet();
+        for (MovieChange change : changes) {
+            changed.set(change.getId());
+        }
+        displayedIds.removeIds(changed);
+
+        int[] added = new int[changed.cardinality()];
+        int count = 0;
+        for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+            Movie movie = masterMovieList.getById(id);
+            if (movie != null && query.matches(movie)) {
+                added[count++] = id;
+            }
+        }
+        added = Arrays.copyOf(added, count);
+        Comparator<Movie> order = query.order();
+        displayedIds.insertIds(added,
+                (a, b) -> order.compare(masterMovieList.getById(a), masterMovieList.getById(b)));
+
+        // An edited movie is taken out and put back, which clears the selection if it was selected
+        if (selectedMovieId != null && changed.get(selectedMovieId)) {
+            for (int id : added) {
+                if (id == selectedMovieId) {
+                    movieListView.getSelectionModel().select(selectedMovieId);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Displays general statistics about the movie list to include total movies, movies per genre, movies per year of release
+     * and movies per director.
+     *  
+     */
+    private void generalStats() {
+
+        String generalStats = generalStatsComboBox.getValue();
+
+        if (generalStats == null) {
+            // The total needs no counts, so the master list is not indexed for it
+            generalField.setText("Total movies: " + masterMovieList.get_movies().size());
+            return;
+        }
+
+        // The counts are maintained by the master movie list as movies change, so nothing is recounted here
+        MovieStats stats = masterMovieList.stats();
+
+        if (generalStats == "Genre"){
+            generalField.setText("Total movies: " + stats.getTotal() + "\nBy Genre:\n" + stats.printByGenre());
+        }else if (generalStats == "Year") {
+            generalField.setText("Total movies: " + stats.getTotal() + "\nBy Year\n" + stats.printByYear());
+        }else if (generalStats == "Director"){
+            generalField.setText("Total movies: " + stats.getTotal() + "\nBy Director:\n" + stats.printByDirector());
+
+        }else{
+            generalField.setText("Total movies: " + stats.getTotal());
+        }
+
+    }
+
+    /**
+     * Builds the query for the search, filter and sort that are currently applied to the movie list view
+     * 
+     * @return a query over the master movie list
+     */
+    private MovieQuery currentQuery() {
+        MovieQuery query = masterMovieList.query().titleContains(activeSearch);
+        if (activeFilter != null) {
+            query.where(activeFilter, activeFilterValue);
+        }
+        if (activeSort != null) {
+            // The toggle button is selected when the user wants descending order
+            query.orderBy(activeSort, !sortOrder.isSelected());
+        }
+        return query;
+    }
+
+    /**
+     * Runs the current query and displays its result in the movie list view
+     */
+    private void refreshMovieList() {
+        MovieQuery query = currentQuery();
+        List<Movie> results = query.list();
+
+        // Shown by the list view in place of the rows when the result is empty
+        if (results.isEmpty() && activeFilter != null) {
+            System.out.println("Filter yeileded nothing");
+            movieListView.setPlaceholder(new Label("Filter yeilds nothing.."));
+        } else if (results.isEmpty() && activeSearch != null) {
+            movieListView.setPlaceholder(new Label("Search yeilds no result.."));
+        } else {
+            movieListView.setPlaceholder(null);
+        }
+        updateMovieList(results);
+    }
+
+    /**
+     * Displays movies in the list view. Only the rows that differ from what is displayed are changed
+     * 
+     * @param movies The movies to be displayed in the list view
+     */
+    private void updateMovieList(List<Movie> movies) {
+        int[] ids;
+        if (movies instanceof MovieQuery.Result) {
+            ids = ((MovieQuery.Result) movies).getIds();
+        } else {
+            ids = new int[movies.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = movies.get(i).getId();
+            }
+        }
+        displayedIds.setIds(ids);
+    }
+
+    /**
+     * Resets the overall layout of the UI by clearing all filters, sorts, and search values. Displays the original
+     * movie list according to the order in which the movies were originally added.
+     * 
+     */
+    private void resetLayout() {
+        System.out.println("Reseting layout...");
+        searchExecutor.cancel();
+        activeSearch = null;
+        activeFilter = null;
+        activeSort = null;
+        sortOrder.setSelected(false);
+        activeFilterField.clear();
+        filterComboBox.setValue(null);
+        sortComboBox.setValue(null);
+        searchField.clear();
+        refreshMovieList();
+    }
 }
\ No newline at end of file
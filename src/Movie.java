@@ -1,133 +1,216 @@
-import java.io.Serializable;
-
-/**
- * Movie class that defines the movie objects.
- *
- * @author Feras Yahya
- */
-public class Movie implements Serializable, Comparable<Movie> {
-
-    /**
-     * Enums
-     * 
-     * Describe the different movie Genres that are available
-     */
-    public enum Genre{HORROR, ACTION, DRAMA, THRILLER, ROMANCE, COMEDY, ADVENTURE, SCIENCE_FICTION, CRIME, ANIMATION};
-    public enum SORT{YEAR, GENRE, DIRECTOR, TITLE};
-    public enum FILTER{YEAR, GENRE, DIRECTOR};
-
-    /**
-     * Fields
-     */
-    private Genre genre;
-    protected String title;
-    private String director;
-    private int year;
-
-    /**
-     * Parameterized constructor
-     * 
-     * @param title     the movie's title
-     * @param director  the movie's director
-     * @param genre     the movie's genre
-     * @param year      the year in which the movie was released
-     */
-    public Movie(String title, String director, Genre genre, int year) {
-        this.title = title;
-        this.director = director;
-        this.genre = genre;
-        this.year = year;
-    }
-
-    /**
-     * Public methods
-    */
-    /**
-     * Returns the movie's title
-     * 
-     * @return the title that belongs to that specific movie
-     */
-    public String getTitle() {
-        return title;
-    }
-
-    /**
-     * Sets the movie's title
-     */
-    public void setTitle(String title) {
-        this.title = title;
-    }
-
-    /**
-     * Returns the movie's director
-     * 
-     * @return the director that belongs to that specific movie
-     */
-    public String getDirector() {
-        return director;
-    }
-
-    /**
-     * Sets the movie's director
-     */
-    public void setDirector(String director) {
-        this.director = director;
-    }
-
-    /**
-     * Returns the movie's genre
-     * 
-     * @return the genre in which the movie falls in
-     */
-    public Genre getGenre() {
-        return genre;
-    }
-
-    /**
-     * Sets the movie's genre
-     */
-    public void setGenre(Genre genre) {
-        this.genre = genre;
-    }
-
-    /**
-     * Returns the movie's year of release
-     * 
-     * @return the year in which the movie was released
-     */
-    public int getYear() {
-        return year;
-    }
-
-    public void setYear(int year) {
-        this.year = year;
-    }
-
-    /**
-     * Returns the movie's information as a string 
-     * 
-     * @return a string representation of the movie's information
-     */
-    @Override
-    public String toString() {
-        return "Title: " + title + "\nDirector: " + director + "\nGenre: " + genre + "\nYear: " + year;
-    }
-
-    /**
-     * Compares two movie objects based on their titles
-     * 
-     * @param movie the Movie object being compared to the original movie 
-     * 
-     * @return an integer that indicates the result of the comparison. 0 indicates movie titles are equal,
-     * 1 indicates original movie objects is less than the compared movie, -1 indicates that original movie object is greater than 
-     * the compared movie
-     */
-    @Override
-    public int compareTo(Movie movie) {
-
-        // Objects are not of the same type
-
-        // Compare them based on name
-        return this.genre.compareTo(movie.genre);
-    }
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+
+/**
+ * Movie class that defines the movie objects.
+ *
+ * @author Feras Yahya
+ */
+public class Movie implements Serializable, Comparable<Movie> {
+
+    // Kept fixed so data files written with Java serialization can still be read and migrated
+    private static final long serialVersionUID = -6725786269896677172L;
+
+    // The fields as they were when those files were written, with the director stored by name
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("genre", Genre.class),
+        new ObjectStreamField("title", String.class),
+        new ObjectStreamField("director", String.class),
+        new ObjectStreamField("year", int.class)
+    };
+
+    /**
+     * Enums
+     * 
+     * Describe the different movie Genres that are available
+     */
+    public enum Genre{HORROR, ACTION, DRAMA, THRILLER, ROMANCE, COMEDY, ADVENTURE, SCIENCE_FICTION, CRIME, ANIMATION};
+    public enum SORT{YEAR, GENRE, DIRECTOR, TITLE};
+    public enum FILTER{YEAR, GENRE, DIRECTOR};
+
+    /**
+     * Fields
+     */
+    private Genre genre;
+    protected String title;
+    // The director's id in the DirectorDictionary, so movies of the same director share one name
+    private int directorId;
+    private int year;
+
+    // Identifies the movie inside the movie list that owns it. Assigned by the movie list, never stored
+    private transient int id = -1;
+
+    /**
+     * Parameterized constructor
+     * 
+     * @param title     the movie's title
+     * @param director  the movie's director
+     * @param genre     the movie's genre
+     * @param year      the year in which the movie was released
+     */
+    public Movie(String title, String director, Genre genre, int year) {
+        this(title, DirectorDictionary.idOf(director), genre, year);
+    }
+
+    /**
+     * Parameterized constructor for a director already in the DirectorDictionary
+     * 
+     * @param title      the movie's title
+     * @param directorId the director's id in the DirectorDictionary
+     * @param genre      the movie's genre
+     * @param year       the year in which the movie was released
+     */
+    Movie(String title, int directorId, Genre genre, int year) {
+        this.title = title;
+        this.directorId = directorId;
+        this.genre = genre;
+        this.year = year;
+    }
+
+    /**
+     * Public methods
+    */
+    /**
+     * Returns the movie's title
+     * 
+     * @return the title that belongs to that specific movie
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Sets the movie's title
+     */
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Returns the movie's director
+     * 
+     * @return the director that belongs to that specific movie
+     */
+    public String getDirector() {
+        return DirectorDictionary.nameOf(directorId);
+    }
+
+    /**
+     * Returns the movie's director as an id in the DirectorDictionary
+     * 
+     * @return the director's id, or DirectorDictionary.NONE if the movie has no director
+     */
+    public int getDirectorId() {
+        return directorId;
+    }
+
+    /**
+     * Sets the movie's director
+     */
+    public void setDirector(String director) {
+        this.directorId = DirectorDictionary.idOf(director);
+    }
+
+    /**
+     * Returns the movie's genre
+     * 
+     * @return the genre in which the movie falls in
+     */
+    public Genre getGenre() {
+        return genre;
+    }
+
+    /**
+     * Sets the movie's genre
+     */
+    public void setGenre(Genre genre) {
+        this.genre = genre;
+    }
+
+    /**
+     * Returns the movie's year of release
+     * 
+     * @return the year in which the movie was released
+     */
+    public int getYear() {
+        return year;
+    }
+
+    public void setYear(int year) {
+        this.year = year;
+    }
+
+    /**
+     * Returns the movie's id. The id is assigned by the movie list the movie was first indexed in and
+     * stays the same while the application runs, even when the movie is edited.
+     * 
+     * @return the movie's id, or -1 if the movie has not been indexed by a movie list yet
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the movie's id. Only called by the movie list that owns the movie
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the movie's information as a string 
+     * 
+     * @return a string representation of the movie's information
+     */
+    @Override
+    public String toString() {
+        return "Title: " + getTitle() + "\nDirector: " + getDirector() + "\nGenre: " + getGenre() + "\nYear: "
+                + getYear();
+    }
+
+    /**
+     * Writes the movie with its director's name, as the serialized form has always held it
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("genre", getGenre());
+        fields.put("title", getTitle());
+        fields.put("director", getDirector());
+        fields.put("year", getYear());
+        out.writeFields();
+    }
+
+    /**
+     * Reads a movie written by writeObject or by older versions of the application, looking its
+     * director up in the DirectorDictionary
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        genre = (Genre) fields.get("genre", null);
+        title = (String) fields.get("title", null);
+        directorId = DirectorDictionary.idOf((String) fields.get("director", null));
+        year = fields.get("year", 0);
+        id = -1;
+    }
+
+    /**
+     * Compares two movie objects based on their titles
+     * 
+     * @param movie the Movie object being compared to the original movie 
+     * 
+     * @return an integer that indicates the result of the comparison. 0 indicates movie titles are equal,
+     * 1 indicates original movie objects is less than the compared movie, -1 indicates that original movie object is greater than 
+     * the compared movie
+     */
+    @Override
+    public int compareTo(Movie movie) {
+
+        // Objects are not of the same type
+
+        // Compare them based on name
+        return this.getGenre().compareTo(movie.getGenre());
+    }
 }
\ No newline at end of file
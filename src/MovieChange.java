@@ -0,0 +1,75 @@
+/**
+ * A change made to a movie list: a movie that was added, edited or removed. Changes are published to
+ * the list's MovieListListeners in batches, in the order they were made.
+ *
+ * @author Feras Yahya
+ */
+public class MovieChange {
+
+    /**
+     * Kinds of change
+     */
+    public enum Type {ADDED, UPDATED, REMOVED};
+
+    /**
+     * Fields
+     */
+    private final Type type;
+    private final Movie movie;
+    private final int position;
+
+    /**
+     * Parameterized constructor
+     *
+     * @param type     The kind of change
+     * @param movie    The movie that changed. For an update, the movie already holds its new values
+     * @param position The position of the movie in the list when the change was made. For a removal,
+     *                 the position it had just before it was removed
+     */
+    MovieChange(Type type, Movie movie, int position) {
+        this.type = type;
+        this.movie = movie;
+        this.position = position;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     *
+     * @return the kind of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     *
+     * @return the movie that changed
+     */
+    public Movie getMovie() {
+        return movie;
+    }
+
+    /**
+     *
+     * @return the id of the movie that changed
+     */
+    public int getId() {
+        return movie.getId();
+    }
+
+    /**
+     *
+     * @return the position of the movie in the list when the change was made
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + movie.getTitle() + " at " + position;
+    }
+}
@@ -0,0 +1,392 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Command line entry point for running the movie list without a display, for scripts and batch jobs:
+ *
+ * <pre>
+ * java MovieCli [--data FILE] [--columnar] COMMAND [OPTIONS]
+ * </pre>
+ *
+ * The commands are load, stats, query, import, export, compact and serve, see USAGE. They run on the same
+ * MovieList, MovieQuery, MovieImporter and MovieExporter as the desktop application, but this class
+ * never refers to App or the controllers, so no JavaFX class is loaded and the data file is only opened
+ * once.
+ *
+ * Results are written to standard output in a machine-readable form: a single JSON object for load,
+ * stats, import, export and compact, and one movie per line for query (JSON Lines by default). Messages
+ * the movie list logs while it works go to standard error instead, so they never end up in the results.
+ * The exit code is 0 on success, 1 if the command failed and 2 if the command line is wrong.
+ *
+ * @author Feras Yahya
+ */
+public class MovieCli {
+
+    /**
+     * Fields
+     */
+    private final PrintStream out;
+    private String dataFile = "movies.dat";
+    private boolean columnar;
+    private String command;
+    private final List<String> arguments = new ArrayList<>();
+
+    // Query options
+    private String search;
+    private final List<Movie.FILTER> filters = new ArrayList<>();
+    private final List<String> filterValues = new ArrayList<>();
+    private Movie.SORT sort;
+    private boolean ascending = true;
+    private int limit = -1;
+
+    // Output and file options
+    private String format;
+    private String rejects;
+    private Movie.FILTER statsBy;
+    private int port = MovieServer.DEFAULT_PORT;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java MovieCli [--data FILE] [--columnar] COMMAND [OPTIONS]",
+            "",
+            "Commands:",
+            "  load                          Loads the data file and prints the number of movies and journal records",
+            "  stats [--by ATTRIBUTE]        Prints the number of movies per genre, year and director",
+            "  query [QUERY OPTIONS] [--format jsonl|csv|tsv|report]",
+            "                                Prints the matching movies, one per line",
+            "  import FILE [--format csv|tsv|jsonl] [--rejects FILE]",
+            "                                Imports the movies of a file into the data file. Rows",
+            "                                that cannot be read go to FILE.rejects by default",
+            "  export FILE [QUERY OPTIONS] [--format jsonl|csv|tsv|report]",
+            "                                Writes the matching movies to a file",
+            "  compact                       Rewrites the data file as a single snapshot and empties",
+            "                                the change journal",
+            "  serve [--port N]              Serves the movie list over HTTP on localhost until the",
+            "                                process is stopped, see MovieServer",
+            "",
+            "Query options:",
+            "  --search TEXT                 Titles containing the text, ignoring case",
+            "  --filter ATTRIBUTE=VALUE      Movies with the value, for example year=1999. Can be repeated",
+            "  --sort ATTRIBUTE[:desc]       Sorts by title, director, genre or year",
+            "  --limit N                     Returns at most N movies",
+            "",
+            "Options:",
+            "  --data FILE                   The data file, movies.dat by default",
+            "  --columnar                    Keeps the movies in column oriented storage");
+
+    /**
+     * Parameterized constructor
+     *
+     * @param out Where to write the results
+     */
+    public MovieCli(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Runs a command and exits with its exit code
+     *
+     * @param args The command line, see USAGE
+     */
+    public static void main(String[] args) {
+        // Keep standard output for the results, and send everything the movie list logs to standard error
+        PrintStream results = System.out;
+        System.setOut(System.err);
+        int status = new MovieCli(results).run(args);
+        results.flush();
+        System.exit(status);
+    }
+
+    /**
+     * Runs a command
+     *
+     * @param args The command line, see USAGE
+     * @return the exit code: 0 on success, 1 if the command failed and 2 if the command line is wrong
+     */
+    public int run(String[] args) {
+        try {
+            parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (command.equals("help")) {
+            out.println(USAGE);
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        MovieList movieList = new MovieList(dataFile, columnar);
+        try {
+            switch (command) {
+                case "load":
+                    load(movieList, start);
+                    break;
+                case "stats":
+                    stats(movieList);
+                    break;
+                case "query":
+                    query(movieList);
+                    break;
+                case "import":
+                    importFile(movieList);
+                    break;
+                case "export":
+                    export(movieList);
+                    break;
+                case "serve":
+                    serve(movieList);
+                    break;
+                case "compact":
+                default:
+                    compact(movieList);
+                    break;
+            }
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error: " + command + " failed: " + e);
+            return 1;
+        } finally {
+            PersistenceWriter writer = movieList.getWriter();
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void load(MovieList movieList, long start) {
+        PersistenceWriter writer = movieList.getWriter();
+        out.printf(Locale.ROOT, "{\"data\":%s,\"movies\":%d,\"loadMillis\":%.1f,\"journalRecords\":%d,"
+                + "\"ignoredJournalBytes\":%d}%n", json(dataFile), movieList.get_movies().size(),
+                (System.nanoTime() - start) / 1e6, writer == null ? 0 : writer.getReplayedRecords(),
+                writer == null ? 0 : writer.getIgnoredJournalBytes());
+    }
+
+    private void stats(MovieList movieList) throws IOException {
+        MovieExporter.writeStats(movieList, statsBy, writer());
+    }
+
+    private void query(MovieList movieList) throws IOException {
+        MovieQuery query = query(movieList.query());
+        MovieExporter.write(query.list(), writer(), exportFormat(), "matching the query");
+        System.err.println("Query plan: " + query.getPlan());
+    }
+
+    private void importFile(MovieList movieList) throws IOException {
+        File input = new File(arguments.get(0));
+        MovieImporter.Format importFormat = format == null ? MovieImporter.formatOf(input)
+                : MovieImporter.Format.valueOf(formatName(format));
+        MovieImporter.Result result = new MovieImporter(movieList).importFile(input, importFormat,
+                new File(rejects == null ? input.getPath() + ".rejects" : rejects));
+        out.printf(Locale.ROOT,
+                "{\"file\":%s,\"rows\":%d,\"imported\":%d,\"duplicates\":%d,\"rejected\":%d,\"millis\":%.1f}%n",
+                json(input.getPath()), result.getRows(), result.getImported(), result.getDuplicates(),
+                result.getRejected(), result.getElapsedMillis());
+    }
+
+    private void export(MovieList movieList) throws IOException {
+        File output = new File(arguments.get(0));
+        MovieExporter.Format exportFormat = format == null ? MovieExporter.formatOf(output) : exportFormat();
+        MovieExporter exporter = new MovieExporter(movieList);
+        long written;
+        if (search == null && filters.isEmpty() && sort == null && limit < 0) {
+            written = exporter.exportAll(output, exportFormat);
+        } else {
+            written = exporter.export(query(movieList.query()), output, exportFormat, "matching the query");
+        }
+        out.printf("{\"file\":%s,\"exported\":%d}%n", json(output.getPath()), written);
+    }
+
+    private void compact(MovieList movieList) {
+        long start = System.nanoTime();
+        movieList.saveToFile();
+        out.printf(Locale.ROOT, "{\"data\":%s,\"movies\":%d,\"millis\":%.1f}%n", json(dataFile),
+                movieList.get_movies().size(), (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Serves the movie list until the process is stopped. The changes still waiting to be saved are
+     * written on the way out
+     */
+    private void serve(MovieList movieList) throws IOException {
+        MovieServer server = new MovieServer(movieList, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            movieList.flush();
+        }, "movie-http-shutdown"));
+        server.start();
+        out.printf("{\"data\":%s,\"port\":%d}%n", json(dataFile), server.getPort());
+        out.flush();
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private MovieQuery query(MovieQuery query) {
+        for (int i = 0; i < filters.size(); i++) {
+            query.where(filters.get(i), filterValues.get(i));
+        }
+        return query.titleContains(search).orderBy(sort, ascending).limit(limit);
+    }
+
+    /**
+     * Reads the command line into the fields
+     *
+     * @throws IllegalArgumentException if the command line is wrong
+     */
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                if (command == null) {
+                    command = arg.toLowerCase(Locale.ROOT);
+                } else {
+                    arguments.add(arg);
+                }
+                continue;
+            }
+            if (arg.equals("--columnar")) {
+                columnar = true;
+                continue;
+            }
+            if (arg.equals("--help")) {
+                command = "help";
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException(arg + " needs a value");
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--data":
+                    dataFile = value;
+                    break;
+                case "--search":
+                    search = value;
+                    break;
+                case "--filter":
+                    int equals = value.indexOf('=');
+                    if (equals < 0) {
+                        throw new IllegalArgumentException("--filter takes ATTRIBUTE=VALUE, found " + value);
+                    }
+                    Movie.FILTER filter = valueOf(Movie.FILTER.class, value.substring(0, equals));
+                    filters.add(filter);
+                    // Genres are stored by the name of their constant
+                    filterValues.add(filter == Movie.FILTER.GENRE ? value.substring(equals + 1).toUpperCase(Locale.ROOT)
+                            : value.substring(equals + 1));
+                    break;
+                case "--sort":
+                    int colon = value.indexOf(':');
+                    String order = colon < 0 ? "asc" : value.substring(colon + 1).toLowerCase(Locale.ROOT);
+                    if (!order.equals("asc") && !order.equals("desc")) {
+                        throw new IllegalArgumentException("Unknown sort order " + order);
+                    }
+                    sort = valueOf(Movie.SORT.class, colon < 0 ? value : value.substring(0, colon));
+                    ascending = order.equals("asc");
+                    break;
+                case "--limit":
+                    try {
+                        limit = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--limit takes a number, found " + value);
+                    }
+                    break;
+                case "--format":
+                    format = value;
+                    break;
+                case "--rejects":
+                    rejects = value;
+                    break;
+                case "--port":
+                    try {
+                        port = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--port takes a number, found " + value);
+                    }
+                    break;
+                case "--by":
+                    statsBy = valueOf(Movie.FILTER.class, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (command == null) {
+            throw new IllegalArgumentException("No command given");
+        }
+        if (!List.of("help", "load", "stats", "query", "import", "export", "compact", "serve").contains(command)) {
+            throw new IllegalArgumentException("Unknown command " + command);
+        }
+        int expected = command.equals("import") || command.equals("export") ? 1 : 0;
+        if (arguments.size() != expected) {
+            throw new IllegalArgumentException(command + (expected == 0 ? " takes no arguments" : " takes a file"));
+        }
+        if (format != null) {
+            // Fail before the data file is opened
+            String name = formatName(format);
+            if (command.equals("import") ? !List.of("CSV", "TSV", "JSON_LINES").contains(name)
+                    : !List.of("CSV", "TSV", "JSON_LINES", "REPORT").contains(name)) {
+                throw new IllegalArgumentException("Unknown format " + format + " for " + command);
+            }
+        }
+    }
+
+    private static <E extends Enum<E>> E valueOf(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown attribute " + name);
+        }
+    }
+
+    /**
+     * @return the name of the format's constant, accepting jsonl for JSON_LINES
+     */
+    private static String formatName(String format) {
+        String name = format.toUpperCase(Locale.ROOT);
+        return name.equals("JSONL") || name.equals("JSON") ? "JSON_LINES" : name;
+    }
+
+    private MovieExporter.Format exportFormat() {
+        return format == null ? MovieExporter.Format.JSON_LINES : MovieExporter.Format.valueOf(formatName(format));
+    }
+
+    /**
+     * @return a buffered writer over the results, which is flushed but never closed
+     */
+    private Writer writer() {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private static String json(String value) {
+        StringWriter json = new StringWriter();
+        try {
+            MovieExporter.writeJsonValue(value, json);
+        } catch (IOException e) {
+            // A StringWriter does not throw
+        }
+        return json.toString();
+    }
+}
@@ -0,0 +1,358 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Exports movies to a file as CSV, TSV, JSON Lines or the human-readable report format.
+ *
+ * Movies are streamed to the file through a buffered writer one at a time, straight from the movie list
+ * or from a query result, so nothing is built up in memory but the ids of the movies to write. The
+ * exporter needs no window, so the whole collection can be exported from anywhere the movie list is
+ * available.
+ *
+ * CSV, TSV and JSON Lines files use the columns and keys that MovieImporter reads (title, director,
+ * genre, year), so an exported file can be imported again. TSV values cannot be quoted, so tabs and line
+ * breaks inside a value are written as spaces.
+ *
+ * @author Feras Yahya
+ */
+public class MovieExporter {
+
+    /**
+     * Supported file formats. REPORT is the format of the Reports window
+     */
+    public enum Format {CSV, TSV, JSON_LINES, REPORT};
+
+    /**
+     * Fields
+     */
+    private final MovieList movieList;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Parameterized constructor
+     *
+     * @param movieList The movie list to export from
+     */
+    public MovieExporter(MovieList movieList) {
+        this.movieList = movieList;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     *
+     * @param file The file to export to
+     * @return the format matching the file's extension: .csv, .tsv or .tab, .jsonl or .ndjson, and REPORT
+     *         otherwise
+     */
+    public static Format formatOf(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return Format.CSV;
+        } else if (name.endsWith(".tsv") || name.endsWith(".tab")) {
+            return Format.TSV;
+        } else if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            return Format.JSON_LINES;
+        }
+        return Format.REPORT;
+    }
+
+    /**
+     * Exports the whole collection, in the order of the movie list. The movies are read from a snapshot
+     * of the list, so the file holds the collection as it was when the export started, and the list can
+     * be edited while it is written
+     *
+     * @param output The file to write
+     * @param format The format to write
+     * @return the number of movies written
+     */
+    public long exportAll(File output, Format format) throws IOException {
+        return export(movieList.snapshot(), output, format, "in the collection");
+    }
+
+    /**
+     * Exports the result of a query
+     *
+     * @param query       The query to run
+     * @param output      The file to write
+     * @param format      The format to write
+     * @param description What the movies are, for the heading of a report. For example "for the Year 1999"
+     * @return the number of movies written
+     */
+    public long export(MovieQuery query, File output, Format format, String description) throws IOException {
+        return export(query.list(), output, format, description);
+    }
+
+    /**
+     * Exports a list of movies
+     *
+     * @param movies      The movies, such as a query result
+     * @param output      The file to write
+     * @param format      The format to write
+     * @param description What the movies are, for the heading of a report
+     * @return the number of movies written
+     */
+    public static long export(List<Movie> movies, File output, Format format, String description)
+            throws IOException {
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(output.toPath()), StandardCharsets.UTF_8),
+                BUFFER_SIZE)) {
+            return write(movies, writer, format, description);
+        }
+    }
+
+    /**
+     * Writes a list of movies to a writer, one movie at a time. The writer is not closed
+     *
+     * @param movies      The movies, such as a query result
+     * @param writer      Where to write them. Should be buffered
+     * @param format      The format to write
+     * @param description What the movies are, for the heading of a report
+     * @return the number of movies written
+     */
+    public static long write(List<Movie> movies, Writer writer, Format format, String description)
+            throws IOException {
+        if (format == Format.REPORT) {
+            writeReportHeading(movies.size(), description, writer);
+        } else {
+            writeHeader(writer, format);
+        }
+
+        long written = 0;
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            if (movie == null) {
+                // Removed from the movie list since the result was taken
+                continue;
+            }
+            written++;
+            if (format == Format.REPORT) {
+                writeReportMovie(written, movie, writer);
+            } else {
+                writeMovie(movie, writer, format);
+            }
+        }
+        if (format == Format.REPORT) {
+            writer.write('\n');
+        }
+        writer.flush();
+        return written;
+    }
+
+    /**
+     * Writes the header line of a CSV or TSV file. JSON Lines files have none
+     *
+     * @param writer Where to write the header
+     * @param format CSV, TSV or JSON_LINES
+     */
+    static void writeHeader(Writer writer, Format format) throws IOException {
+        if (format == Format.CSV) {
+            writer.write("title,director,genre,year\n");
+        } else if (format == Format.TSV) {
+            writer.write("title\tdirector\tgenre\tyear\n");
+        }
+    }
+
+    /**
+     * Writes the heading of a report, for writers that build a report one movie at a time, such as the
+     * Reports window
+     *
+     * @param count       The number of movies in the report
+     * @param description What the movies are, for example "for the Year 1999"
+     * @param writer      Where to write the heading
+     */
+    static void writeReportHeading(int count, String description, Writer writer) throws IOException {
+        writer.write("There are " + count + " movies " + description);
+        writer.write("\nThese movies are: ");
+    }
+
+    /**
+     * Writes a movie as an entry of a report
+     *
+     * @param number The number of the movie in the report, starting at 1
+     * @param movie  The movie
+     * @param writer Where to write it
+     */
+    static void writeReportMovie(long number, Movie movie, Writer writer) throws IOException {
+        writer.write("\n\tMovie " + number + "\n" + movie);
+    }
+
+    /**
+     * Writes a movie as a line of a CSV, TSV or JSON Lines file, for writers that stream movies one at a
+     * time, such as CatalogueGenerator
+     *
+     * @param movie  The movie
+     * @param writer Where to write it
+     * @param format CSV, TSV or JSON_LINES
+     */
+    static void writeMovie(Movie movie, Writer writer, Format format) throws IOException {
+        switch (format) {
+            case CSV:
+                writeCsv(movie, writer);
+                break;
+            case TSV:
+                writeTsv(movie, writer);
+                break;
+            case JSON_LINES:
+                writeJson(movie, writer);
+                break;
+            default:
+                throw new IllegalArgumentException(format + " is not a line based format");
+        }
+    }
+
+    /**
+     * Writes the number of movies per genre, year and director as a JSON object followed by a line break,
+     * for example {"movies":3,"genre":{"DRAMA":2,"COMEDY":1},...}. The counts are all taken at once, so
+     * they add up even while the list is being edited
+     *
+     * @param movieList The movie list to count
+     * @param only      The only attribute to count, or null to count all of them
+     * @param writer    Where to write the counts. It is flushed but not closed
+     */
+    static void writeStats(MovieList movieList, Movie.FILTER only, Writer writer) throws IOException {
+        Map<Movie.FILTER, Map<String, Integer>> counts = new EnumMap<>(Movie.FILTER.class);
+        int size;
+        synchronized (movieList) {
+            size = movieList.get_movies().size();
+            for (Movie.FILTER filter : Movie.FILTER.values()) {
+                if (only == null || filter == only) {
+                    counts.put(filter, movieList.valueCounts(filter));
+                }
+            }
+        }
+
+        writer.write("{\"movies\":" + size);
+        for (Map.Entry<Movie.FILTER, Map<String, Integer>> attribute : counts.entrySet()) {
+            writer.write(",\"" + attribute.getKey().toString().toLowerCase(Locale.ROOT) + "\":{");
+            boolean first = true;
+            for (Map.Entry<String, Integer> count : attribute.getValue().entrySet()) {
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                writeJsonValue(count.getKey(), writer);
+                writer.write(":" + count.getValue());
+            }
+            writer.write('}');
+        }
+        writer.write("}\n");
+        writer.flush();
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static void writeCsv(Movie movie, Writer writer) throws IOException {
+        writeCsvValue(movie.getTitle(), writer);
+        writer.write(',');
+        writeCsvValue(movie.getDirector(), writer);
+        writer.write(',');
+        writer.write(movie.getGenre() == null ? "" : movie.getGenre().name());
+        writer.write(',');
+        writer.write(Integer.toString(movie.getYear()));
+        writer.write('\n');
+    }
+
+    /**
+     * Quotes a value if it holds a comma, a quote or a line break, doubling any quotes inside it
+     */
+    private static void writeCsvValue(String value, Writer writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeTsv(Movie movie, Writer writer) throws IOException {
+        writeTsvValue(movie.getTitle(), writer);
+        writer.write('\t');
+        writeTsvValue(movie.getDirector(), writer);
+        writer.write('\t');
+        writer.write(movie.getGenre() == null ? "" : movie.getGenre().name());
+        writer.write('\t');
+        writer.write(Integer.toString(movie.getYear()));
+        writer.write('\n');
+    }
+
+    private static void writeTsvValue(String value, Writer writer) throws IOException {
+        if (value != null) {
+            writer.write(value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+        }
+    }
+
+    private static void writeJson(Movie movie, Writer writer) throws IOException {
+        writer.write("{\"title\":");
+        writeJsonValue(movie.getTitle(), writer);
+        writer.write(",\"director\":");
+        writeJsonValue(movie.getDirector(), writer);
+        writer.write(",\"genre\":");
+        writeJsonValue(movie.getGenre() == null ? null : movie.getGenre().name(), writer);
+        writer.write(",\"year\":");
+        writer.write(Integer.toString(movie.getYear()));
+        writer.write("}\n");
+    }
+
+    /**
+     * Writes a value as a JSON string, escaping it as needed, or as null
+     */
+    static void writeJsonValue(String value, Writer writer) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                    break;
+            }
+        }
+        writer.write('"');
+    }
+}
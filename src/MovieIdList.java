@@ -0,0 +1,252 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javafx.collections.ObservableListBase;
+
+/**
+ * Observable list of movie ids backing the movie list view. The view shows the movies of a query
+ * result by id, and the cells look the titles up in the movie list, so no titles are copied.
+ *
+ * Replacing the ids with a new result does not clear and refill the list. The two results are compared
+ * and only the part that differs is reported to the view, as a single add, remove, permutation or
+ * replace change. Flipping the sort order or narrowing a search therefore only costs as much as the
+ * range of rows that actually moved.
+ *
+ * Movies that were added, edited or deleted are taken out and put back in place by id instead, so the
+ * query does not have to run again for every change.
+ *
+ * @author Feras Yahya
+ */
+public class MovieIdList extends ObservableListBase<Integer> {
+
+    /**
+     * Fields
+     */
+    private int[] ids = new int[0];
+
+    /**
+     * Public Methods
+     */
+
+    @Override
+    public Integer get(int index) {
+        return ids[index];
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Replaces the ids in the list, reporting only the rows that changed
+     *
+     * @param newIds The ids to display, in display order. Each id appears at most once
+     */
+    public void setIds(int[] newIds) {
+        int[] oldIds = ids;
+
+        // Skip the rows that are the same at the start and at the end of both lists
+        int start = 0;
+        while (start < oldIds.length && start < newIds.length && oldIds[start] == newIds[start]) {
+            start++;
+        }
+        int oldEnd = oldIds.length;
+        int newEnd = newIds.length;
+        while (oldEnd > start && newEnd > start && oldIds[oldEnd - 1] == newIds[newEnd - 1]) {
+            oldEnd--;
+            newEnd--;
+        }
+        if (start == oldEnd && start == newEnd) {
+            return;
+        }
+
+        ids = newIds.clone();
+        beginChange();
+        try {
+            if (start == oldEnd) {
+                nextAdd(start, newEnd);
+            } else if (start == newEnd) {
+                nextRemove(start, boxed(oldIds, start, oldEnd));
+            } else if (!permute(oldIds, newIds, start, oldEnd, newEnd)
+                    && !removeMissing(oldIds, newIds, start, oldEnd, newEnd)
+                    && !addMissing(oldIds, newIds, start, oldEnd, newEnd)) {
+                nextReplace(start, newEnd, boxed(oldIds, start, oldEnd));
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Takes movies out of the list in one pass, reporting each removed row
+     *
+     * @param removed The ids to remove. Ids that are not in the list are ignored
+     */
+    public void removeIds(BitSet removed) {
+        int[] oldIds = ids;
+        int[] newIds = new int[oldIds.length];
+        int count = 0;
+        for (int id : oldIds) {
+            if (!removed.get(id)) {
+                newIds[count++] = id;
+            }
+        }
+        if (count == oldIds.length) {
+            return;
+        }
+        ids = Arrays.copyOf(newIds, count);
+        beginChange();
+        try {
+            // Positions are in the list as it is after the removals reported before them
+            int position = 0;
+            for (int id : oldIds) {
+                if (removed.get(id)) {
+                    nextRemove(position, Integer.valueOf(id));
+                } else {
+                    position++;
+                }
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Inserts movies where they belong in a list that is already in display order. The new ids are
+     * sorted among themselves and merged into the list in one pass, reporting each added row
+     *
+     * @param added The ids to insert, none of which may be in the list already
+     * @param order The display order of the list
+     */
+    public void insertIds(int[] added, Comparator<Integer> order) {
+        if (added.length == 0) {
+            return;
+        }
+        Integer[] sorted = new Integer[added.length];
+        for (int i = 0; i < added.length; i++) {
+            sorted[i] = added[i];
+        }
+        Arrays.sort(sorted, order);
+
+        int[] oldIds = ids;
+        int[] newIds = new int[oldIds.length + sorted.length];
+        int[] addedAt = new int[sorted.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (j < sorted.length) {
+            if (i < oldIds.length && order.compare(oldIds[i], sorted[j]) <= 0) {
+                newIds[k++] = oldIds[i++];
+            } else {
+                addedAt[j] = k;
+                newIds[k++] = sorted[j++];
+            }
+        }
+        System.arraycopy(oldIds, i, newIds, k, oldIds.length - i);
+        ids = newIds;
+        beginChange();
+        try {
+            for (int position : addedAt) {
+                nextAdd(position, position + 1);
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Reports the changed range as a permutation if it holds the same ids in a different order
+     */
+    private boolean permute(int[] oldIds, int[] newIds, int start, int oldEnd, int newEnd) {
+        if (oldEnd != newEnd) {
+            return false;
+        }
+        Map<Integer, Integer> newPositions = new HashMap<>((newEnd - start) * 4 / 3 + 1);
+        for (int i = start; i < newEnd; i++) {
+            newPositions.put(newIds[i], i);
+        }
+        int[] permutation = new int[oldEnd - start];
+        for (int i = start; i < oldEnd; i++) {
+            Integer position = newPositions.get(oldIds[i]);
+            if (position == null) {
+                return false;
+            }
+            permutation[i - start] = position;
+        }
+        nextPermutation(start, oldEnd, permutation);
+        return true;
+    }
+
+    /**
+     * Reports the changed range as removals if the new ids are the old ids with some left out
+     */
+    private boolean removeMissing(int[] oldIds, int[] newIds, int start, int oldEnd, int newEnd) {
+        if (!isSubsequence(newIds, start, newEnd, oldIds, start, oldEnd)) {
+            return false;
+        }
+        // Positions are in the list as it is after the removals reported before them
+        int position = start;
+        int next = start;
+        for (int i = start; i < oldEnd; i++) {
+            if (next < newEnd && oldIds[i] == newIds[next]) {
+                next++;
+                position++;
+            } else {
+                nextRemove(position, Integer.valueOf(oldIds[i]));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reports the changed range as additions if the old ids are the new ids with some left out
+     */
+    private boolean addMissing(int[] oldIds, int[] newIds, int start, int oldEnd, int newEnd) {
+        if (!isSubsequence(oldIds, start, oldEnd, newIds, start, newEnd)) {
+            return false;
+        }
+        int next = start;
+        for (int i = start; i < newEnd; i++) {
+            if (next < oldEnd && newIds[i] == oldIds[next]) {
+                next++;
+            } else {
+                nextAdd(i, i + 1);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the first range appears, in the same order, within the second range
+     */
+    private static boolean isSubsequence(int[] part, int partFrom, int partTo, int[] whole, int wholeFrom,
+            int wholeTo) {
+        if (partTo - partFrom > wholeTo - wholeFrom) {
+            return false;
+        }
+        int next = partFrom;
+        for (int i = wholeFrom; i < wholeTo && next < partTo; i++) {
+            if (whole[i] == part[next]) {
+                next++;
+            }
+        }
+        return next == partTo;
+    }
+
+    private static List<Integer> boxed(int[] ids, int from, int to) {
+        List<Integer> list = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add(ids[i]);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,654 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Year;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports movies in bulk from a CSV, TSV or JSON Lines file.
+ *
+ * The file is streamed: rows are read in chunks, and each chunk is parsed and validated on a pool of
+ * worker threads while the next chunks are being read. The parsed chunks are then taken in file order,
+ * checked for duplicates (against the collection, through its title index, and against the rows imported
+ * before them) and added to the movie list one chunk at a time. Only a few chunks are in memory at once,
+ * whatever the size of the file. The movie list is saved once, as a single snapshot, when the import is
+ * done.
+ *
+ * Rows that cannot be imported (a missing field, an unknown genre, an invalid year, a malformed line)
+ * are written to a reject file along with their line number and the reason.
+ *
+ * CSV and TSV files may start with a header row naming the columns (title, director, genre, year, in
+ * any order). Without a header the columns are expected in that order. JSON Lines files hold one
+ * object per line with the same keys.
+ *
+ * @author Feras Yahya
+ */
+public class MovieImporter {
+
+    /**
+     * Supported file formats
+     */
+    public enum Format {CSV, TSV, JSON_LINES};
+
+    /**
+     * Fields
+     */
+    private final MovieList movieList;
+    private final int chunkSize;
+    private final int threads;
+
+    public static final int MIN_YEAR = 1888;
+
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+    // Longest CSV row, in characters, that a quoted value may stretch over several lines
+    private static final int MAX_ROW_LENGTH = 1 << 16;
+    private static final String[] DEFAULT_COLUMNS = {"title", "director", "genre", "year"};
+
+    /**
+     * Parameterized constructor
+     *
+     * @param movieList The movie list to import into
+     */
+    public MovieImporter(MovieList movieList) {
+        this(movieList, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Parameterized constructor
+     *
+     * @param movieList The movie list to import into
+     * @param chunkSize The number of rows parsed together by a worker thread
+     * @param threads   The number of worker threads
+     */
+    public MovieImporter(MovieList movieList, int chunkSize, int threads) {
+        this.movieList = movieList;
+        this.chunkSize = chunkSize;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     *
+     * @param file The file to import
+     * @return the format matching the file's extension: .tsv, .jsonl or .ndjson, and CSV otherwise
+     */
+    public static Format formatOf(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".tsv") || name.endsWith(".tab")) {
+            return Format.TSV;
+        } else if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            return Format.JSON_LINES;
+        }
+        return Format.CSV;
+    }
+
+    /**
+     * Imports a file, guessing its format from its extension
+     *
+     * @param input   The file to import
+     * @param rejects The file the rejected rows are written to
+     * @return the number of rows read, imported and rejected
+     */
+    public Result importFile(File input, File rejects) throws IOException {
+        return importFile(input, formatOf(input), rejects);
+    }
+
+    /**
+     * Imports a file
+     *
+     * @param input   The file to import
+     * @param format  The format of the file
+     * @param rejects The file the rejected rows are written to
+     * @return the number of rows read, imported and rejected
+     */
+    public Result importFile(File input, Format format, File rejects) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "movie-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Parsed chunks waiting to be added, in file order. Bounded so a huge file is never all in memory
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+
+        movieList.beginBulkUpdate();
+        try (BufferedReader reader = Files.newBufferedReader(input.toPath(), StandardCharsets.UTF_8);
+                BufferedWriter rejectWriter = Files.newBufferedWriter(rejects.toPath(), StandardCharsets.UTF_8)) {
+            String[] columns = DEFAULT_COLUMNS;
+            List<String> rows = new ArrayList<>(chunkSize);
+            long firstLine = 1;
+            long lineNumber = 0;
+            String row;
+            while ((row = readRow(reader, format)) != null) {
+                long rowLine = lineNumber + 1;
+                lineNumber += countLines(row);
+                if (rowLine == 1 && format != Format.JSON_LINES && isHeader(row, format)) {
+                    columns = split(row, format);
+                    firstLine = lineNumber + 1;
+                    continue;
+                }
+                if (rows.isEmpty()) {
+                    firstLine = rowLine;
+                }
+                rows.add(row);
+                if (rows.size() == chunkSize) {
+                    inFlight.add(workers.submit(parseTask(rows, firstLine, format, columns)));
+                    rows = new ArrayList<>(chunkSize);
+                    if (inFlight.size() >= threads * 2) {
+                        addChunk(inFlight.poll(), rejectWriter, result);
+                    }
+                }
+            }
+            if (!rows.isEmpty()) {
+                inFlight.add(workers.submit(parseTask(rows, firstLine, format, columns)));
+            }
+            while (!inFlight.isEmpty()) {
+                addChunk(inFlight.poll(), rejectWriter, result);
+            }
+        } finally {
+            workers.shutdownNow();
+            // Saves the imported movies as one snapshot
+            movieList.endBulkUpdate();
+        }
+
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Reads a movie from a JSON object with the keys of a JSON Lines file (title, director, genre, year),
+     * validated as an imported row is
+     *
+     * @param json The JSON object
+     * @return the movie
+     * @throws IllegalArgumentException if the object cannot be read or a value is missing or invalid. The
+     *                                  message says why
+     */
+    static Movie parseMovie(String json) {
+        return toMovie(parseJson(json, DEFAULT_COLUMNS), DEFAULT_COLUMNS);
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private Callable<Chunk> parseTask(List<String> rows, long firstLine, Format format, String[] columns) {
+        return () -> parse(rows, firstLine, format, columns);
+    }
+
+    /**
+     * Parses and validates a chunk of rows. Runs on a worker thread
+     */
+    private static Chunk parse(List<String> rows, long firstLine, Format format, String[] columns) {
+        Chunk chunk = new Chunk();
+        long line = firstLine;
+        for (String row : rows) {
+            try {
+                if (!row.trim().isEmpty()) {
+                    chunk.movies.add(toMovie(format == Format.JSON_LINES ? parseJson(row, columns) : split(row, format),
+                            columns));
+                }
+            } catch (IllegalArgumentException e) {
+                chunk.rejects.add(line + "\t" + e.getMessage() + "\t" + row.replace('\n', ' '));
+            }
+            line += countLines(row);
+        }
+        chunk.rows = rows.size();
+        return chunk;
+    }
+
+    /**
+     * Drops the duplicates of a parsed chunk and adds the rest to the movie list. Runs on the importing
+     * thread, so chunks are added in file order. Rows of earlier chunks are in the movie list by then, so
+     * each row is only checked against the movie list and the rows before it in its own chunk
+     */
+    private void addChunk(Future<Chunk> future, BufferedWriter rejectWriter, Result result)
+            throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not parse the file", e.getCause());
+        }
+
+        List<Movie> batch = new ArrayList<>(chunk.movies.size());
+        Set<String> seen = new HashSet<>();
+        // Locked so no movie can be added between checking the chunk and adding it
+        synchronized (movieList) {
+            for (Movie movie : chunk.movies) {
+                if (seen.add(key(movie)) && !isInCollection(movie)) {
+                    batch.add(movie);
+                } else {
+                    result.duplicates++;
+                }
+            }
+            movieList.addMovies(batch);
+        }
+
+        for (String reject : chunk.rejects) {
+            rejectWriter.write(reject);
+            rejectWriter.newLine();
+        }
+        result.rows += chunk.rows;
+        result.imported += batch.size();
+        result.rejected += chunk.rejects.size();
+    }
+
+    /**
+     * Builds a movie from the values of a row, in the order of the columns
+     *
+     * @throws IllegalArgumentException if a value is missing or invalid. The message says why
+     */
+    private static Movie toMovie(String[] values, String[] columns) {
+        String title = null;
+        String director = null;
+        String genre = null;
+        String year = null;
+        for (int i = 0; i < columns.length && i < values.length; i++) {
+            switch (columns[i].trim().toLowerCase(Locale.ROOT)) {
+                case "title":
+                    title = values[i];
+                    break;
+                case "director":
+                    director = values[i];
+                    break;
+                case "genre":
+                    genre = values[i];
+                    break;
+                case "year":
+                    year = values[i];
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (title == null || title.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing title");
+        }
+        if (director == null || director.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing director");
+        }
+        return new Movie(title.trim(), director.trim(), parseGenre(genre), parseYear(year));
+    }
+
+    private static Movie.Genre parseGenre(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing genre");
+        }
+        // Accept the names as they are usually written, for example "Science Fiction" or "sci-fi"
+        String name = value.trim().toUpperCase(Locale.ROOT).replace(' ', '_').replace('-', '_');
+        if (name.equals("SCI_FI")) {
+            return Movie.Genre.SCIENCE_FICTION;
+        }
+        try {
+            return Movie.Genre.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown genre \"" + value + "\"");
+        }
+    }
+
+    private static int parseYear(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing year");
+        }
+        int year;
+        try {
+            year = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid year \"" + value + "\"");
+        }
+        if (year < MIN_YEAR || year > Year.now().getValue() + 10) {
+            throw new IllegalArgumentException("Year out of range " + year);
+        }
+        return year;
+    }
+
+    /**
+     * Two movies are duplicates if they have the same title and year and the same director, ignoring the
+     * director's case. Titles are compared as written, as the movie list's title index does
+     */
+    private static String key(Movie movie) {
+        return movie.getTitle() + '\u0000' + movie.getDirector().toLowerCase(Locale.ROOT) + '\u0000'
+                + movie.getYear();
+    }
+
+    /**
+     * Looks a movie up in the movie list's title index. The movie list must be locked
+     *
+     * @return true if the movie list already has a duplicate of the movie, see key
+     */
+    private boolean isInCollection(Movie movie) {
+        for (Movie existing : movieList.searchAllByTitle(movie.getTitle())) {
+            if (existing.getYear() == movie.getYear() && movie.getDirector().equalsIgnoreCase(existing.getDirector())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the next row. A quoted CSV value may span several lines, which are joined into one row. If
+     * the quote is still open after MAX_ROW_LENGTH characters or at the end of the file, it is taken to
+     * be a mistake: the first line is returned on its own, to be rejected, and reading goes on from the
+     * line after it
+     */
+    private static String readRow(BufferedReader reader, Format format) throws IOException {
+        String line = reader.readLine();
+        if (line == null || format != Format.CSV) {
+            return line;
+        }
+        int quotes = countQuotes(line);
+        if (quotes % 2 == 0) {
+            return line;
+        }
+
+        reader.mark(2 * MAX_ROW_LENGTH);
+        StringBuilder row = new StringBuilder(line);
+        String next;
+        while (row.length() <= MAX_ROW_LENGTH && (next = reader.readLine()) != null) {
+            row.append('\n').append(next);
+            quotes += countQuotes(next);
+            if (quotes % 2 == 0) {
+                return row.toString();
+            }
+        }
+        try {
+            reader.reset();
+            return line;
+        } catch (IOException e) {
+            // The last line read was too long to go back over, so the whole row is rejected instead
+            return row.toString();
+        }
+    }
+
+    private static int countQuotes(String text) {
+        int quotes = 0;
+        for (int i = text.indexOf('"'); i >= 0; i = text.indexOf('"', i + 1)) {
+            quotes++;
+        }
+        return quotes;
+    }
+
+    private static int countLines(String row) {
+        int lines = 1;
+        for (int i = row.indexOf('\n'); i >= 0; i = row.indexOf('\n', i + 1)) {
+            lines++;
+        }
+        return lines;
+    }
+
+    private static boolean isHeader(String row, Format format) {
+        for (String value : split(row, format)) {
+            if (value.trim().equalsIgnoreCase("title")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits a CSV or TSV row into its values. CSV values may be quoted, with "" for a quote inside
+     */
+    private static String[] split(String row, Format format) {
+        if (format == Format.TSV) {
+            return row.split("\t", -1);
+        }
+        List<String> values = new ArrayList<>(4);
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < row.length() && row.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        values.add(value.toString());
+        return values.toArray(new String[0]);
+    }
+
+    /**
+     * Reads a flat JSON object into the values of the given keys. Values may be strings, numbers or null
+     */
+    private static String[] parseJson(String row, String[] keys) {
+        String[] values = new String[keys.length];
+        JsonReader json = new JsonReader(row);
+        json.expect('{');
+        if (!json.consume('}')) {
+            do {
+                String key = json.readString();
+                json.expect(':');
+                String value = json.readValue();
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i].equals(key)) {
+                        values[i] = value;
+                    }
+                }
+            } while (json.consume(','));
+            json.expect('}');
+        }
+        json.expectEnd();
+        return values;
+    }
+
+    /**
+     * Minimal reader for the flat JSON objects of a JSON Lines file
+     */
+    private static class JsonReader {
+
+        private final String text;
+        private int position;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("Malformed JSON, expected '" + c + "' at " + position);
+            }
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (position != text.length()) {
+                throw new IllegalArgumentException("Malformed JSON, unexpected text at " + position);
+            }
+        }
+
+        String readValue() {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == '"') {
+                return readString();
+            }
+            int start = position;
+            while (position < text.length() && ",}] \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("Malformed JSON, missing value at " + start);
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("Malformed JSON, bad escape at " + position);
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Malformed JSON, bad escape at " + position);
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                        break;
+                }
+            }
+            throw new IllegalArgumentException("Malformed JSON, unterminated string");
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+
+    /**
+     * The movies and rejected rows of a parsed chunk
+     */
+    private static class Chunk {
+        final List<Movie> movies = new ArrayList<>();
+        final List<String> rejects = new ArrayList<>();
+        int rows;
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static class Result {
+
+        private long rows;
+        private long imported;
+        private long duplicates;
+        private long rejected;
+        private long elapsedNanos;
+
+        /**
+         *
+         * @return the number of rows read, not counting a header row
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         *
+         * @return the number of movies added to the movie list
+         */
+        public long getImported() {
+            return imported;
+        }
+
+        /**
+         *
+         * @return the number of rows skipped because the movie was already in the collection or the file
+         */
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         *
+         * @return the number of rows written to the reject file
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         *
+         * @return how long the import took, in milliseconds, including saving the movie list
+         */
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+
+        /**
+         *
+         * @return the number of rows processed per second
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows, %d imported, %d duplicates, %d rejected in %.0f ms (%.0f rows/s)", rows,
+                    imported, duplicates, rejected, getElapsedMillis(), getRowsPerSecond());
+        }
+    }
+}
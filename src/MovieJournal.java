@@ -0,0 +1,369 @@
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only change journal that lives next to a movie list's data file. Every add, edit and delete
+ * is appended as a small record instead of rewriting the whole movie list. When the movie list is
+ * loaded, the journal is replayed on top of the last snapshot.
+ *
+ * The journal starts with a header that holds the generation of the snapshot it belongs to. A journal
+ * whose generation does not match the snapshot has already been folded into that snapshot by a
+ * checkpoint and is ignored.
+ *
+ * Each record is framed by its length and followed by a CRC32 of its content, and strings are written as
+ * their length followed by their UTF-8 bytes. When the journal is replayed, every record is checked before
+ * it is applied, and a record that is damaged or does not fit the movies (for example an edit of a
+ * position past the end of the list) ends the replay like a partially written one.
+ *
+ * A batch of changes is appended as a group: the records are buffered and the journal is flushed and
+ * synced to disk once for the whole batch, so a burst of changes costs one disk sync instead of one each.
+ * The PersistenceWriter hands the journal its batches from a background thread.
+ *
+ * @author Feras Yahya
+ */
+public class MovieJournal implements MovieListListener {
+
+    /**
+     * Record types
+     */
+    private static final byte OP_ADD = 1;
+    private static final byte OP_EDIT = 2;
+    private static final byte OP_DELETE = 3;
+
+    private static final int MAGIC = 0x4D434A32; // "MCJ2"
+
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    // The smallest record is a delete: the operation and the position
+    private static final int MIN_RECORD_SIZE = Byte.BYTES + Integer.BYTES;
+
+    /**
+     * Fields
+     */
+    private File journalFile;
+    private DataOutputStream out;
+    private FileOutputStream file;
+    private int recordCount;
+    // What the last replay cut off the end of the journal, see getIgnoredBytes
+    private long ignoredBytes;
+    private String ignoredProblem;
+
+    // The record being appended, written to the journal once it is complete so its length and checksum
+    // can go in front of and after it
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Parameterized constructor
+     *
+     * @param filename The data file of the movie list. The journal is stored next to it with a
+     *                 .journal extension
+     */
+    public MovieJournal(String filename) {
+        this.journalFile = new File(filename + ".journal");
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Replays the journal over the movies read from the snapshot. If the journal belongs to a different
+     * generation, or does not exist, a fresh journal is started for the given generation. A record that
+     * was only partially written (for example if the application was killed mid write), or that is
+     * damaged or does not apply to the movies, ends the replay. It is cut off the end of the file along
+     * with everything after it; getIgnoredBytes() and getIgnoredProblem() tell what was cut off.
+     *
+     * @param movies     The movies read from the last snapshot
+     * @param generation The generation of the last snapshot
+     * @return the number of records that were replayed
+     */
+    public int replay(List<Movie> movies, long generation) {
+        recordCount = 0;
+        ignoredBytes = 0;
+        ignoredProblem = null;
+        long validLength = 0;
+        long fileLength = journalFile.length();
+        String problem = null;
+
+        if (journalFile.exists()) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(journalFile)))) {
+                if (in.readInt() == MAGIC && in.readLong() == generation) {
+                    validLength = HEADER_SIZE;
+                    while (problem == null && validLength < fileLength) {
+                        // Each record is its length, its content and the checksum of its content
+                        long available = fileLength - validLength - 2 * Integer.BYTES;
+                        int length = available < 0 ? 0 : in.readInt();
+                        if (available < 0 || length > available) {
+                            problem = "partially written record";
+                        } else if (length < MIN_RECORD_SIZE) {
+                            problem = "invalid record length " + length;
+                        } else {
+                            byte[] bytes = new byte[length];
+                            in.readFully(bytes);
+                            if (in.readInt() != checksum(bytes)) {
+                                problem = "record does not match its checksum";
+                            } else {
+                                problem = applyRecord(ByteBuffer.wrap(bytes), movies);
+                            }
+                        }
+                        if (problem == null) {
+                            validLength += 2 * Integer.BYTES + length;
+                            recordCount++;
+                        }
+                    }
+                }
+            } catch (EOFException e) {
+                // A journal too short to hold its header
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (problem != null) {
+            ignoredBytes = fileLength - validLength;
+            ignoredProblem = problem;
+        }
+
+        try {
+            if (validLength == 0) {
+                start(generation);
+            } else if (validLength < fileLength) {
+                // Cut off a partially written record so new records are appended after the last valid one
+                try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+                    raf.setLength(validLength);
+                }
+                open();
+            } else {
+                open();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return recordCount;
+    }
+
+    /**
+     * Appends a record for each change made to the movie list, then syncs the journal to disk once
+     *
+     * @param changes The changes, in the order they were made
+     */
+    @Override
+    public void moviesChanged(List<MovieChange> changes) {
+        for (MovieChange change : changes) {
+            switch (change.getType()) {
+                case ADDED:
+                    append(OP_ADD, -1, change.getMovie());
+                    break;
+                case UPDATED:
+                    append(OP_EDIT, change.getPosition(), change.getMovie());
+                    break;
+                case REMOVED:
+                default:
+                    append(OP_DELETE, change.getPosition(), null);
+                    break;
+            }
+        }
+        sync();
+    }
+
+    /**
+     *
+     * @return the number of records in the journal since the last checkpoint
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     *
+     * @return the number of bytes the last replay cut off the end of the journal, 0 if every record
+     *         was replayed
+     */
+    public long getIgnoredBytes() {
+        return ignoredBytes;
+    }
+
+    /**
+     *
+     * @return why the last replay stopped before the end of the journal, such as a partially written
+     *         record, or null if every record was replayed
+     */
+    public String getIgnoredProblem() {
+        return ignoredProblem;
+    }
+
+    /**
+     * Discards every record and starts an empty journal for a new snapshot generation. Called once the
+     * journal has been compacted into a new snapshot.
+     *
+     * @param generation The generation of the new snapshot
+     */
+    public void reset(long generation) {
+        close();
+        try {
+            start(generation);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes the journal file
+     */
+    public void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Nothing left to do with the stream
+            }
+            out = null;
+            file = null;
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void start(long generation) throws IOException {
+        try (DataOutputStream header = new DataOutputStream(new FileOutputStream(journalFile))) {
+            header.writeInt(MAGIC);
+            header.writeLong(generation);
+        }
+        recordCount = 0;
+        open();
+    }
+
+    private void open() throws IOException {
+        file = new FileOutputStream(journalFile, true);
+        out = new DataOutputStream(new BufferedOutputStream(file));
+    }
+
+    private void append(byte op, int index, Movie movie) {
+        if (out == null) {
+            return;
+        }
+        try {
+            recordBytes.reset();
+            record.writeByte(op);
+            record.writeInt(index);
+            if (movie != null) {
+                writeString(movie.getTitle());
+                writeString(movie.getDirector());
+                record.writeByte(movie.getGenre() == null ? -1 : movie.getGenre().ordinal());
+                record.writeInt(movie.getYear());
+            }
+            record.flush();
+            byte[] bytes = recordBytes.toByteArray();
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeInt(checksum(bytes));
+            recordCount++;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the buffered records to the file and waits until they are on disk
+     */
+    private void sync() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes a string as its length in UTF-8 bytes followed by the bytes. Unlike writeUTF, this has no
+     * length limit. Null is written as the length -1 with no bytes, so it is replayed as null
+     */
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            record.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        record.writeInt(bytes.length);
+        record.write(bytes);
+    }
+
+    private int checksum(byte[] bytes) {
+        crc.reset();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Applies a record to the movies, after checking that it can be
+     *
+     * @return null if the record was applied, otherwise what is wrong with it. The movies are unchanged
+     */
+    private static String applyRecord(ByteBuffer record, List<Movie> movies) {
+        try {
+            byte op = record.get();
+            int index = record.getInt();
+            if (op == OP_DELETE) {
+                if (index < 0 || index >= movies.size()) {
+                    return "deletes position " + index + " of " + movies.size() + " movies";
+                }
+                if (record.hasRemaining()) {
+                    return "unexpected bytes after a delete";
+                }
+                movies.remove(index);
+                return null;
+            }
+            if (op != OP_ADD && op != OP_EDIT) {
+                return "unknown record type " + op;
+            }
+
+            String title = readString(record);
+            String director = readString(record);
+            byte genre = record.get();
+            int year = record.getInt();
+            if (genre < -1 || genre >= Movie.Genre.values().length) {
+                return "unknown genre " + genre;
+            }
+            if (record.hasRemaining()) {
+                return "unexpected bytes after a movie";
+            }
+            Movie movie = new Movie(title, director, genre < 0 ? null : Movie.Genre.values()[genre], year);
+
+            if (op == OP_ADD) {
+                movies.add(movie);
+            } else if (index < 0 || index >= movies.size()) {
+                return "edits position " + index + " of " + movies.size() + " movies";
+            } else {
+                movies.set(index, movie);
+            }
+            return null;
+        } catch (BufferUnderflowException e) {
+            return "record too short";
+        }
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > record.remaining()) {
+            // Reported as a record too short to hold the string
+            throw new BufferUnderflowException();
+        }
+        String value = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+}
@@ -1,332 +1,1161 @@
-import java.io.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-
-/**
- * Movie class that defines the movie objects.
- *
- * @author Feras Yahya
- */
-public class MovieList {
-
-    /**
-     * Fields
-     */
-    private ArrayList<Movie> _movies;
-    private String filename;
-    private Movie _selectedMovie;
-
-    /**
-     * Default constructor
-     */
-    public MovieList() {
-        _movies = new ArrayList<>();
-    }
-
-    /**
-     * Parameterized constructor
-     * 
-     * @param filename The file in which the movie list information will be stored
-     *                 in
-     */
-    public MovieList(String filename) {
-        this.filename = filename;
-        _movies = new ArrayList<>();
-        readFromFile();
-    }
-
-    /**
-     * Public Methods
-     */
-
-    /**
-     * Adds a movie object to the movie array list
-     * 
-     * @param movie The movie to be added to the array list
-     */
-    public void addMovie(Movie movie) {
-        _movies.add(movie);
-    }
-
-    /**
-     * Sets the currently selected movie as the selected movie to be referenced in
-     * the edit menu.
-     * 
-     * @param selectedMovie The selected movie will be used to fill the text fields
-     *                      in the edit menu when user
-     *                      selects edit
-     */
-    public void setSelectedMovie(Movie selectedMovie) {
-        _selectedMovie = selectedMovie;
-    }
-
-    /**
-     * 
-     * @return the selected movie to be referenced in the edit menu
-     */
-
-    public Movie getSelectedMovie() {
-        return this._selectedMovie;
-    }
-
-    /**
-     * Copies the content of the source list to the current list
-     * 
-     * @param source The source movie list from which the content will be copied to
-     *               the list
-     */
-    public void copyList(MovieList source) {
-        _movies.addAll(source._movies);
-    }
-
-    /**
-     * 
-     * @return the array list movie object
-     */
-    public ArrayList<Movie> get_movies() {
-        return _movies;
-    }
-
-    /**
-     * If a movie list was created with a filename, the movie list will store the
-     * contents of its associated
-     * file. If no file exists, or file is empty, the movie list will save its
-     * content to the file, which will
-     * be used to update the list next time the application is launched
-     */
-    public void readFromFile() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            _movies = (ArrayList<Movie>) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            // Handle exceptions (e.g., file not found)
-        }
-    }
-
-    /**
-     * Saves the content of the array movie list to a data file. The list is stored
-     * as a single object
-     * on the file.
-     */
-    public void saveToFile() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(_movies);
-        } catch (IOException e) {
-            // Handle exception
-        }
-    }
-
-    /**
-     * Helper method that sorts the movie list based on the sort criteria and
-     * ascending/descending order
-     * 
-     * @param sortType  Type of the sort criteria. Possible criteria include Title,
-     *                  Director, Genre and Year
-     * @param ascending Sorts in ascending order if True, sorts in desceding order
-     *                  if false
-     */
-    public void sortBy(String sortType, Boolean ascending) {
-        switch (sortType) {
-            case "Title":
-                Collections.sort(_movies, new Comparator<Movie>() {
-                    @Override
-                    public int compare(Movie movie1, Movie movie2) {
-                        if (ascending) {
-                            return movie2.getTitle().compareTo(movie1.getTitle());
-                        } else {
-                            return movie1.getTitle().compareTo(movie2.getTitle());
-                        }
-                    }
-                });
-                break;
-
-            case "Year":
-                Collections.sort(_movies, new Comparator<Movie>() {
-                    @Override
-                    public int compare(Movie movie1, Movie movie2) {
-                        if (ascending) {
-                            return Integer.compare(movie2.getYear(), movie1.getYear());
-                        } else {
-                            return Integer.compare(movie1.getYear(), movie2.getYear());
-                        }
-
-                    }
-                });
-                break;
-
-            case "Genre":
-                Collections.sort(_movies, new Comparator<Movie>() {
-                    @Override
-                    public int compare(Movie movie1, Movie movie2) {
-                        if (ascending) {
-                            return movie2.getGenre().toString().compareTo(movie1.getGenre().toString());
-                        } else {
-                            return movie1.getGenre().toString().compareTo(movie2.getGenre().toString());
-                        }
-
-                    }
-                });
-                break;
-
-            case "Director":
-                Collections.sort(_movies, new Comparator<Movie>() {
-                    @Override
-                    public int compare(Movie movie1, Movie movie2) {
-                        if (ascending) {
-                            return movie2.getDirector().compareTo(movie1.getDirector());
-                        } else {
-                            return movie1.getDirector().compareTo(movie2.getDirector());
-                        }
-
-                    }
-                });
-                break;
-            default:
-                System.out.println("Inccorect sorting basis");
-                break;
-        }
-    }
-
-    /**
-     * Filters the movie list based on the filter type and value. This is a
-     * destructive method that changes
-     * the contents of the list
-     * 
-     * @param filterType Type of the filter criteria. Possible criteria include
-     *                   Director, Genre and Year
-     * @param filterVal  The specific filter value to search for. For example Year
-     *                   2023
-     */
-    public void filterBy(String filterType, String filterVal) {
-        Iterator<Movie> iterator = _movies.iterator();
-        while (iterator.hasNext()) {
-            Movie movie = iterator.next();
-            boolean shouldRemove = false;
-
-            switch (filterType) {
-                case "Director":
-                    shouldRemove = !movie.getDirector().equals(filterVal);
-                    break;
-                case "Year":
-                    shouldRemove = movie.getYear() != Integer.parseInt(filterVal);
-                    break;
-                case "Genre":
-                    shouldRemove = !(movie.getGenre() == Movie.Genre.valueOf(filterVal));
-                    break;
-                default:
-                    break;
-            }
-
-            if (shouldRemove) {
-                iterator.remove();
-            }
-        }
-    }
-
-    /**
-     * Prints a readable string representation of the total movies per genre that
-     * are currently stored in the movie list
-     * 
-     * @return a string representation of the total movies per genre in the movie
-     *         list
-     */
-    public String printMovieCountByGenre() {
-        Map<String, Integer> genreCountMap = new HashMap<>();
-        // Count the movies per genre
-        for (Movie movie : _movies) {
-            Movie.Genre genre = movie.getGenre();
-            genreCountMap.put(String.valueOf(genre), genreCountMap.getOrDefault(String.valueOf(genre), 0) + 1);
-        }
-
-        // Print the movie count per genre
-        StringBuilder result = new StringBuilder();
-        for (Map.Entry<String, Integer> entry : genreCountMap.entrySet()) {
-            String genre = entry.getKey();
-            int count = entry.getValue();
-            result.append(String.valueOf(genre)).append(": ").append(count).append(" movies\n");
-            // System.out.println(genre + ": " + count);
-        }
-
-        return result.toString();
-    }
-
-    /**
-     * Prints a readable string representation of the total movies per year that are
-     * currently stored in the movie list
-     * 
-     * @return a string representation of the total movies per year in the movie
-     *         list
-     */
-    public String printMovieCountByYear() {
-        Map<String, Integer> yearCountMap = new HashMap<>();
-        // Count the movies per genre
-        for (Movie movie : _movies) {
-            int year = movie.getYear();
-            yearCountMap.put(String.valueOf(year), yearCountMap.getOrDefault(String.valueOf(year), 0) + 1);
-        }
-
-        // Print the movie count per genre
-        StringBuilder result = new StringBuilder();
-        for (Map.Entry<String, Integer> entry : yearCountMap.entrySet()) {
-            String genre = entry.getKey();
-            int count = entry.getValue();
-            result.append(String.valueOf(genre)).append(": ").append(count).append(" movies\n");
-            // System.out.println(genre + ": " + count);
-        }
-
-        return result.toString();
-    }
-
-    /**
-     * Prints a readable string representation of the total movies per director that are
-     * currently stored in the movie list
-     * 
-     * @return a string representation of the total movies per director in the movie
-     *         list
-     */
-    public String printMovieCountByDirector() {
-        Map<String, Integer> directorCountMap = new HashMap<>();
-        // Count the movies per genre
-        for (Movie movie : _movies) {
-            directorCountMap.put(movie.getDirector(), directorCountMap.getOrDefault(movie.getDirector(), 0) + 1);
-        }
-
-        // Print the movie count per genre
-        StringBuilder result = new StringBuilder();
-        for (Map.Entry<String, Integer> entry : directorCountMap.entrySet()) {
-            String director = entry.getKey();
-            int count = entry.getValue();
-            result.append(String.valueOf(director)).append(": ").append(count).append(" movies\n");
-            // System.out.println(genre + ": " + count);
-        }
-
-        return result.toString();
-    }
-
-    /**
-     * Searchs for a specific movie in the movie list based on the movie's title
-     * Returns null if no matching result is found
-     * 
-     * @param movieTitle the title of the movie to seach for
-     * @return associated movie object with the title. Returns null if no matching
-     *         movie object is found
-     */
-    public Movie searchByTitle(String movieTitle) {
-        for (Movie movie : _movies) {
-            if (movieTitle == movie.getTitle()) {
-                return movie;
-            }
-        }
-        return null;
-    }
-
-}
-
-// public void printMovies() {
-// for (Movie movie : _movies) {
-// System.out.println(movie.getTitle() + " year: " + movie.getYear());
-// }
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * Movie class that defines the movie objects.
+ * 
+ * Adding, editing, removing and searching movies is synchronized, so a list can be searched from a
+ * background thread (see SearchExecutor) while the UI changes it.
+ *
+ * Every change goes through the list, which publishes it as MovieChange events to its listeners. The
+ * indexes and the change journal are listeners themselves, and the main window subscribes to refresh
+ * its view. The batch methods (addMovies, updateMovies, removeMovies) publish their changes together.
+ *
+ * @author Feras Yahya
+ */
+public class MovieList {
+
+    /**
+     * Fields
+     */
+    private List<Movie> _movies;
+    private String filename;
+    private Movie _selectedMovie;
+    private PersistenceWriter _writer;
+    private boolean _columnar;
+    private long _generation;
+    // The data file, while the list reads its movies from the file's mapping
+    private MovieSnapshot _mapped;
+    private final List<MovieListListener> _listeners = new CopyOnWriteArrayList<>();
+
+    // Goes up with every change. Snapshots of the list are taken from the frozen copies in _versions
+    private long _version;
+    private final MovieVersions _versions = new MovieVersions();
+    // The snapshot of the current version once one was taken, so readers get it without the lock.
+    // Cleared whenever the version goes up or the frozen copies are reset
+    private volatile MovieListSnapshot _published;
+
+    /*
+     * Indexes. They are built the first time they are needed, so a list that is never searched never
+     * pays for them, and are kept up to date by addMovie, updateMovie and removeMovie from then on.
+     *
+     * Until then a movie's id is its position in the list, given to the movie when it is first looked up
+     * or added (see positionalIds). Loading a file therefore decodes nothing, and displaying the list only
+     * decodes the movies that are looked up. Removing a movie shifts the positions, so the indexes are
+     * built before the first removal.
+     */
+    private boolean _indexed;
+    // Set once every movie has been given its positional id, so snapshots are taken with the ids
+    private boolean _idsAssigned;
+    private Movie[] _byId = new Movie[0];
+    private int _nextId;
+    private Map<String, List<Movie>> _titleIndex;
+    // The title each movie is indexed under, so an edited movie can be found under its old title
+    private String[] _indexedTitles = new String[0];
+    // The position of each movie in the list when it was last looked up or added. Removing movies and
+    // sorting move them, so a position is checked before it is used, see positionOf
+    private int[] _positions = new int[0];
+    private AttributeIndex _attributeIndex;
+    private MovieStats _stats;
+    private SortIndex _sortIndex;
+    // Only built once the list is searched by substring, as it is the most expensive index to build
+    private TrigramIndex _trigramIndex;
+
+    // The list whose indexes are used by a list that holds a selection of another list's movies
+    private MovieList _indexSource;
+
+    // Changes are saved in the background, this long after the first unsaved change or once this many
+    // changes are waiting
+    private static final long SAVE_DELAY_MILLIS = 200;
+    private static final int SAVE_BATCH_SIZE = 500;
+
+    // Number of movies from which sorting and counting are split across the fork/join pool
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+    private int _parallelThreshold = PARALLEL_THRESHOLD;
+
+    /**
+     * Default constructor
+     */
+    public MovieList() {
+        _movies = new ArrayList<>();
+        _listeners.add(this::updateIndexes);
+        _listeners.add(_versions);
+    }
+
+    /**
+     * Creates an empty list that will hold movies taken from another list, for example to filter or
+     * sort them without changing the other list. Filtering uses the other list's indexes.
+     * 
+     * @param indexSource The list the movies are taken from
+     */
+    public MovieList(MovieList indexSource) {
+        _movies = new ArrayList<>();
+        _indexSource = indexSource;
+        _listeners.add(this::updateIndexes);
+        _listeners.add(_versions);
+    }
+
+    /**
+     * Creates a list that keeps its movies in a column oriented MovieStore instead of an ArrayList. The
+     * list works the same way with either backend. Movies added to it are copied into the store, so the
+     * list holds the store's views of them rather than the objects that were added
+     * 
+     * @param store The store holding the list's movies, which may already hold some
+     */
+    public MovieList(MovieStore store) {
+        _movies = store;
+        _listeners.add(this::updateIndexes);
+        _listeners.add(_versions);
+    }
+
+    /**
+     * Parameterized constructor
+     * 
+     * @param filename The file in which the movie list information will be stored
+     *                 in
+     */
+    public MovieList(String filename) {
+        this(filename, false);
+    }
+
+    /**
+     * Parameterized constructor
+     * 
+     * @param filename The file in which the movie list information will be stored
+     *                 in
+     * @param columnar Keeps the movies in a MovieStore instead of an ArrayList
+     */
+    public MovieList(String filename, boolean columnar) {
+        this.filename = filename;
+        _columnar = columnar;
+        _movies = new ArrayList<>();
+        _listeners.add(this::updateIndexes);
+        _listeners.add(_versions);
+        readFromFile();
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Adds a movie object to the movie array list. If the list is backed by a file, the addition is
+     * recorded in the change journal.
+     * 
+     * @param movie The movie to be added to the array list
+     */
+    public void addMovie(Movie movie) {
+        addMovies(Collections.singletonList(movie));
+    }
+
+    /**
+     * Adds a movie to the end of the list and returns the id it was given
+     * 
+     * @param movie The movie to be added
+     * @return the id of the movie in the list, see Movie.getId()
+     */
+    public synchronized int addMovieWithId(Movie movie) {
+        addMovie(movie);
+        return _movies.get(_movies.size() - 1).getId();
+    }
+
+    /**
+     * Adds several movies to the end of the list. The additions are published as a single batch
+     * 
+     * @param movies The movies to be added, in order
+     */
+    public synchronized void addMovies(Collection<? extends Movie> movies) {
+        if (positionalIds() && !(_movies instanceof MovieStore)) {
+            // A movie that already has another id, such as one taken from another list, can only be found
+            // through the indexes. A MovieStore keeps a copy without the id, so it is not affected
+            int position = _movies.size();
+            for (Movie movie : movies) {
+                if (movie.getId() >= 0 && movie.getId() != position++) {
+                    ensureIndexed();
+                    break;
+                }
+            }
+        }
+        List<MovieChange> changes = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            int position = _movies.size();
+            _movies.add(movie);
+            // A MovieStore keeps a copy of the movie, which is the one to index
+            Movie added = _movies.get(position);
+            if (positionalIds() && added.getId() < 0) {
+                added.setId(position);
+            }
+            changes.add(new MovieChange(MovieChange.Type.ADDED, added, position));
+        }
+        publish(changes);
+    }
+
+    /**
+     * Records an edit of a movie that is already in the list. Call this after the movie's setters were
+     * used so the change is recorded in the change journal.
+     * 
+     * @param movie The movie that was edited
+     */
+    public void updateMovie(Movie movie) {
+        updateMovies(Collections.singletonList(movie));
+    }
+
+    /**
+     * Edits the movie with the given id, copying the title, director, genre and year of another movie
+     * 
+     * @param id     The id of the movie to edit, see Movie.getId()
+     * @param values A movie holding the new values. It is not added to the list
+     * @return true if a movie with the id was in the list
+     * @throws IllegalArgumentException if the year cannot be stored, see MovieStorage.isValidYear. The
+     *                                  movie is left as it was
+     */
+    public synchronized boolean updateMovie(int id, Movie values) {
+        // Checked before any value is copied, so a bad year cannot leave the movie half edited
+        if (!MovieStorage.isValidYear(values.getYear())) {
+            throw new IllegalArgumentException("The year " + values.getYear() + " cannot be stored");
+        }
+        Movie movie = getById(id);
+        if (movie == null) {
+            return false;
+        }
+        movie.setTitle(values.getTitle());
+        movie.setDirector(values.getDirector());
+        movie.setGenre(values.getGenre());
+        movie.setYear(values.getYear());
+        updateMovie(movie);
+        return true;
+    }
+
+    /**
+     * Records edits of several movies that are already in the list. The edits are published as a
+     * single batch
+     * 
+     * @param movies The movies that were edited. Movies that are not in the list are ignored
+     */
+    public synchronized void updateMovies(Collection<? extends Movie> movies) {
+        List<MovieChange> changes = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            int index = positionOf(movie);
+            if (index >= 0) {
+                changes.add(new MovieChange(MovieChange.Type.UPDATED, movie, index));
+            }
+        }
+        publish(changes);
+    }
+
+    /**
+     * Removes a movie from the list. If the list is backed by a file, the removal is recorded in the
+     * change journal.
+     * 
+     * @param movie The movie to be removed
+     * @return true if the movie was in the list
+     */
+    public boolean removeMovie(Movie movie) {
+        return removeMovies(Collections.singletonList(movie)) > 0;
+    }
+
+    /**
+     * Removes the movie with the given id from the list
+     * 
+     * @param id The id of the movie to remove, see Movie.getId()
+     * @return true if a movie with the id was in the list
+     */
+    public synchronized boolean removeMovie(int id) {
+        Movie movie = getById(id);
+        return movie != null && removeMovie(movie);
+    }
+
+    /**
+     * Removes several movies from the list in a single pass. The removals are published as a single
+     * batch
+     * 
+     * @param movies The movies to be removed. Movies that are not in the list are ignored
+     * @return the number of movies that were removed
+     */
+    public synchronized int removeMovies(Collection<? extends Movie> movies) {
+        Set<Movie> remove = Collections.newSetFromMap(new IdentityHashMap<>(movies.size() * 4 / 3 + 1));
+        remove.addAll(movies);
+        return removeIf(remove::contains);
+    }
+
+    /**
+     * Sets the number of movies from which the list is sorted and counted in parallel. Smaller lists are
+     * sorted and counted on the calling thread, which is faster when there is little to split.
+     * 
+     * @param parallelThreshold The number of movies. Integer.MAX_VALUE never uses the parallel path
+     */
+    public synchronized void setParallelThreshold(int parallelThreshold) {
+        _parallelThreshold = parallelThreshold;
+        if (_sortIndex != null) {
+            _sortIndex.setParallelThreshold(parallelThreshold);
+        }
+    }
+
+    /**
+     * Sets the currently selected movie as the selected movie to be referenced in
+     * the edit menu.
+     * 
+     * @param selectedMovie The selected movie will be used to fill the text fields
+     *                      in the edit menu when user
+     *                      selects edit
+     */
+    public void setSelectedMovie(Movie selectedMovie) {
+        _selectedMovie = selectedMovie;
+    }
+
+    /**
+     * 
+     * @return the selected movie to be referenced in the edit menu
+     */
+
+    public Movie getSelectedMovie() {
+        return this._selectedMovie;
+    }
+
+    /**
+     * Copies the content of the source list to the current list
+     * 
+     * @param source The source movie list from which the content will be copied to
+     *               the list
+     */
+    public void copyList(MovieList source) {
+        // Read under the source's lock, as the source may unmap its data file at any time otherwise. The
+        // movies are added once it is released, so the two lists are never locked together
+        List<Movie> movies;
+        synchronized (source) {
+            movies = new ArrayList<>(source._movies);
+        }
+        addMovies(movies);
+    }
+
+    /**
+     * The returned list cannot be changed. Use addMovie, updateMovie and removeMovie, so the change is
+     * published to the indexes, the journal and the other listeners.
+     * 
+     * The list is read through as the movie list changes, and may read from the mapped data file, which
+     * the background writer unmaps when it saves a new snapshot. Only read its movies while holding the
+     * movie list's lock, or use snapshot() instead.
+     * 
+     * @return the list of movie objects
+     */
+    public List<Movie> get_movies() {
+        return Collections.unmodifiableList(_movies);
+    }
+
+    /**
+     * Subscribes to the changes made to the list
+     * 
+     * @param listener The listener to call after every add, edit and removal
+     */
+    public void addListener(MovieListListener listener) {
+        _listeners.add(listener);
+    }
+
+    /**
+     * Stops a listener from being told about changes
+     * 
+     * @param listener The listener to remove
+     */
+    public void removeListener(MovieListListener listener) {
+        _listeners.remove(listener);
+    }
+
+    /**
+     * If a movie list was created with a filename, the movie list will store the
+     * contents of its associated
+     * file. If no file exists, or file is empty, the movie list will save its
+     * content to the file, which will
+     * be used to update the list next time the application is launched.
+     * 
+     * Changes made since the last snapshot are replayed from the change journal that is stored next to
+     * the file. Data files in the mapped binary format are mapped into memory rather than read, so
+     * loading does not depend on the size of the collection. Files written by older versions of the
+     * application (a serialized array list or the streamed binary format) are read once and immediately
+     * migrated to the mapped binary format.
+     */
+    public void readFromFile() {
+        File file = new File(filename);
+        _generation = 0;
+        // Start from an empty list, so reading the file again does not add its movies a second time
+        _movies = new ArrayList<>();
+        closeMapping();
+        clearIndexes();
+        boolean legacy = false;
+        try {
+            int version = MovieStorage.readVersion(file);
+            if (version == MovieStorage.VERSION_MAPPED) {
+                // Map the file instead of reading it. Movies are only decoded when they are first accessed
+                _mapped = MovieSnapshot.open(file);
+                _movies = _mapped.asList();
+                _generation = _mapped.getGeneration();
+            } else if (version > 0) {
+                _generation = MovieStorage.read(file, _movies);
+                legacy = true;
+            } else if (file.exists()) {
+                _generation = MovieStorage.readLegacy(file, _movies);
+                legacy = true;
+            }
+        } catch (IOException e) {
+            // Handle exceptions (e.g., file is corrupted)
+            e.printStackTrace();
+        }
+        if (_columnar && !(_movies instanceof MovieStore)) {
+            // The store holds copies of the movies, so the file is no longer needed
+            _movies = new MovieStore(_movies);
+            closeMapping();
+        }
+        _version++;
+        _versions.reset();
+        _published = null;
+
+        if (_writer != null) {
+            _listeners.remove(_writer);
+            _writer.close();
+        }
+        MovieJournal journal = new MovieJournal(filename);
+        journal.replay(_movies, _generation);
+        // From now on every change is saved in the background
+        _writer = new PersistenceWriter(this, filename, journal, SAVE_DELAY_MILLIS, SAVE_BATCH_SIZE);
+        _listeners.add(_writer);
+
+        if (legacy) {
+            // Shows in the writer's checkpoint count
+            saveToFile();
+        }
+    }
+
+    /**
+     * Saves the content of the array movie list to a data file in the binary format (see MovieStorage).
+     * 
+     * The snapshot is written to a temporary file, synced to disk and then renamed over the data file,
+     * so a crash never leaves a half written data file behind. Once the snapshot is in place the change
+     * journal is emptied. Returns once the snapshot is on disk. Changes made through the list do not
+     * need this, as they are saved in the background.
+     */
+    public void saveToFile() {
+        if (_writer != null) {
+            _writer.checkpoint();
+        }
+    }
+
+    /**
+     * Writes every change that is still waiting to be saved and returns once it is on disk. Called
+     * before the application exits
+     */
+    public void flush() {
+        if (_writer != null) {
+            _writer.flush();
+        }
+    }
+
+    /**
+     * Starts a bulk update, such as an import. Changes are not journaled one by one until
+     * endBulkUpdate() is called, which saves the whole list as a single snapshot
+     */
+    public void beginBulkUpdate() {
+        if (_writer != null) {
+            _writer.suspend();
+        }
+    }
+
+    /**
+     * Ends a bulk update and saves the list as a new snapshot. Returns once it is on disk
+     */
+    public void endBulkUpdate() {
+        if (_writer != null) {
+            _writer.resume();
+            _writer.flush();
+        }
+    }
+
+    /**
+     * 
+     * @return the background writer saving the list's changes, with its save statistics, or null if
+     *         the list is not backed by a file
+     */
+    public PersistenceWriter getWriter() {
+        return _writer;
+    }
+
+    /**
+     * Helper method that sorts the movie list based on the sort criteria and
+     * ascending/descending order
+     * 
+     * @param sortType  Type of the sort criteria. Possible criteria include Title,
+     *                  Director, Genre and Year
+     * @param ascending Sorts in ascending order if True, sorts in desceding order
+     *                  if false
+     */
+    public void sortBy(String sortType, Boolean ascending) {
+        Movie.SORT sort;
+        try {
+            sort = Movie.SORT.valueOf(sortType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Inccorect sorting basis");
+            return;
+        }
+
+        // Walk the owner's cached order of the key, forwards or backwards, and keep the movies of this list
+        MovieList owner = _indexSource != null ? _indexSource : this;
+        int[] order;
+        int count;
+        synchronized (owner) {
+            order = owner.sortedIds(sort);
+            count = owner.sortedCount();
+        }
+        synchronized (this) {
+            BitSet present = new BitSet();
+            for (Movie movie : _movies) {
+                if (movie.getId() < 0 || owner.movieById(movie.getId()) != movie) {
+                    present = null;
+                    break;
+                }
+                present.set(movie.getId());
+            }
+            if (present != null && present.cardinality() != _movies.size()) {
+                present = null;
+            }
+
+            Movie[] sorted = new Movie[_movies.size()];
+            if (present != null) {
+                int next = 0;
+                for (int i = 0; i < count; i++) {
+                    int id = order[ascending ? i : count - 1 - i];
+                    if (present.get(id)) {
+                        sorted[next++] = owner.movieById(id);
+                    }
+                }
+            } else {
+                // Movies the owner does not know about, or listed twice, have no place in its orders
+                Comparator<Movie> comparator = MovieQuery.comparator(sort);
+                sorted = _movies.toArray(sorted);
+                if (sorted.length >= _parallelThreshold) {
+                    Arrays.parallelSort(sorted, ascending ? comparator : comparator.reversed());
+                } else {
+                    Arrays.sort(sorted, ascending ? comparator : comparator.reversed());
+                }
+            }
+            for (int i = 0; i < sorted.length; i++) {
+                _movies.set(i, sorted[i]);
+            }
+            _version++;
+            _versions.reset();
+            _published = null;
+
+            // The journal refers to movies by position, so the new order is saved as a snapshot
+            if (_writer != null) {
+                _writer.requestCheckpoint();
+            }
+        }
+    }
+
+    /**
+     * Filters the movie list based on the filter type and value. This is a
+     * destructive method that changes
+     * the contents of the list
+     * 
+     * @param filterType Type of the filter criteria. Possible criteria include
+     *                   Director, Genre and Year
+     * @param filterVal  The specific filter value to search for. For example Year
+     *                   2023
+     */
+    public void filterBy(String filterType, String filterVal) {
+        Movie.FILTER filter;
+        try {
+            filter = Movie.FILTER.valueOf(filterType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        // Look up the matching movies in the index, then keep only those in a single pass over the list
+        MovieList owner = _indexSource != null ? _indexSource : this;
+        BitSet matching = owner.idsMatching(filter, filterVal);
+        removeIf(movie -> !matching.get(movie.getId()));
+    }
+
+    /**
+     * Finds the movies matching a filter without changing the list
+     * 
+     * @param filter    The attribute to filter by
+     * @param filterVal The specific filter value to search for. For example 2023 for Year
+     * @return the matching movies, in the order in which they were added
+     */
+    public synchronized List<Movie> findBy(Movie.FILTER filter, String filterVal) {
+        BitSet matching = idsMatching(filter, filterVal);
+        List<Movie> matches = new ArrayList<>(matching.cardinality());
+        for (int id = matching.nextSetBit(0); id >= 0; id = matching.nextSetBit(id + 1)) {
+            matches.add(_byId[id]);
+        }
+        return matches;
+    }
+
+    /**
+     * Prints a readable string representation of the total movies per genre that
+     * are currently stored in the movie list. The counts are kept up to date as
+     * movies are added, edited and removed, so the list is not scanned.
+     * 
+     * @return a string representation of the total movies per genre in the movie
+     *         list
+     */
+    public synchronized String printMovieCountByGenre() {
+        return stats().printByGenre();
+    }
+
+    /**
+     * Prints a readable string representation of the total movies per year that are
+     * currently stored in the movie list. The counts are kept up to date as movies
+     * are added, edited and removed, so the list is not scanned.
+     * 
+     * @return a string representation of the total movies per year in the movie
+     *         list
+     */
+    public synchronized String printMovieCountByYear() {
+        return stats().printByYear();
+    }
+
+    /**
+     * Prints a readable string representation of the total movies per director that are
+     * currently stored in the movie list. The counts are kept up to date as movies
+     * are added, edited and removed, so the list is not scanned.
+     * 
+     * @return a string representation of the total movies per director in the movie
+     *         list
+     */
+    public synchronized String printMovieCountByDirector() {
+        return stats().printByDirector();
+    }
+
+    /**
+     * 
+     * @return the live movie counts per genre, year and director
+     */
+    public synchronized MovieStats stats() {
+        ensureIndexed();
+        return _stats;
+    }
+
+    /**
+     * Lists the options of a filter from the live counts, without going through the movies
+     * 
+     * @param filter The attribute to list the values of
+     * @return each distinct value of the attribute mapped to its number of movies, in sorted order
+     */
+    public synchronized Map<String, Integer> valueCounts(Movie.FILTER filter) {
+        return stats().valueCounts(filter);
+    }
+
+    /**
+     * Searchs for a specific movie in the movie list based on the movie's title
+     * Returns null if no matching result is found. If several movies share the title, the one that was
+     * added first is returned.
+     * 
+     * @param movieTitle the title of the movie to seach for
+     * @return associated movie object with the title. Returns null if no matching
+     *         movie object is found
+     */
+    public synchronized Movie searchByTitle(String movieTitle) {
+        List<Movie> matches = titleIndex().get(movieTitle);
+        return matches == null ? null : matches.get(0);
+    }
+
+    /**
+     * Searchs for every movie in the movie list with the given title
+     * 
+     * @param movieTitle the title of the movies to seach for
+     * @return the movies with the title, in the order in which they were added. The list is empty if no
+     *         movie has the title
+     */
+    public synchronized List<Movie> searchAllByTitle(String movieTitle) {
+        List<Movie> matches = titleIndex().get(movieTitle);
+        return matches == null ? new ArrayList<>() : new ArrayList<>(matches);
+    }
+
+    /**
+     * Searchs for every movie whose title contains the search term, ignoring case. Uses the trigram
+     * index, so only movies that share every trigram of the search term are compared.
+     * 
+     * @param searchTerm the text to look for in the titles
+     * @return the matching movies, in the order in which they were added
+     */
+    public synchronized List<Movie> searchByTitleContaining(String searchTerm) {
+        int[] ids = trigramIndex().search(searchTerm);
+        List<Movie> matches = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            matches.add(_byId[id]);
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the movie with the given id
+     * 
+     * @param id the id of the movie, see Movie.getId()
+     * @return the movie with the id, or null if no movie in the list has the id
+     */
+    public synchronized Movie getById(int id) {
+        if (positionalIds()) {
+            if (id < 0 || id >= _movies.size()) {
+                return null;
+            }
+            // Only decodes this movie
+            Movie movie = _movies.get(id);
+            if (movie.getId() < 0) {
+                movie.setId(id);
+            }
+            if (movie.getId() == id) {
+                return movie;
+            }
+        }
+        ensureIndexed();
+        return id >= 0 && id < _byId.length ? _byId[id] : null;
+    }
+
+    /**
+     * Returns an immutable copy of the list as it is now, which readers such as saving and exporting can
+     * go through without locking the list while it keeps being edited. Taking a snapshot does not copy
+     * the movies, see MovieListSnapshot. Once a snapshot was taken, every change takes the next one, and
+     * it is handed out without taking the list's lock, so readers never wait for an edit in progress
+     * 
+     * @return the snapshot, the same one as long as the list does not change
+     */
+    public MovieListSnapshot snapshot() {
+        MovieListSnapshot published = _published;
+        return published != null ? published : takeSnapshot();
+    }
+
+    /**
+     * 
+     * @return the version of the list, which goes up with every change
+     */
+    public synchronized long getVersion() {
+        return _version;
+    }
+
+    /**
+     * Starts a query over the list that does not change or copy the list. See MovieQuery.
+     * 
+     * @return a new query matching every movie in the list
+     */
+    public MovieQuery query() {
+        return new MovieQuery(this);
+    }
+
+    /**
+     * Index access for MovieQuery. Callers hold the list's lock.
+     */
+
+    /**
+     * 
+     * @return the ids of the movies matching a filter, looked up in the attribute index
+     */
+    synchronized BitSet idsMatching(Movie.FILTER filter, String filterVal) {
+        ensureIndexed();
+        return _attributeIndex.matching(filter, filterVal);
+    }
+
+    /**
+     * 
+     * @return the ids of the movies whose title contains the search term, looked up in the trigram index
+     */
+    synchronized int[] idsContaining(String searchTerm) {
+        return trigramIndex().search(searchTerm);
+    }
+
+    /**
+     * 
+     * @return the ids of every movie in the list
+     */
+    synchronized BitSet allIds() {
+        if (positionalIds()) {
+            BitSet ids = new BitSet(_movies.size());
+            ids.set(0, _movies.size());
+            return ids;
+        }
+        ensureIndexed();
+        BitSet ids = new BitSet(_byId.length);
+        for (int id = 0; id < _byId.length; id++) {
+            if (_byId[id] != null) {
+                ids.set(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 
+     * @return the ids of every movie in ascending order of the sort key. Only the first sortedCount()
+     *         entries are used. Built the first time the key is used and patched on every change after
+     */
+    synchronized int[] sortedIds(Movie.SORT sort) {
+        ensureIndexed();
+        return _sortIndex.order(sort);
+    }
+
+    /**
+     * 
+     * @return the number of entries used in the arrays returned by sortedIds
+     */
+    synchronized int sortedCount() {
+        ensureIndexed();
+        return _sortIndex.size();
+    }
+
+    /**
+     * Called by the PersistenceWriter, with the list locked
+     * 
+     * @return a snapshot of the movies to write to the data file
+     */
+    MovieListSnapshot moviesForSnapshot() {
+        // Writing touches every movie anyway, so stop reading through the mapped snapshot, which is
+        // about to be replaced. Windows refuses to replace a file that is still mapped, so it is unmapped
+        // once every movie has been decoded
+        if (!(_movies instanceof ArrayList) && !(_movies instanceof MovieStore)) {
+            _movies = new ArrayList<>(_movies);
+        }
+        closeMapping();
+        return snapshot();
+    }
+
+    /**
+     * 
+     * @return the generation of the last snapshot saved to the data file
+     */
+    synchronized long getGeneration() {
+        return _generation;
+    }
+
+    /**
+     * Called by the PersistenceWriter once a new snapshot is on disk
+     */
+    synchronized void setGeneration(long generation) {
+        _generation = generation;
+    }
+
+    /**
+     * 
+     * @return the movie with the id. The list must already be indexed
+     */
+    Movie movieById(int id) {
+        return _byId[id];
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private Map<String, List<Movie>> titleIndex() {
+        ensureIndexed();
+        return _titleIndex;
+    }
+
+    /**
+     * Finds the position of a movie of the list from its id, instead of scanning the list. If the
+     * remembered position is out of date, the positions of every movie are remembered again in one pass
+     *
+     * @return the position of the movie, or -1 if it is not in the list
+     */
+    private int positionOf(Movie movie) {
+        int id = movie.getId();
+        if (positionalIds() && id >= 0 && id < _movies.size() && _movies.get(id) == movie) {
+            return id;
+        }
+        ensureIndexed();
+        if (id < 0 || id >= _byId.length || _byId[id] != movie) {
+            return -1;
+        }
+        int position = _positions[id];
+        if (position < _movies.size() && _movies.get(position) == movie) {
+            return position;
+        }
+        for (int i = 0; i < _movies.size(); i++) {
+            _positions[_movies.get(i).getId()] = i;
+        }
+        position = _positions[id];
+        return position < _movies.size() && _movies.get(position) == movie ? position : -1;
+    }
+
+    private TrigramIndex trigramIndex() {
+        ensureIndexed();
+        if (_trigramIndex == null) {
+            _trigramIndex = new TrigramIndex();
+            for (Movie movie : _byId) {
+                if (movie != null) {
+                    _trigramIndex.add(movie.getId(), movie.getTitle());
+                }
+            }
+        }
+        return _trigramIndex;
+    }
+
+
+    /**
+     * 
+     * @return true while a movie's id is its position in the list, so it can be found without the
+     *         indexes. A list holding another list's movies keeps their ids, so it never uses positions
+     */
+    private boolean positionalIds() {
+        return !_indexed && _indexSource == null;
+    }
+
+    /**
+     * Takes a snapshot with the list locked, the first time one is asked for at the current version
+     */
+    private synchronized MovieListSnapshot takeSnapshot() {
+        if (positionalIds() && !_idsAssigned) {
+            // The frozen copies keep the ids the movies have when they are made
+            for (int position = 0; position < _movies.size(); position++) {
+                Movie movie = _movies.get(position);
+                if (movie.getId() < 0) {
+                    movie.setId(position);
+                }
+            }
+            _idsAssigned = true;
+        }
+        _published = _versions.snapshot(_movies, _version);
+        return _published;
+    }
+
+    /**
+     * Builds the indexes over every movie currently in the list, if they have not been built yet. Movies
+     * that were given their position as id keep it
+     */
+    private void ensureIndexed() {
+        if (_indexed) {
+            return;
+        }
+        _titleIndex = new HashMap<>(Math.max(16, _movies.size() * 4 / 3 + 1));
+        _attributeIndex = new AttributeIndex();
+        _sortIndex = new SortIndex();
+        _sortIndex.setParallelThreshold(_parallelThreshold);
+        _indexed = true;
+        indexAll(_movies);
+        // The movies only have ids from now on, so the frozen copies are made again with them
+        _versions.reset();
+        _published = null;
+        // Counted in one pass, in parallel for a large list, instead of one movie at a time
+        _stats = MovieStats.count(_movies, _parallelThreshold);
+    }
+
+    private void closeMapping() {
+        if (_mapped != null) {
+            _mapped.close();
+            _mapped = null;
+        }
+    }
+
+    private void clearIndexes() {
+        _indexed = false;
+        _idsAssigned = false;
+        _titleIndex = null;
+        _attributeIndex = null;
+        _stats = null;
+        _sortIndex = null;
+        _trigramIndex = null;
+        _byId = new Movie[0];
+        _indexedTitles = new String[0];
+        _positions = new int[0];
+    }
+
+    /**
+     * Adds a movie to the indexes. A movie that has no id yet is given the next free id, so ids follow
+     * the order in which movies were added to the list.
+     */
+    private void index(Movie movie) {
+        indexTitle(movie);
+        _attributeIndex.add(movie);
+        _sortIndex.add(movie);
+    }
+
+    /**
+     * Adds several movies to the indexes. The sorted indexes merge all of them in at once
+     */
+    private void indexAll(List<Movie> movies) {
+        if (movies.size() == 1) {
+            index(movies.get(0));
+            return;
+        }
+        for (Movie movie : movies) {
+            indexTitle(movie);
+        }
+        _attributeIndex.addAll(movies);
+        _sortIndex.addAll(movies);
+    }
+
+    /**
+     * Gives the movie an id and adds it to the title indexes and the counts
+     */
+    private void indexTitle(Movie movie) {
+        if (movie.getId() < 0) {
+            movie.setId(_nextId++);
+        } else {
+            _nextId = Math.max(_nextId, movie.getId() + 1);
+        }
+        int id = movie.getId();
+        if (id >= _byId.length) {
+            int newLength = Math.max(id + 1, _byId.length + (_byId.length >> 1) + 16);
+            _byId = Arrays.copyOf(_byId, newLength);
+            _indexedTitles = Arrays.copyOf(_indexedTitles, newLength);
+            _positions = Arrays.copyOf(_positions, newLength);
+        }
+        _byId[id] = movie;
+        _indexedTitles[id] = movie.getTitle();
+
+        List<Movie> matches = _titleIndex.computeIfAbsent(movie.getTitle(), title -> new ArrayList<>(1));
+        // Keep the movies sharing a title ordered by id
+        int position = matches.size();
+        while (position > 0 && matches.get(position - 1).getId() > id) {
+            position--;
+        }
+        matches.add(position, movie);
+
+        if (_stats != null) {
+            _stats.add(movie.getGenre(), movie.getYear(), movie.getDirector());
+        }
+        if (_trigramIndex != null) {
+            _trigramIndex.add(id, movie.getTitle());
+        }
+    }
+
+    /**
+     * Removes a movie from the indexes, using the values it was indexed with
+     *
+     * @return false if the movie was not indexed
+     * @throws IllegalStateException if the sort orders no longer match the index. No index is changed
+     */
+    private boolean unindex(Movie movie) {
+        int id = movie.getId();
+        if (id < 0 || id >= _byId.length || _byId[id] != movie) {
+            return false;
+        }
+        // The sort index is the only one that can fail, so it goes first and a failure leaves every index
+        // as it was
+        _sortIndex.remove(id);
+
+        String title = _indexedTitles[id];
+        List<Movie> matches = _titleIndex.get(title);
+        if (matches != null) {
+            matches.remove(movie);
+            if (matches.isEmpty()) {
+                _titleIndex.remove(title);
+            }
+        }
+        _stats.remove(_attributeIndex.indexedGenre(id), _attributeIndex.indexedYear(id),
+                _attributeIndex.indexedDirector(id));
+        _attributeIndex.remove(id);
+        if (_trigramIndex != null) {
+            _trigramIndex.remove(id);
+        }
+        _byId[id] = null;
+        _indexedTitles[id] = null;
+        return true;
+    }
+
+    /**
+     * Removes the movies matching a condition in a single pass and publishes the removals
+     * 
+     * @return the number of movies removed
+     */
+    private synchronized int removeIf(Predicate<Movie> condition) {
+        if (positionalIds()) {
+            // Removing movies shifts the positions, which can no longer serve as ids
+            ensureIndexed();
+        }
+        List<MovieChange> changes = new ArrayList<>();
+        // The position of a removed movie is counted after the removals before it, so the changes can be
+        // replayed one after the other
+        int[] kept = {0};
+        _movies.removeIf(movie -> {
+            if (condition.test(movie)) {
+                changes.add(new MovieChange(MovieChange.Type.REMOVED, movie, kept[0]));
+                return true;
+            }
+            kept[0]++;
+            return false;
+        });
+        publish(changes);
+        return changes.size();
+    }
+
+    /**
+     * Tells every listener about a batch of changes. The indexes are the first listener, so the other
+     * listeners can already query the changed list
+     */
+    private void publish(List<MovieChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        _version++;
+        _published = null;
+        for (MovieListListener listener : _listeners) {
+            listener.moviesChanged(changes);
+        }
+        if (_versions.isBuilt()) {
+            // Snapshots are being read, so the next one is taken now, and readers get it without the lock.
+            // It only copies the references to the chunks of frozen copies
+            _published = _versions.snapshot(_movies, _version);
+        }
+    }
+
+    /**
+     * Listener that keeps the indexes up to date. Does nothing until the indexes are built
+     */
+    private void updateIndexes(List<MovieChange> changes) {
+        if (!_indexed) {
+            return;
+        }
+        // Runs of added and edited movies, such as a batch from addMovies or updateMovies, are indexed
+        // together. Every edited movie of a run is taken out of the indexes before any is put back, so no
+        // movie is looked up while another one is half indexed
+        List<Movie> indexed = new ArrayList<>();
+        for (MovieChange change : changes) {
+            switch (change.getType()) {
+                case ADDED:
+                    indexed.add(change.getMovie());
+                    break;
+                case UPDATED:
+                    // A movie edited twice in a run is only taken out and put back once
+                    if (unindex(change.getMovie())) {
+                        indexed.add(change.getMovie());
+                    }
+                    break;
+                case REMOVED:
+                default:
+                    if (!indexed.isEmpty()) {
+                        indexAll(indexed);
+                        indexed.clear();
+                    }
+                    unindex(change.getMovie());
+                    break;
+            }
+        }
+        if (!indexed.isEmpty()) {
+            indexAll(indexed);
+        }
+        for (MovieChange change : changes) {
+            if (change.getType() == MovieChange.Type.ADDED) {
+                // Movies are added to the end of the list, so this stays right until movies are removed
+                _positions[change.getId()] = change.getPosition();
+            }
+        }
+    }
+
+
+}
+
+// public void printMovies() {
+// for (Movie movie : _movies) {
+// System.out.println(movie.getTitle() + " year: " + movie.getYear());
+// }
 // }
\ No newline at end of file
@@ -0,0 +1,23 @@
+import java.util.List;
+
+/**
+ * Listener that is told about every change made to a movie list. The indexes, the change journal and
+ * the main window subscribe to the master movie list so they can update themselves incrementally
+ * instead of going through the whole list again.
+ *
+ * @author Feras Yahya
+ */
+public interface MovieListListener {
+
+    /**
+     * Called after movies were added, edited or removed. A batch operation such as
+     * MovieList.addMovies calls this once with every change it made.
+     *
+     * Listeners are called on the thread that changed the list, while the list is locked, so they must
+     * not block. A listener that updates the UI should hand the work over to the JavaFX Application
+     * Thread.
+     *
+     * @param changes The changes, in the order they were made
+     */
+    void moviesChanged(List<MovieChange> changes);
+}
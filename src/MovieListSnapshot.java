@@ -0,0 +1,160 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Immutable point-in-time copy of a movie list, see MovieList.snapshot(). A snapshot never changes, so
+ * long-running readers such as saving, exporting and reports can go through it without holding the
+ * movie list's lock while the list keeps being edited.
+ *
+ * The movies of a snapshot are frozen copies of the list's movies, with the ids they have in the list.
+ * Their setters throw UnsupportedOperationException. The copies are stored in chunks that are shared
+ * with the other snapshots and only copied when the list changes them (see MovieVersions), so taking a
+ * snapshot does not copy the movies. A snapshot, and any chunk that only it uses, is reclaimed by the
+ * garbage collector once no reader holds it.
+ *
+ * @author Feras Yahya
+ */
+public class MovieListSnapshot extends AbstractList<Movie> implements RandomAccess {
+
+    /**
+     * Fields
+     */
+    private final Movie[][] chunks;
+    // The position of the first movie of each chunk, plus the size at the end
+    private final int[] starts;
+    private final long version;
+    // The position of each id, built the first time a movie is looked up by an id that is not its
+    // position. Building it twice on two threads is harmless, as both build the same array
+    private volatile int[] positions;
+
+    /**
+     * Parameterized constructor, snapshots are created by MovieVersions
+     *
+     * @param chunks  The chunks holding the movies, which must never change from now on
+     * @param counts  The number of movies used in each chunk
+     * @param version The version of the movie list the snapshot was taken at
+     */
+    MovieListSnapshot(Movie[][] chunks, int[] counts, long version) {
+        this.chunks = chunks;
+        this.starts = new int[chunks.length + 1];
+        for (int i = 0; i < chunks.length; i++) {
+            starts[i + 1] = starts[i] + counts[i];
+        }
+        this.version = version;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    @Override
+    public Movie get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size());
+        }
+        // Find the last chunk starting at or before the index
+        int low = 0;
+        int high = chunks.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return chunks[low][index - starts[low]];
+    }
+
+    @Override
+    public int size() {
+        return starts[chunks.length];
+    }
+
+    /**
+     * Returns the movie with the given id, as the movie list's getById did when the snapshot was taken
+     *
+     * @param id the id of the movie, see Movie.getId()
+     * @return the movie with the id, or null if the snapshot has no movie with the id
+     */
+    public Movie getById(int id) {
+        if (id < 0) {
+            return null;
+        }
+        // Until movies are removed or the list is sorted, a movie's id is its position
+        if (id < size() && get(id).getId() == id) {
+            return get(id);
+        }
+        int[] positions = this.positions;
+        if (positions == null) {
+            int maxId = -1;
+            for (Movie movie : this) {
+                maxId = Math.max(maxId, movie.getId());
+            }
+            positions = new int[maxId + 1];
+            Arrays.fill(positions, -1);
+            for (int i = 0; i < size(); i++) {
+                if (get(i).getId() >= 0) {
+                    positions[get(i).getId()] = i;
+                }
+            }
+            this.positions = positions;
+        }
+        return id < positions.length && positions[id] >= 0 ? get(positions[id]) : null;
+    }
+
+    /**
+     *
+     * @return the version of the movie list the snapshot was taken at. The list's version goes up with
+     *         every change
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Makes a frozen copy of a movie, holding its current values and its id
+     */
+    static Movie freeze(Movie movie) {
+        Frozen frozen = new Frozen(movie.getTitle(), movie.getDirectorId(), movie.getGenre(), movie.getYear());
+        frozen.setId(movie.getId());
+        return frozen;
+    }
+
+    /**
+     * Movie that cannot be changed
+     */
+    private static class Frozen extends Movie {
+
+        private static final long serialVersionUID = 1L;
+
+        Frozen(String title, int directorId, Movie.Genre genre, int year) {
+            super(title, directorId, genre, year);
+        }
+
+        @Override
+        public void setTitle(String title) {
+            throw new UnsupportedOperationException("Movies of a snapshot cannot be changed");
+        }
+
+        @Override
+        public void setDirector(String director) {
+            throw new UnsupportedOperationException("Movies of a snapshot cannot be changed");
+        }
+
+        @Override
+        public void setGenre(Movie.Genre genre) {
+            throw new UnsupportedOperationException("Movies of a snapshot cannot be changed");
+        }
+
+        @Override
+        public void setYear(int year) {
+            throw new UnsupportedOperationException("Movies of a snapshot cannot be changed");
+        }
+    }
+}
@@ -0,0 +1,444 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+
+/**
+ * Non-destructive query over a movie list. Combines filters, a title search, a sort order, an offset
+ * and a limit, and returns a lightweight view of the matching movies instead of copying the list.
+ *
+ * <pre>
+ *     masterMovieList.query()
+ *             .where(Movie.FILTER.GENRE, "DRAMA")
+ *             .titleContains("the")
+ *             .orderBy(Movie.SORT.YEAR, true)
+ *             .limit(10)
+ *             .list();
+ * </pre>
+ *
+ * The query is planned from the indexes of the movie list. Filters are looked up in the attribute index
+ * and intersected. A title search uses the trigram index, unless the filters already narrowed the
+ * candidates down to a few movies or the search term is too short to have trigrams, in which case only
+ * the candidates' titles are checked. A sorted query with many matches reads them off the cached sort
+ * order of the movie list instead of sorting them.
+ *
+ * A query can also run over a snapshot of the list (see list(MovieListSnapshot)), which checks every
+ * movie of the snapshot instead of using the indexes, and never locks the list.
+ *
+ * @author Feras Yahya
+ */
+public class MovieQuery {
+
+    /**
+     * Fields
+     */
+    private final MovieList source;
+    private final List<Movie.FILTER> filters = new ArrayList<>();
+    private final List<String> filterValues = new ArrayList<>();
+    private String titleTerm;
+    private Movie.SORT sort;
+    private boolean ascending = true;
+    private int limit = -1;
+    private int offset;
+    private String plan = "";
+
+    // Below this many candidates, checking the candidates' titles is cheaper than the trigram index
+    private static final int SCAN_THRESHOLD = 256;
+
+    /**
+     * Parameterized constructor. Queries are created through MovieList.query()
+     *
+     * @param source The movie list to query
+     */
+    MovieQuery(MovieList source) {
+        this.source = source;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Only keeps the movies matching a filter. Several filters can be combined; a movie has to match
+     * all of them.
+     *
+     * @param filter The attribute to filter by
+     * @param value  The value to look for. For example 2023 for YEAR
+     * @return this query
+     */
+    public MovieQuery where(Movie.FILTER filter, String value) {
+        filters.add(filter);
+        filterValues.add(value);
+        return this;
+    }
+
+    /**
+     * Only keeps the movies whose title contains the search term, ignoring case
+     *
+     * @param searchTerm The text to look for in the titles. Null or empty matches every movie
+     * @return this query
+     */
+    public MovieQuery titleContains(String searchTerm) {
+        this.titleTerm = searchTerm == null || searchTerm.isEmpty() ? null : searchTerm;
+        return this;
+    }
+
+    /**
+     * Sorts the result. Without a sort order, movies are returned in the order of their ids, which is
+     * the order they were added. That is not the order of the list after MovieList.sortBy(): a query
+     * always sorts by itself, and never follows the list's current order.
+     *
+     * @param sort      The attribute to sort by. Null returns the movies in the order of their ids
+     * @param ascending Sorts in ascending order if true, in descending order if false
+     * @return this query
+     */
+    public MovieQuery orderBy(Movie.SORT sort, boolean ascending) {
+        this.sort = sort;
+        this.ascending = ascending;
+        return this;
+    }
+
+    /**
+     * Limits the number of movies returned
+     *
+     * @param limit The maximum number of movies. A negative limit returns every match
+     * @return this query
+     */
+    public MovieQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Skips the first movies of the result, which together with limit() returns the result a page at a
+     * time
+     *
+     * @param offset The number of movies to skip
+     * @return this query
+     */
+    public MovieQuery offset(int offset) {
+        this.offset = Math.max(0, offset);
+        return this;
+    }
+
+    /**
+     * Runs the query
+     *
+     * @return a read-only view of the matching movies, in the order set by orderBy() or else in the
+     *         order of their ids. The view holds the ids of the movies and looks each movie up in the
+     *         movie list when it is accessed, so a movie removed from the list after the query ran is
+     *         returned as null
+     */
+    public Result list() {
+        synchronized (source) {
+            StringBuilder explain = new StringBuilder();
+            BitSet candidates = candidates(explain);
+            int[] ids = toArray(candidates);
+            int total = ids.length;
+            if (sort != null) {
+                ids = sort(candidates, ids, explain);
+            }
+            if (offset > 0 || ids.length > end(total)) {
+                ids = Arrays.copyOfRange(ids, Math.min(offset, ids.length), Math.min(end(total), ids.length));
+            }
+            plan = explain.toString();
+            return new Result(source, ids, total);
+        }
+    }
+
+    /**
+     * Runs the query over a snapshot of the movie list, for readers that must not wait for the list's
+     * lock. Every movie of the snapshot is checked with matches(), and only the movies up to the end of
+     * the page are kept in order while scanning, so a page costs one pass over the snapshot
+     *
+     * @param snapshot A snapshot of the movie list, see MovieList.snapshot()
+     * @return the matching movies of the snapshot, in the same order as list()
+     */
+    public Result list(MovieListSnapshot snapshot) {
+        Comparator<Movie> order = order();
+        int wanted = end(Integer.MAX_VALUE);
+        // The first wanted matches in result order, with the last of them at the head
+        PriorityQueue<Movie> first = new PriorityQueue<>(order.reversed());
+        int total = 0;
+        for (Movie movie : snapshot) {
+            if (matches(movie)) {
+                total++;
+                if (first.size() < wanted) {
+                    first.add(movie);
+                } else if (wanted > 0 && order.compare(movie, first.peek()) < 0) {
+                    first.poll();
+                    first.add(movie);
+                }
+            }
+        }
+        Movie[] movies = first.toArray(new Movie[0]);
+        Arrays.sort(movies, order);
+        plan = "scan of snapshot " + snapshot.getVersion();
+        return new Result(Arrays.asList(movies).subList(Math.min(offset, movies.length), movies.length), total);
+    }
+
+    /**
+     *
+     * @return the number of movies matching the query, ignoring the limit
+     */
+    public int count() {
+        synchronized (source) {
+            return candidates(new StringBuilder()).cardinality();
+        }
+    }
+
+    /**
+     * Checks a single movie against the filters and the title search, without going through the
+     * indexes. For keeping a result up to date as movies change, instead of running the query again
+     *
+     * @param movie The movie, with its current values
+     * @return true if list() would return the movie, ignoring the offset and the limit
+     */
+    public boolean matches(Movie movie) {
+        for (int i = 0; i < filters.size(); i++) {
+            String value = filterValues.get(i);
+            switch (filters.get(i)) {
+                case GENRE:
+                    if (movie.getGenre() == null || !movie.getGenre().name().equals(value)) {
+                        return false;
+                    }
+                    break;
+                case YEAR:
+                    try {
+                        if (movie.getYear() != Integer.parseInt(value)) {
+                            return false;
+                        }
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                    break;
+                case DIRECTOR:
+                default:
+                    if (movie.getDirector() == null || !movie.getDirector().equals(value)) {
+                        return false;
+                    }
+                    break;
+            }
+        }
+        if (titleTerm != null) {
+            String title = movie.getTitle();
+            return title != null && title.toLowerCase(Locale.ROOT).contains(titleTerm.toLowerCase(Locale.ROOT));
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return a comparator ordering movies the way list() orders them
+     */
+    public Comparator<Movie> order() {
+        if (sort == null) {
+            // Unsorted results are in the order of the ids, whatever order the list was sorted in
+            return Comparator.comparingInt(Movie::getId);
+        }
+        Comparator<Movie> order = comparator(sort).thenComparingInt(Movie::getId);
+        return ascending ? order : order.reversed();
+    }
+
+    /**
+     *
+     * @return a description of how the query was last executed, for example "genre index; trigram index"
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Finds the ids of every movie matching the filters and the title search
+     */
+    private BitSet candidates(StringBuilder explain) {
+        BitSet candidates = null;
+
+        for (int i = 0; i < filters.size(); i++) {
+            BitSet matching = source.idsMatching(filters.get(i), filterValues.get(i));
+            append(explain, filters.get(i).toString().toLowerCase(Locale.ROOT) + " index");
+            if (candidates == null) {
+                candidates = matching;
+            } else {
+                candidates.and(matching);
+            }
+        }
+
+        if (titleTerm != null) {
+            if (candidates != null && (candidates.cardinality() <= SCAN_THRESHOLD || titleTerm.length() < 3)) {
+                // Cheaper to check the few candidates left than to intersect posting lists
+                append(explain, "title scan of " + candidates.cardinality() + " candidates");
+                String term = titleTerm.toLowerCase(Locale.ROOT);
+                for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                    String title = source.movieById(id).getTitle();
+                    if (title == null || !title.toLowerCase(Locale.ROOT).contains(term)) {
+                        candidates.clear(id);
+                    }
+                }
+            } else {
+                append(explain, "trigram index");
+                BitSet matching = new BitSet();
+                for (int id : source.idsContaining(titleTerm)) {
+                    matching.set(id);
+                }
+                if (candidates == null) {
+                    candidates = matching;
+                } else {
+                    candidates.and(matching);
+                }
+            }
+        }
+
+        if (candidates == null) {
+            append(explain, "all movies");
+            candidates = source.allIds();
+        }
+        return candidates;
+    }
+
+    /**
+     * Sorts the ids by the sort attribute. Movies with equal values are ordered by id in ascending order
+     * and by reverse id in descending order, so a descending result is always the exact reverse of the
+     * ascending one.
+     *
+     * A large result is read off the movie list's cached order of the attribute, walked backwards for
+     * descending order, and stops as soon as the limit is reached. Only a small result is sorted.
+     */
+    private int[] sort(BitSet candidates, int[] ids, StringBuilder explain) {
+        int total = source.sortedCount();
+        if ((long) ids.length * (32 - Integer.numberOfLeadingZeros(ids.length)) < total) {
+            append(explain, "sort by " + sort);
+            Comparator<Movie> comparator = comparator(sort).thenComparingInt(Movie::getId);
+            Movie[] movies = new Movie[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                movies[i] = source.movieById(ids[i]);
+            }
+            Arrays.sort(movies, ascending ? comparator : comparator.reversed());
+            int[] sorted = new int[movies.length];
+            for (int i = 0; i < movies.length; i++) {
+                sorted[i] = movies[i].getId();
+            }
+            return sorted;
+        }
+
+        append(explain, "cached " + sort + " order");
+        int[] order = source.sortedIds(sort);
+        int wanted = end(ids.length);
+        int[] sorted = new int[wanted];
+        int next = 0;
+        for (int i = 0; i < total && next < wanted; i++) {
+            int id = order[ascending ? i : total - 1 - i];
+            if (candidates.get(id)) {
+                sorted[next++] = id;
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     *
+     * @return a comparator ordering movies by the attribute in ascending order, with missing values first
+     */
+    static Comparator<Movie> comparator(Movie.SORT sort) {
+        switch (sort) {
+            case TITLE:
+                return Comparator.comparing(Movie::getTitle, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case YEAR:
+                return Comparator.comparingInt(Movie::getYear);
+            case GENRE:
+                // Genres sort by name, as they are displayed
+                return Comparator.comparing(movie -> movie.getGenre() == null ? null : movie.getGenre().name(),
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+            case DIRECTOR:
+            default:
+                return Comparator.comparing(Movie::getDirector, Comparator.nullsFirst(Comparator.naturalOrder()));
+        }
+    }
+
+    /**
+     * @return the position after the last movie to return out of a result of the given size
+     */
+    private int end(int size) {
+        return limit >= 0 ? (int) Math.min((long) offset + limit, size) : size;
+    }
+
+    static int[] toArray(BitSet ids) {
+        int[] array = new int[ids.cardinality()];
+        int i = 0;
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            array[i++] = id;
+        }
+        return array;
+    }
+
+    private static void append(StringBuilder explain, String step) {
+        if (explain.length() > 0) {
+            explain.append("; ");
+        }
+        explain.append(step);
+    }
+
+    /**
+     * Read-only view of a query's result. A result of the movie list looks its movies up by id when
+     * they are accessed; a result of a snapshot holds the snapshot's movies
+     */
+    public static class Result extends AbstractList<Movie> implements RandomAccess {
+
+        private final MovieList source;
+        private final List<Movie> movies;
+        private final int[] ids;
+        private final int total;
+
+        Result(MovieList source, int[] ids, int total) {
+            this.source = source;
+            this.movies = null;
+            this.ids = ids;
+            this.total = total;
+        }
+
+        Result(List<Movie> movies, int total) {
+            this.source = null;
+            this.movies = movies;
+            this.ids = new int[movies.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = movies.get(i).getId();
+            }
+            this.total = total;
+        }
+
+        @Override
+        public Movie get(int index) {
+            return movies != null ? movies.get(index) : source.getById(ids[index]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+
+        /**
+         *
+         * @return the ids of the matching movies, in result order
+         */
+        public int[] getIds() {
+            return ids.clone();
+        }
+
+        /**
+         *
+         * @return the number of movies that matched the query, ignoring the offset and the limit
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded HTTP service for querying and editing a movie list from other tools, built on the JDK's
+ * com.sun.net.httpserver. It only listens on the loopback address.
+ *
+ * <pre>
+ * GET    /movies?search=&amp;genre=&amp;year=&amp;director=&amp;sort=year:desc&amp;offset=0&amp;limit=100
+ * GET    /movies/{id}
+ * POST   /movies          {"title":"...","director":"...","genre":"DRAMA","year":1999}
+ * PUT    /movies/{id}     {"title":"...","director":"...","genre":"DRAMA","year":1999}
+ * DELETE /movies/{id}
+ * GET    /stats?by=genre
+ * </pre>
+ *
+ * Lists are returned a page at a time as {"total":N,"offset":0,"limit":100,"movies":[...]}, with at
+ * most MAX_LIMIT movies per page. Each movie is returned with its id, which PUT and DELETE take. Errors
+ * are returned as {"error":"..."} with a 400, 404 or 405 status.
+ *
+ * Requests are handled concurrently, one task per request. On a JDK with virtual threads each request
+ * runs on its own virtual thread, otherwise on a pool of POOL_SIZE threads. Every edit goes through the
+ * synchronized methods of the movie list, so edits are applied one at a time and saved in the background
+ * like any other. Reads run against the list's latest snapshot instead (see MovieList.snapshot()). Once
+ * the first snapshot is taken, every edit takes the next one, and readers get it without the list's
+ * lock, so reads run concurrently with each other and with an edit in progress, and slow clients never
+ * hold up other requests or the application.
+ *
+ * @author Feras Yahya
+ */
+public class MovieServer {
+
+    /**
+     * Fields
+     */
+    private final MovieList movieList;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private static final int POOL_SIZE = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+    private static final int MAX_BODY_SIZE = 1 << 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Parameterized constructor. The server does not accept requests until start() is called
+     *
+     * @param movieList The movie list to serve
+     * @param port      The port to listen on, or 0 for any free port
+     */
+    public MovieServer(MovieList movieList, int port) throws IOException {
+        this.movieList = movieList;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/movies", this::handleMovies);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Starts accepting requests on getPort()
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to a second for the ones being handled and stops the threads
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     *
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * @return an executor running each request on a new virtual thread if the JDK has them, and a fixed
+     *         pool of daemon threads otherwise
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            // Looked up by name so the server also runs on JDKs without virtual threads
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(POOL_SIZE, runnable -> {
+                Thread thread = new Thread(runnable, "movie-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handleMovies(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath().substring("/movies".length());
+            String method = exchange.getRequestMethod();
+            if (path.isEmpty() || path.equals("/")) {
+                if (method.equals("GET")) {
+                    list(exchange, parameters(exchange));
+                } else if (method.equals("POST")) {
+                    create(exchange);
+                } else {
+                    sendError(exchange, 405, "Method " + method + " not allowed, use GET or POST");
+                }
+                return;
+            }
+
+            int id;
+            try {
+                id = Integer.parseInt(path.substring(1));
+            } catch (NumberFormatException e) {
+                sendError(exchange, 404, "No movie " + path.substring(1));
+                return;
+            }
+            switch (method) {
+                case "GET":
+                    get(exchange, id);
+                    break;
+                case "PUT":
+                    update(exchange, id);
+                    break;
+                case "DELETE":
+                    delete(exchange, id);
+                    break;
+                default:
+                    sendError(exchange, 405, "Method " + method + " not allowed, use GET, PUT or DELETE");
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Method " + exchange.getRequestMethod() + " not allowed, use GET");
+                return;
+            }
+            String by = parameters(exchange).get("by");
+            Movie.FILTER only = by == null ? null : valueOf(Movie.FILTER.class, by);
+            Writer writer = startResponse(exchange, 200);
+            MovieExporter.writeStats(movieList, only, writer);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sends a page of the movies matching the query parameters
+     */
+    private void list(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        MovieQuery query = movieList.query().titleContains(parameters.get("search"));
+        for (Movie.FILTER filter : Movie.FILTER.values()) {
+            String value = parameters.get(filter.toString().toLowerCase(Locale.ROOT));
+            if (value != null) {
+                // Genres are stored by the name of their constant
+                query.where(filter, filter == Movie.FILTER.GENRE ? value.toUpperCase(Locale.ROOT) : value);
+            }
+        }
+        String sort = parameters.get("sort");
+        if (sort != null) {
+            int colon = sort.indexOf(':');
+            String order = colon < 0 ? "asc" : sort.substring(colon + 1).toLowerCase(Locale.ROOT);
+            if (!order.equals("asc") && !order.equals("desc")) {
+                throw new IllegalArgumentException("Unknown sort order " + order);
+            }
+            query.orderBy(valueOf(Movie.SORT.class, colon < 0 ? sort : sort.substring(0, colon)),
+                    order.equals("asc"));
+        }
+        int offset = number(parameters, "offset", 0);
+        int limit = Math.min(number(parameters, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+        query.offset(offset).limit(limit);
+
+        // The snapshot's movies are frozen copies, so the page can be written out as it is
+        MovieQuery.Result page = query.list(movieList.snapshot());
+        int total = page.getTotal();
+
+        Writer writer = startResponse(exchange, 200);
+        writer.write("{\"total\":" + total + ",\"offset\":" + offset + ",\"limit\":" + limit + ",\"movies\":[");
+        for (int i = 0; i < page.size(); i++) {
+            writer.write(i == 0 ? "\n" : ",\n");
+            writeMovie(page.get(i), writer);
+        }
+        writer.write("]}\n");
+        writer.flush();
+    }
+
+    private void get(HttpExchange exchange, int id) throws IOException {
+        Movie movie = movieList.snapshot().getById(id);
+        if (movie == null) {
+            sendError(exchange, 404, "No movie " + id);
+            return;
+        }
+        sendMovie(exchange, 200, movie);
+    }
+
+    private void create(HttpExchange exchange) throws IOException {
+        Movie movie = MovieImporter.parseMovie(readBody(exchange));
+        Movie added;
+        synchronized (movieList) {
+            added = MovieListSnapshot.freeze(movieList.getById(movieList.addMovieWithId(movie)));
+        }
+        exchange.getResponseHeaders().set("Location", "/movies/" + added.getId());
+        sendMovie(exchange, 201, added);
+    }
+
+    private void update(HttpExchange exchange, int id) throws IOException {
+        Movie values = MovieImporter.parseMovie(readBody(exchange));
+        Movie updated = null;
+        synchronized (movieList) {
+            if (movieList.updateMovie(id, values)) {
+                updated = MovieListSnapshot.freeze(movieList.getById(id));
+            }
+        }
+        if (updated == null) {
+            sendError(exchange, 404, "No movie " + id);
+            return;
+        }
+        sendMovie(exchange, 200, updated);
+    }
+
+    private void delete(HttpExchange exchange, int id) throws IOException {
+        if (!movieList.removeMovie(id)) {
+            sendError(exchange, 404, "No movie " + id);
+            return;
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void sendMovie(HttpExchange exchange, int status, Movie movie) throws IOException {
+        Writer writer = startResponse(exchange, status);
+        writeMovie(movie, writer);
+        writer.write('\n');
+        writer.flush();
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Writer writer = startResponse(exchange, status);
+        writer.write("{\"error\":");
+        MovieExporter.writeJsonValue(message, writer);
+        writer.write("}\n");
+        writer.flush();
+    }
+
+    /**
+     * Sends the status and the headers of a JSON response whose body is streamed, as it is written
+     *
+     * @return a buffered writer over the body. Closing the exchange closes it
+     */
+    private static Writer startResponse(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+                BUFFER_SIZE);
+    }
+
+    private static void writeMovie(Movie movie, Writer writer) throws IOException {
+        writer.write("{\"id\":" + movie.getId() + ",\"title\":");
+        MovieExporter.writeJsonValue(movie.getTitle(), writer);
+        writer.write(",\"director\":");
+        MovieExporter.writeJsonValue(movie.getDirector(), writer);
+        writer.write(",\"genre\":");
+        MovieExporter.writeJsonValue(movie.getGenre() == null ? null : movie.getGenre().name(), writer);
+        writer.write(",\"year\":" + movie.getYear() + "}");
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                if (body.size() + read > MAX_BODY_SIZE) {
+                    throw new IllegalArgumentException("Request body larger than " + MAX_BODY_SIZE + " bytes");
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the decoded query parameters of the request. A parameter given twice keeps its last value
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static int number(Map<String, String> parameters, String name, int defaultValue) {
+        String value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int number = Integer.parseInt(value);
+            if (number < 0) {
+                throw new IllegalArgumentException(name + " cannot be negative, found " + value);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " takes a number, found " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E valueOf(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown attribute " + name);
+        }
+    }
+}
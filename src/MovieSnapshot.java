@@ -0,0 +1,338 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only view of a data file written in the mapped binary format (version 2, see MovieStorage). The
+ * file is mapped into memory with FileChannel.map, so opening a snapshot only reads its header no matter
+ * how many movies it holds. Every movie has a fixed-width entry in the record table, which lets a movie
+ * be found by its row number and decoded only when it is first accessed.
+ *
+ * Windows does not let a file be replaced while it is mapped, and Java only unmaps a file once its buffer
+ * is garbage collected. close() unmaps the file right away, so a new snapshot can be saved over it. The
+ * movies already decoded are ordinary objects and stay valid, but nothing more can be read.
+ *
+ * @author Feras Yahya
+ */
+public class MovieSnapshot implements Closeable {
+
+    /**
+     * Fields
+     */
+    private final MappedByteBuffer _buffer;
+    private final long generation;
+    private final int count;
+    private final int directorTable;
+    private final int recordTable;
+    private final int heap;
+    private volatile boolean closed;
+
+    // The DirectorDictionary id of each director in the file, plus one so 0 means not decoded yet.
+    // Names are decoded on first use and shared by every movie of that director
+    private final int[] _directorIds;
+
+    private static final Movie.Genre[] GENRES = Movie.Genre.values();
+
+    /**
+     * Private constructor, snapshots are created through open()
+     */
+    private MovieSnapshot(MappedByteBuffer buffer) throws IOException {
+        _buffer = buffer;
+        if (buffer.capacity() < MovieStorage.HEADER_SIZE || buffer.getInt(0) != MovieStorage.MAGIC
+                || buffer.getShort(4) != MovieStorage.VERSION_MAPPED) {
+            throw new IOException("Not a mapped movie data file");
+        }
+        generation = buffer.getLong(8);
+        count = buffer.getInt(16);
+        int directorCount = buffer.getInt(20);
+        directorTable = MovieStorage.HEADER_SIZE;
+        recordTable = directorTable + directorCount * MovieStorage.DIRECTOR_ENTRY_SIZE;
+        heap = (int) buffer.getLong(24);
+        _directorIds = new int[directorCount];
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Maps a data file into memory. Only the header is read.
+     *
+     * @param file The data file, written in the mapped binary format
+     * @return the snapshot stored in the file
+     * @throws IOException if the file cannot be mapped or is not in the mapped binary format
+     */
+    public static MovieSnapshot open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to be mapped");
+            }
+            // The mapping stays valid after the channel is closed
+            return new MovieSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     *
+     * @return the generation of the snapshot
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     *
+     * @return the number of movies in the snapshot
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Decodes a single movie
+     *
+     * @param row The row number of the movie
+     * @return a new movie object holding the movie's information
+     */
+    public Movie get(int row) {
+        return new Movie(titleAt(row), directorIdAt(row), genreAt(row), yearAt(row));
+    }
+
+    /**
+     *
+     * @param row The row number of the movie
+     * @return the movie's title, or null if it has none
+     */
+    public String titleAt(int row) {
+        int entry = entry(row);
+        int length = _buffer.getInt(entry + 12);
+        return length == MovieStorage.NULL_LENGTH ? null : decode(_buffer.getInt(entry + 8), length);
+    }
+
+    /**
+     *
+     * @param row The row number of the movie
+     * @return the movie's director
+     */
+    public String directorAt(int row) {
+        return DirectorDictionary.nameOf(directorIdAt(row));
+    }
+
+    /**
+     *
+     * @param row The row number of the movie
+     * @return the movie's director as an id in the DirectorDictionary
+     */
+    public int directorIdAt(int row) {
+        int director = _buffer.getInt(entry(row) + 4);
+        if (director < 0) {
+            return DirectorDictionary.NONE;
+        }
+        int id = _directorIds[director] - 1;
+        if (id < 0) {
+            int directorEntry = directorTable + director * MovieStorage.DIRECTOR_ENTRY_SIZE;
+            String name = decode(_buffer.getInt(directorEntry), _buffer.getInt(directorEntry + 4));
+            id = DirectorDictionary.idOf(name);
+            _directorIds[director] = id + 1;
+        }
+        return id;
+    }
+
+    /**
+     *
+     * @param row The row number of the movie
+     * @return the movie's genre
+     */
+    public Movie.Genre genreAt(int row) {
+        byte genre = _buffer.get(entry(row));
+        return genre < 0 ? null : GENRES[genre];
+    }
+
+    /**
+     *
+     * @param row The row number of the movie
+     * @return the movie's year of release
+     */
+    public int yearAt(int row) {
+        return _buffer.getShort(entry(row) + 2);
+    }
+
+    /**
+     * Returns a list backed by the snapshot. A movie object is only created when its position in the
+     * list is first accessed. The list can be modified; changes are kept in memory and never written
+     * back to the snapshot.
+     *
+     * @return a modifiable list of the snapshot's movies
+     */
+    public List<Movie> asList() {
+        return new SnapshotList(this);
+    }
+
+    /**
+     * Unmaps the file. Reading from the snapshot afterwards throws an IllegalStateException
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // The only way to unmap a buffer before it is garbage collected. Unsafe is looked up by
+            // reflection as it is not part of the public API
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(theUnsafe.get(null), _buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // The file stays mapped until the buffer is garbage collected
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private int entry(int row) {
+        if (closed) {
+            throw new IllegalStateException("The snapshot was closed");
+        }
+        if (row < 0 || row >= count) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of " + count);
+        }
+        return recordTable + row * MovieStorage.RECORD_SIZE;
+    }
+
+    private String decode(int offset, int length) {
+        if (closed) {
+            throw new IllegalStateException("The snapshot was closed");
+        }
+        byte[] bytes = new byte[length];
+        _buffer.get(heap + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * List of the snapshot's movies that creates movie objects as they are accessed. Untouched
+     * positions are remembered by their row number in the snapshot. Row numbers are only tracked
+     * once the list is structurally modified; until then position and row are the same.
+     *
+     * A movie list reading through this list closes the snapshot while holding its lock, once every
+     * movie has been decoded. The closed check and the read are not atomic, so the list may only be read
+     * while holding the lock of the movie list that owns it; reading unmapped memory crashes the JVM.
+     */
+    private static class SnapshotList extends AbstractList<Movie> implements RandomAccess {
+
+        private final MovieSnapshot snapshot;
+        private Movie[] movies;
+        private int[] rows;
+        private int size;
+
+        SnapshotList(MovieSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.size = snapshot.size();
+        }
+
+        @Override
+        public Movie get(int index) {
+            checkIndex(index);
+            if (movies == null) {
+                movies = new Movie[Math.max(size, 10)];
+            }
+            Movie movie = movies[index];
+            if (movie == null) {
+                movie = snapshot.get(rows == null ? index : rows[index]);
+                movies[index] = movie;
+            }
+            return movie;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Movie set(int index, Movie movie) {
+            Movie previous = get(index);
+            movies[index] = movie;
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Movie movie) {
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+            }
+            trackRows(size + 1);
+            System.arraycopy(movies, index, movies, index + 1, size - index);
+            System.arraycopy(rows, index, rows, index + 1, size - index);
+            movies[index] = movie;
+            rows[index] = -1;
+            size++;
+            modCount++;
+        }
+
+        @Override
+        public Movie remove(int index) {
+            Movie removed = get(index);
+            trackRows(size);
+            System.arraycopy(movies, index + 1, movies, index, size - index - 1);
+            System.arraycopy(rows, index + 1, rows, index, size - index - 1);
+            size--;
+            movies[size] = null;
+            modCount++;
+            return removed;
+        }
+
+        @Override
+        public void clear() {
+            movies = null;
+            rows = new int[0];
+            size = 0;
+            modCount++;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+            }
+        }
+
+        /**
+         * Starts tracking row numbers if the list has not been modified yet and makes room for the
+         * given number of movies
+         */
+        private void trackRows(int capacity) {
+            if (movies == null) {
+                movies = new Movie[Math.max(size, 10)];
+            }
+            if (rows == null) {
+                rows = new int[movies.length];
+                for (int i = 0; i < size; i++) {
+                    rows[i] = i;
+                }
+            }
+            if (capacity > movies.length) {
+                int newLength = Math.max(capacity, movies.length + (movies.length >> 1));
+                movies = Arrays.copyOf(movies, newLength);
+            }
+            if (capacity > rows.length) {
+                rows = Arrays.copyOf(rows, movies.length);
+            }
+        }
+    }
+}
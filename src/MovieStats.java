@@ -0,0 +1,359 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Live movie counts per genre, year and director. The counts are updated as movies are added, edited
+ * and removed, so the statistics can be displayed without going through the movie list.
+ *
+ * Genres are counted in an array indexed by the genre's ordinal and years in a histogram array that grows
+ * to cover the range of years seen. Directors are counted in a hash map of mutable counters, so counting
+ * never boxes an Integer.
+ *
+ * The counts double as dictionaries of the distinct genres, years and directors in the collection, which
+ * valueCounts lists in order without going through the movie list.
+ *
+ * Counting a large list from scratch splits it across the fork/join pool. Each task counts its part into
+ * its own MovieStats and the partial counts are merged at the end, so the threads never share a counter.
+ *
+ * @author Feras Yahya
+ */
+public class MovieStats {
+
+    /**
+     * Fields
+     */
+    private int total;
+    private int[] genreCounts = new int[Movie.Genre.values().length];
+    private int noGenreCount;
+
+    private int[] yearCounts = new int[0];
+    private int firstYear;
+    // Years that would stretch the histogram too far (for example a mistyped year) are counted here
+    private Map<Integer, int[]> outlierYearCounts = new HashMap<>();
+
+    private static final int MAX_YEAR_SPAN = 1 << 16;
+
+    private Map<String, int[]> directorCounts = new HashMap<>();
+    // The directors in alphabetical order, kept until a director is added or drops to no movies
+    private String[] sortedDirectors;
+
+    // Number of movies below which a fork/join task counts its part instead of splitting it further
+    private static final int MIN_TASK_SIZE = 8192;
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Counts every movie of a list
+     *
+     * @param movies            The movies to count
+     * @param parallelThreshold Lists with at least this many movies are counted in parallel, smaller
+     *                          lists on the calling thread
+     * @return the counts
+     */
+    public static MovieStats count(List<Movie> movies, int parallelThreshold) {
+        if (movies.size() < parallelThreshold) {
+            return countRange(movies, 0, movies.size());
+        }
+        return ForkJoinPool.commonPool().invoke(new CountTask(movies, 0, movies.size()));
+    }
+
+    /**
+     * Counts a movie
+     *
+     * @param genre    The movie's genre
+     * @param year     The movie's year of release
+     * @param director The movie's director
+     */
+    public void add(Movie.Genre genre, int year, String director) {
+        update(genre, year, director, 1);
+    }
+
+    /**
+     * Stops counting a movie. The values must be the ones the movie was counted with
+     *
+     * @param genre    The movie's genre
+     * @param year     The movie's year of release
+     * @param director The movie's director
+     */
+    public void remove(Movie.Genre genre, int year, String director) {
+        update(genre, year, director, -1);
+    }
+
+    /**
+     * Adds the counts of another MovieStats to this one
+     *
+     * @param other The counts to add
+     */
+    public void merge(MovieStats other) {
+        total += other.total;
+        noGenreCount += other.noGenreCount;
+        for (int i = 0; i < genreCounts.length; i++) {
+            genreCounts[i] += other.genreCounts[i];
+        }
+        for (int i = 0; i < other.yearCounts.length; i++) {
+            if (other.yearCounts[i] != 0) {
+                updateYear(other.firstYear + i, other.yearCounts[i]);
+            }
+        }
+        for (Map.Entry<Integer, int[]> entry : other.outlierYearCounts.entrySet()) {
+            updateYear(entry.getKey(), entry.getValue()[0]);
+        }
+        for (Map.Entry<String, int[]> entry : other.directorCounts.entrySet()) {
+            updateDirector(entry.getKey(), entry.getValue()[0]);
+        }
+    }
+
+    /**
+     *
+     * @return the number of movies counted
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     *
+     * @param genre The genre
+     * @return the number of movies of the genre
+     */
+    public int countByGenre(Movie.Genre genre) {
+        return genre == null ? noGenreCount : genreCounts[genre.ordinal()];
+    }
+
+    /**
+     *
+     * @param year The year
+     * @return the number of movies released in the year
+     */
+    public int countByYear(int year) {
+        long index = (long) year - firstYear;
+        if (index >= 0 && index < yearCounts.length) {
+            return yearCounts[(int) index];
+        }
+        int[] count = outlierYearCounts.get(year);
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     *
+     * @param director The director's name
+     * @return the number of movies by the director
+     */
+    public int countByDirector(String director) {
+        int[] count = directorCounts.get(director);
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * Lists the distinct values of an attribute along with the number of movies that have each value.
+     * Genres are listed by name, years oldest first and directors alphabetically, with movies without a
+     * director last. Values without movies are left out
+     *
+     * @param filter The attribute
+     * @return the values, written as they are in a filter, mapped to their counts, in order
+     */
+    public Map<String, Integer> valueCounts(Movie.FILTER filter) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        switch (filter) {
+            case GENRE:
+                Movie.Genre[] genres = Movie.Genre.values();
+                Arrays.sort(genres, Comparator.comparing(Movie.Genre::name));
+                for (Movie.Genre genre : genres) {
+                    putCount(counts, genre.name(), genreCounts[genre.ordinal()]);
+                }
+                break;
+            case YEAR:
+                List<Integer> outliers = new ArrayList<>(outlierYearCounts.keySet());
+                outliers.sort(null);
+                int next = 0;
+                while (next < outliers.size() && outliers.get(next) < firstYear) {
+                    putCount(counts, String.valueOf(outliers.get(next)), outlierYearCounts.get(outliers.get(next))[0]);
+                    next++;
+                }
+                for (int i = 0; i < yearCounts.length; i++) {
+                    putCount(counts, String.valueOf(firstYear + i), yearCounts[i]);
+                }
+                for (; next < outliers.size(); next++) {
+                    putCount(counts, String.valueOf(outliers.get(next)), outlierYearCounts.get(outliers.get(next))[0]);
+                }
+                break;
+            case DIRECTOR:
+                if (sortedDirectors == null) {
+                    sortedDirectors = directorCounts.keySet().toArray(new String[0]);
+                    Arrays.sort(sortedDirectors, Comparator.nullsLast(Comparator.naturalOrder()));
+                }
+                for (String director : sortedDirectors) {
+                    putCount(counts, director, directorCounts.get(director)[0]);
+                }
+                break;
+        }
+        return counts;
+    }
+
+    /**
+     * Prints a readable string representation of the movie count per genre, in the order the genres
+     * are declared
+     *
+     * @return one line per genre that has movies
+     */
+    public String printByGenre() {
+        StringBuilder result = new StringBuilder();
+        for (Movie.Genre genre : Movie.Genre.values()) {
+            appendLine(result, genre.toString(), genreCounts[genre.ordinal()]);
+        }
+        appendLine(result, "null", noGenreCount);
+        return result.toString();
+    }
+
+    /**
+     * Prints a readable string representation of the movie count per year, oldest year first
+     *
+     * @return one line per year that has movies
+     */
+    public String printByYear() {
+        return print(valueCounts(Movie.FILTER.YEAR));
+    }
+
+    /**
+     * Prints a readable string representation of the movie count per director, in alphabetical order
+     *
+     * @return one line per director
+     */
+    public String printByDirector() {
+        return print(valueCounts(Movie.FILTER.DIRECTOR));
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void update(Movie.Genre genre, int year, String director, int delta) {
+        total += delta;
+
+        if (genre == null) {
+            noGenreCount += delta;
+        } else {
+            genreCounts[genre.ordinal()] += delta;
+        }
+
+        updateYear(year, delta);
+        updateDirector(director, delta);
+    }
+
+    private void updateYear(int year, int delta) {
+        long lastYear = (long) firstYear + yearCounts.length - 1;
+        if (yearCounts.length == 0) {
+            firstYear = year;
+            yearCounts = new int[1];
+        } else if (year < firstYear && lastYear - year < MAX_YEAR_SPAN) {
+            int[] grown = new int[yearCounts.length + firstYear - year];
+            System.arraycopy(yearCounts, 0, grown, firstYear - year, yearCounts.length);
+            yearCounts = grown;
+            firstYear = year;
+        } else if (year > lastYear && (long) year - firstYear < MAX_YEAR_SPAN) {
+            yearCounts = Arrays.copyOf(yearCounts, year - firstYear + 1);
+        }
+
+        long index = (long) year - firstYear;
+        if (index >= 0 && index < yearCounts.length) {
+            yearCounts[(int) index] += delta;
+        } else {
+            int[] count = outlierYearCounts.computeIfAbsent(year, key -> new int[1]);
+            count[0] += delta;
+            if (count[0] == 0) {
+                outlierYearCounts.remove(year);
+            }
+        }
+    }
+
+    private void updateDirector(String director, int delta) {
+        int[] count = directorCounts.get(director);
+        if (count == null) {
+            count = new int[1];
+            directorCounts.put(director, count);
+            sortedDirectors = null;
+        }
+        count[0] += delta;
+        if (count[0] == 0) {
+            directorCounts.remove(director);
+            sortedDirectors = null;
+        }
+    }
+
+    private static MovieStats countRange(List<Movie> movies, int from, int to) {
+        MovieStats stats = new MovieStats();
+        if (movies instanceof MovieStore) {
+            // Read the columns instead of going through every movie's view
+            MovieStore store = (MovieStore) movies;
+            for (int i = from; i < to; i++) {
+                stats.add(store.genreAt(i), store.yearAt(i), DirectorDictionary.nameOf(store.directorIdAt(i)));
+            }
+            return stats;
+        }
+        for (int i = from; i < to; i++) {
+            Movie movie = movies.get(i);
+            stats.add(movie.getGenre(), movie.getYear(), movie.getDirector());
+        }
+        return stats;
+    }
+
+    private static void putCount(Map<String, Integer> counts, String value, int count) {
+        if (count > 0) {
+            counts.put(value, count);
+        }
+    }
+
+    private static String print(Map<String, Integer> counts) {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            appendLine(result, String.valueOf(entry.getKey()), entry.getValue());
+        }
+        return result.toString();
+    }
+
+    private static void appendLine(StringBuilder result, String key, int count) {
+        if (count > 0) {
+            result.append(key).append(": ").append(count).append(" movies\n");
+        }
+    }
+
+    /**
+     * Counts a range of a list, splitting it in two until the ranges are small enough
+     */
+    private static class CountTask extends RecursiveTask<MovieStats> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Movie> movies;
+        private final int from;
+        private final int to;
+
+        CountTask(List<Movie> movies, int from, int to) {
+            this.movies = movies;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected MovieStats compute() {
+            if (to - from <= MIN_TASK_SIZE) {
+                return countRange(movies, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(movies, from, middle);
+            left.fork();
+            MovieStats stats = new CountTask(movies, middle, to).compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+}
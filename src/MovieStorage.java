@@ -0,0 +1,414 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes the movie list's data file in a compact, versioned binary format.
+ *
+ * Every version starts with the magic number, the format version, the snapshot generation and the
+ * record count. Directors are stored once in a dictionary and referenced by index, the same encoding as
+ * the DirectorDictionary in memory. Genres are stored as their ordinal in a byte and years as a short.
+ *
+ * Version 1 stores one variable-length record per movie (titles are varint length-prefixed UTF-8) and
+ * has to be read from start to end. Version 2, which is the version written today, is laid out so it
+ * can be memory mapped (see MovieSnapshot):
+ *
+ *   header         magic (int), version (short), reserved (short), generation (long), record count (int),
+ *                  director count (int), position of the string heap (long)
+ *   director table one entry per director: heap offset (int), length (int)
+ *   record table   one entry per movie: genre (byte), reserved (byte), year (short), director (int),
+ *                  title heap offset (int), title length (int, NULL_LENGTH for a movie without a title)
+ *   string heap    the UTF-8 bytes of every director and title
+ *
+ * Data files written by older versions of the application hold a serialized ArrayList of movies. These
+ * can still be read so they can be migrated to the binary format.
+ *
+ * @author Feras Yahya
+ */
+public class MovieStorage {
+
+    /**
+     * Fields
+     */
+    static final int MAGIC = 0x4D434D46; // "MCMF"
+    static final short VERSION_STREAMED = 1;
+    static final short VERSION_MAPPED = 2;
+
+    static final int HEADER_SIZE = 32;
+    static final int DIRECTOR_ENTRY_SIZE = 8;
+    static final int RECORD_SIZE = 16;
+    // The title length stored for a movie without a title, so it reads back as null rather than ""
+    static final int NULL_LENGTH = -1;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the binary format version a data file was written in
+     *
+     * @param file The data file
+     * @return the format version, or -1 if the file does not exist or is not in the binary format
+     */
+    public static int readVersion(File file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC ? in.readShort() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Years are stored as a short, in the data file and in a MovieStore
+     *
+     * @param year A year of release
+     * @return true if the year can be stored
+     */
+    public static boolean isValidYear(int year) {
+        return year >= Short.MIN_VALUE && year <= Short.MAX_VALUE;
+    }
+
+    /**
+     * Reads the movies stored in a binary data file
+     *
+     * @param file   The data file
+     * @param movies The list the movies are added to
+     * @return the generation of the snapshot stored in the file
+     * @throws IOException if the file cannot be read or is not in the binary format
+     */
+    public static long read(File file, List<Movie> movies) throws IOException {
+        if (readVersion(file) == VERSION_MAPPED) {
+            // Every movie is decoded while it is added, so the file does not stay mapped
+            try (MovieSnapshot snapshot = MovieSnapshot.open(file)) {
+                movies.addAll(snapshot.asList());
+                return snapshot.getGeneration();
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.flip();
+
+            require(channel, buffer, Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES * 2);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not a movie data file");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION_STREAMED) {
+                throw new IOException("Unsupported movie data file version " + version);
+            }
+            long generation = buffer.getLong();
+            int count = buffer.getInt();
+            int directorCount = buffer.getInt();
+            // Every director takes at least a byte and every movie at least seven, so counts read from a
+            // damaged header are caught before anything is allocated for them
+            long left = remaining(channel, buffer);
+            if (directorCount < 0 || count < 0 || directorCount + 7L * count > left) {
+                throw new IOException(file + " is damaged: " + count + " movies and " + directorCount
+                        + " directors do not fit in its " + left + " bytes");
+            }
+
+            int[] directors = new int[directorCount];
+            for (int i = 0; i < directorCount; i++) {
+                directors[i] = DirectorDictionary.idOf(readString(channel, buffer));
+            }
+
+            Movie.Genre[] genres = Movie.Genre.values();
+            if (movies instanceof ArrayList) {
+                ((ArrayList<Movie>) movies).ensureCapacity(movies.size() + count);
+            }
+            for (int i = 0; i < count; i++) {
+                require(channel, buffer, Byte.BYTES + Short.BYTES + Integer.BYTES);
+                byte genre = buffer.get();
+                short year = buffer.getShort();
+                int director = buffer.getInt();
+                String title = readString(channel, buffer);
+
+                movies.add(new Movie(title, director < 0 ? DirectorDictionary.NONE : directors[director],
+                        genre < 0 ? null : genres[genre], year));
+            }
+            return generation;
+        }
+    }
+
+    /**
+     * Writes the movies to a data file in the mapped binary format (version 2). The file is forced to
+     * disk before the method returns.
+     *
+     * @param file       The data file
+     * @param movies     The movies to write
+     * @param generation The snapshot generation stored in the header
+     * @throws IOException if the file cannot be written, or the collection does not fit in a single
+     *                     mapped file
+     */
+    public static void write(File file, List<Movie> movies, long generation) throws IOException {
+        // Build the file's director table so each director's name is only written once. Movies already
+        // hold their director as a DirectorDictionary id, which is mapped to a dense index in the file
+        int[] fileIds = new int[DirectorDictionary.size()];
+        Arrays.fill(fileIds, -1);
+        List<String> directors = new ArrayList<>();
+        for (Movie movie : movies) {
+            int director = movie.getDirectorId();
+            if (director == DirectorDictionary.NONE) {
+                continue;
+            }
+            if (director >= fileIds.length) {
+                int length = fileIds.length;
+                fileIds = Arrays.copyOf(fileIds, Math.max(director + 1, DirectorDictionary.size()));
+                Arrays.fill(fileIds, length, fileIds.length, -1);
+            }
+            if (fileIds[director] < 0) {
+                fileIds[director] = directors.size();
+                directors.add(DirectorDictionary.nameOf(director));
+            }
+        }
+
+        try (SnapshotWriter writer = new SnapshotWriter(file, movies.size(), directors, generation)) {
+            for (Movie movie : movies) {
+                int director = movie.getDirectorId();
+                writer.add(movie.getTitle(), director == DirectorDictionary.NONE ? -1 : fileIds[director],
+                        movie.getGenre(), movie.getYear());
+            }
+        }
+    }
+
+    /**
+     * Reads a data file written by older versions of the application, which stored the movie list as
+     * a serialized ArrayList. The list may be preceded by the snapshot generation.
+     *
+     * @param file   The data file
+     * @param movies The list the movies are added to
+     * @return the generation of the snapshot stored in the file, 0 if the file has none
+     * @throws IOException if the file cannot be read
+     */
+    public static long readLegacy(File file, List<Movie> movies) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            long generation = 0;
+            Object first = ois.readObject();
+            if (first instanceof Long) {
+                generation = (Long) first;
+                first = ois.readObject();
+            }
+            for (Object movie : (List<?>) first) {
+                movies.add((Movie) movie);
+            }
+            return generation;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(file + " is not a movie data file", e);
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Makes sure the buffer holds at least the given number of unread bytes, reading more from the
+     * channel if needed
+     */
+    private static void require(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of movie data file");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * The number of bytes of the file that have not been read yet, including those in the buffer
+     */
+    private static long remaining(FileChannel channel, ByteBuffer buffer) throws IOException {
+        return channel.size() - channel.position() + buffer.remaining();
+    }
+
+    private static String readString(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IOException("Invalid string length in movie data file");
+            }
+            require(channel, buffer, 1);
+            b = buffer.get();
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        // The length of a damaged string could be anything, so it is checked before the bytes are allocated
+        if (length < 0 || length > remaining(channel, buffer)) {
+            throw new IOException("String of " + length + " bytes runs past the end of the movie data file");
+        }
+
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            require(channel, buffer, 1);
+            int chunk = Math.min(buffer.remaining(), length - read);
+            buffer.get(bytes, read, chunk);
+            read += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a data file in the mapped binary format one movie at a time, without holding the movies.
+     *
+     * The number of movies and the director table must be known up front, which fixes where every part
+     * of the file starts. The header, the director table and the records are then written from the
+     * start of the file through one buffer, while the director names and the titles are written to the
+     * string heap through another, so a single pass over the movies writes the whole file. Used by
+     * MovieStorage.write and by CatalogueGenerator, which streams collections that do not fit in memory.
+     */
+    public static class SnapshotWriter implements Closeable {
+
+        private final File file;
+        private final FileChannel channel;
+        private final ByteBuffer records = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final ByteBuffer strings = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        // Where the content of each buffer goes in the file
+        private long recordPosition;
+        private long stringPosition;
+
+        private final long heap;
+        // The offset of the next title in the string heap
+        private long offset;
+        private final int count;
+        private final int directorCount;
+        private int written;
+
+        /**
+         * Creates the data file and writes its header and director table
+         *
+         * @param file       The data file, replaced if it exists
+         * @param count      The number of movies that will be added
+         * @param directors  The director table. Movies refer to their director by index in it
+         * @param generation The snapshot generation stored in the header
+         */
+        public SnapshotWriter(File file, int count, List<String> directors, long generation) throws IOException {
+            this.file = file;
+            this.count = count;
+            this.directorCount = directors.size();
+            this.heap = HEADER_SIZE + (long) directors.size() * DIRECTOR_ENTRY_SIZE + (long) count * RECORD_SIZE;
+            this.stringPosition = heap;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                records.putInt(MAGIC);
+                records.putShort(VERSION_MAPPED);
+                records.putShort((short) 0);
+                records.putLong(generation);
+                records.putInt(count);
+                records.putInt(directors.size());
+                records.putLong(heap);
+
+                for (String director : directors) {
+                    byte[] name = director.getBytes(StandardCharsets.UTF_8);
+                    if (records.remaining() < DIRECTOR_ENTRY_SIZE) {
+                        recordPosition = drain(records, recordPosition);
+                    }
+                    records.putInt((int) offset);
+                    records.putInt(name.length);
+                    putString(name);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Adds the next movie
+         *
+         * @param title    The movie's title, or null
+         * @param director The index of the movie's director in the director table, or -1 if it has none
+         * @param genre    The movie's genre, or null
+         * @param year     The movie's year of release, see isValidYear
+         * @throws IOException if the file cannot be written, more movies are added than were announced, or
+         *                     the collection does not fit in a single mapped file
+         * @throws IllegalArgumentException if the director is not in the table or the year cannot be stored
+         */
+        public void add(String title, int director, Movie.Genre genre, int year) throws IOException {
+            if (written == count) {
+                throw new IOException("More than the " + count + " movies announced were added to " + file);
+            }
+            if (director < -1 || director >= directorCount) {
+                throw new IllegalArgumentException("No director " + director + " in the director table");
+            }
+            if (!isValidYear(year)) {
+                throw new IllegalArgumentException("The year " + year + " of \"" + title + "\" cannot be stored");
+            }
+            byte[] bytes = title == null ? new byte[0] : title.getBytes(StandardCharsets.UTF_8);
+            if (heap + offset + bytes.length > Integer.MAX_VALUE) {
+                throw new IOException("The movie collection is too large for a single data file");
+            }
+            if (records.remaining() < RECORD_SIZE) {
+                recordPosition = drain(records, recordPosition);
+            }
+            records.put(genre == null ? -1 : (byte) genre.ordinal());
+            records.put((byte) 0);
+            records.putShort((short) year);
+            records.putInt(director);
+            records.putInt((int) offset);
+            records.putInt(title == null ? NULL_LENGTH : bytes.length);
+            putString(bytes);
+            written++;
+        }
+
+        /**
+         * Writes what is left in the buffers and forces the file to disk
+         *
+         * @throws IOException if the file cannot be written, or fewer movies were added than were announced
+         */
+        @Override
+        public void close() throws IOException {
+            try (FileChannel channel = this.channel) {
+                if (written < count) {
+                    throw new IOException("Only " + written + " of the " + count + " movies announced were added to "
+                            + file);
+                }
+                recordPosition = drain(records, recordPosition);
+                stringPosition = drain(strings, stringPosition);
+                channel.force(true);
+            }
+        }
+
+        private void putString(byte[] bytes) throws IOException {
+            int put = 0;
+            while (put < bytes.length) {
+                if (!strings.hasRemaining()) {
+                    stringPosition = drain(strings, stringPosition);
+                }
+                int chunk = Math.min(strings.remaining(), bytes.length - put);
+                strings.put(bytes, put, chunk);
+                put += chunk;
+            }
+            offset += bytes.length;
+        }
+
+        /**
+         * Writes the content of a buffer to the file at a position
+         *
+         * @return the position after it
+         */
+        private long drain(ByteBuffer buffer, long position) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+            return position;
+        }
+    }
+}
@@ -0,0 +1,448 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Column oriented storage for the movies of a movie list, an alternative to an ArrayList of individually
+ * allocated Movie objects (see MovieList(MovieStore)).
+ *
+ * Each attribute is kept in its own primitive array: the genre ordinal in a byte, the year in a short
+ * and the director as its DirectorDictionary id in an int. Titles are packed one after the other into a
+ * single char array and found through an offset and a length per movie. Scanning one attribute of every
+ * movie, as counting and sorting do, therefore reads one contiguous array instead of following a pointer
+ * to every movie and from there to its genre.
+ *
+ * Every movie is stored in a slot that it keeps while it is in the store, whatever its position in the
+ * list. The movies handed out by the list are flyweight views over a slot: their getters read the columns
+ * and their setters write them. A slot's view is created when it is first accessed and then reused, so a
+ * movie is always the same object, as the movie list's indexes expect. A movie added to the store is
+ * copied into a new slot; the object that was passed in is not kept. A movie removed from the store is
+ * detached from its slot and keeps its values as an ordinary movie.
+ *
+ * Years are stored as a short, as they are in the data file. Slots of removed movies are not reused.
+ *
+ * @author Feras Yahya
+ */
+public class MovieStore extends AbstractList<Movie> implements RandomAccess {
+
+    /**
+     * Fields
+     */
+
+    // Columns, indexed by slot
+    private byte[] _genres;
+    private short[] _years;
+    private int[] _directorIds;
+    private int[] _titleOffsets;
+    // The length of each title in _titles, -1 for a movie without a title
+    private int[] _titleLengths;
+    private int _slots;
+
+    // Every title, packed. Editing a title appends the new one and leaves the old one as garbage, which
+    // is compacted away once it makes up half of the array
+    private char[] _titles;
+    private int _titlesUsed;
+    private int _titlesGarbage;
+
+    // The slot of each position in the list
+    private int[] _order;
+    private int size;
+
+    // The view of each slot, created when the slot is first accessed
+    private Row[] _rows;
+
+    private static final Movie.Genre[] GENRES = Movie.Genre.values();
+    private static final int NO_GENRE = -1;
+    private static final int MIN_GARBAGE = 1 << 12;
+
+    /**
+     * Default constructor
+     */
+    public MovieStore() {
+        this(16);
+    }
+
+    /**
+     * Parameterized constructor
+     *
+     * @param capacity The number of movies to make room for
+     */
+    public MovieStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        _genres = new byte[capacity];
+        _years = new short[capacity];
+        _directorIds = new int[capacity];
+        _titleOffsets = new int[capacity];
+        _titleLengths = new int[capacity];
+        _rows = new Row[capacity];
+        _order = new int[capacity];
+        _titles = new char[capacity * 16];
+    }
+
+    /**
+     * Parameterized constructor
+     *
+     * @param movies The movies to copy into the store, in order
+     */
+    public MovieStore(Collection<? extends Movie> movies) {
+        this(movies.size());
+        for (Movie movie : movies) {
+            _order[size++] = store(movie);
+        }
+    }
+
+    /**
+     * Public Methods
+     */
+
+    @Override
+    public Movie get(int index) {
+        return row(_order[checkIndex(index)]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Replaces the movie at a position. A view of this store is moved to the position as it is, which is
+     * how the list is reordered. Any other movie's values are copied into the slot at the position, so
+     * the view returned shows the new values
+     */
+    @Override
+    public Movie set(int index, Movie movie) {
+        int slot = _order[checkIndex(index)];
+        Row previous = row(slot);
+        if (movie instanceof Row && ((Row) movie).store() == this && ((Row) movie).slot >= 0) {
+            _order[index] = ((Row) movie).slot;
+        } else {
+            previous.setTitle(movie.getTitle());
+            previous.setDirector(movie.getDirector());
+            previous.setGenre(movie.getGenre());
+            previous.setYear(movie.getYear());
+        }
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Movie movie) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+        }
+        int slot = slotOf(movie);
+        if (size == _order.length) {
+            _order = Arrays.copyOf(_order, size + (size >> 1) + 16);
+        }
+        System.arraycopy(_order, index, _order, index + 1, size - index);
+        _order[index] = slot;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Movie remove(int index) {
+        int slot = _order[checkIndex(index)];
+        Row removed = row(slot);
+        System.arraycopy(_order, index + 1, _order, index, size - index - 1);
+        size--;
+        modCount++;
+        release(slot);
+        return removed;
+    }
+
+    /**
+     * Removes the matching movies in a single pass, instead of shifting the list once per removal
+     */
+    @Override
+    public boolean removeIf(Predicate<? super Movie> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = _order[i];
+            if (filter.test(row(slot))) {
+                release(slot);
+            } else {
+                _order[kept++] = slot;
+            }
+        }
+        boolean removed = kept < size;
+        size = kept;
+        if (removed) {
+            modCount++;
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            release(_order[i]);
+        }
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Column access by position, without creating the movie's view
+     */
+
+    /**
+     *
+     * @param index The position of the movie
+     * @return the movie's genre
+     */
+    public Movie.Genre genreAt(int index) {
+        return genre(_order[checkIndex(index)]);
+    }
+
+    /**
+     *
+     * @param index The position of the movie
+     * @return the movie's year of release
+     */
+    public int yearAt(int index) {
+        return _years[_order[checkIndex(index)]];
+    }
+
+    /**
+     *
+     * @param index The position of the movie
+     * @return the movie's director as an id in the DirectorDictionary
+     */
+    public int directorIdAt(int index) {
+        return _directorIds[_order[checkIndex(index)]];
+    }
+
+    /**
+     *
+     * @param index The position of the movie
+     * @return the movie's title
+     */
+    public String titleAt(int index) {
+        return title(_order[checkIndex(index)]);
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+        }
+        return index;
+    }
+
+    /**
+     * @return the slot of a view of this store, or a new slot holding a copy of any other movie
+     */
+    private int slotOf(Movie movie) {
+        if (movie instanceof Row && ((Row) movie).store() == this && ((Row) movie).slot >= 0) {
+            return ((Row) movie).slot;
+        }
+        return store(movie);
+    }
+
+    /**
+     * Copies a movie's values into a new slot
+     */
+    private int store(Movie movie) {
+        if (_slots == _genres.length) {
+            int capacity = _slots + (_slots >> 1) + 16;
+            _genres = Arrays.copyOf(_genres, capacity);
+            _years = Arrays.copyOf(_years, capacity);
+            _directorIds = Arrays.copyOf(_directorIds, capacity);
+            _titleOffsets = Arrays.copyOf(_titleOffsets, capacity);
+            _titleLengths = Arrays.copyOf(_titleLengths, capacity);
+            _rows = Arrays.copyOf(_rows, capacity);
+        }
+        int slot = _slots++;
+        _genres[slot] = movie.getGenre() == null ? NO_GENRE : (byte) movie.getGenre().ordinal();
+        _years[slot] = year(movie.getYear());
+        _directorIds[slot] = movie.getDirectorId();
+        _titleLengths[slot] = -1;
+        setTitle(slot, movie.getTitle());
+        return slot;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the year does not fit in the short it is stored in
+     */
+    private static short year(int year) {
+        if (!MovieStorage.isValidYear(year)) {
+            throw new IllegalArgumentException("The year " + year + " cannot be stored");
+        }
+        return (short) year;
+    }
+
+    private Row row(int slot) {
+        Row row = _rows[slot];
+        if (row == null) {
+            row = new Row(slot);
+            _rows[slot] = row;
+        }
+        return row;
+    }
+
+    /**
+     * Frees a slot that is no longer in the list. Its view, if it has one, keeps the values
+     */
+    private void release(int slot) {
+        Row row = _rows[slot];
+        if (row != null) {
+            row.detach();
+            _rows[slot] = null;
+        }
+        if (_titleLengths[slot] > 0) {
+            _titlesGarbage += _titleLengths[slot];
+        }
+        _titleLengths[slot] = -1;
+    }
+
+    private Movie.Genre genre(int slot) {
+        return _genres[slot] == NO_GENRE ? null : GENRES[_genres[slot]];
+    }
+
+    private String title(int slot) {
+        int length = _titleLengths[slot];
+        return length < 0 ? null : new String(_titles, _titleOffsets[slot], length);
+    }
+
+    private void setTitle(int slot, String title) {
+        if (_titleLengths[slot] > 0) {
+            _titlesGarbage += _titleLengths[slot];
+        }
+        if (title == null) {
+            _titleLengths[slot] = -1;
+            return;
+        }
+        if (_titlesGarbage > MIN_GARBAGE && _titlesGarbage > _titlesUsed / 2) {
+            compactTitles();
+        }
+        if (_titlesUsed + title.length() > _titles.length) {
+            _titles = Arrays.copyOf(_titles,
+                    Math.max(_titlesUsed + title.length(), _titles.length + (_titles.length >> 1)));
+        }
+        title.getChars(0, title.length(), _titles, _titlesUsed);
+        _titleOffsets[slot] = _titlesUsed;
+        _titleLengths[slot] = title.length();
+        _titlesUsed += title.length();
+    }
+
+    /**
+     * Copies the titles that are still used into a new array, in slot order
+     */
+    private void compactTitles() {
+        char[] compacted = new char[Math.max(16, _titlesUsed - _titlesGarbage + (_titles.length >> 2))];
+        int used = 0;
+        for (int slot = 0; slot < _slots; slot++) {
+            int length = _titleLengths[slot];
+            if (length > 0) {
+                System.arraycopy(_titles, _titleOffsets[slot], compacted, used, length);
+                _titleOffsets[slot] = used;
+                used += length;
+            }
+        }
+        _titles = compacted;
+        _titlesUsed = used;
+        _titlesGarbage = 0;
+    }
+
+    /**
+     * Flyweight view of a slot. Once the movie is removed from the store the view is detached and holds
+     * its values itself, like any other movie
+     */
+    private class Row extends Movie {
+
+        private static final long serialVersionUID = 1L;
+
+        private int slot;
+
+        Row(int slot) {
+            super(null, DirectorDictionary.NONE, null, 0);
+            this.slot = slot;
+        }
+
+        MovieStore store() {
+            return MovieStore.this;
+        }
+
+        @Override
+        public String getTitle() {
+            return slot < 0 ? super.getTitle() : title(slot);
+        }
+
+        @Override
+        public void setTitle(String title) {
+            if (slot < 0) {
+                super.setTitle(title);
+            } else {
+                MovieStore.this.setTitle(slot, title);
+            }
+        }
+
+        @Override
+        public String getDirector() {
+            return DirectorDictionary.nameOf(getDirectorId());
+        }
+
+        @Override
+        public int getDirectorId() {
+            return slot < 0 ? super.getDirectorId() : _directorIds[slot];
+        }
+
+        @Override
+        public void setDirector(String director) {
+            if (slot < 0) {
+                super.setDirector(director);
+            } else {
+                _directorIds[slot] = DirectorDictionary.idOf(director);
+            }
+        }
+
+        @Override
+        public Movie.Genre getGenre() {
+            return slot < 0 ? super.getGenre() : genre(slot);
+        }
+
+        @Override
+        public void setGenre(Movie.Genre genre) {
+            if (slot < 0) {
+                super.setGenre(genre);
+            } else {
+                _genres[slot] = genre == null ? NO_GENRE : (byte) genre.ordinal();
+            }
+        }
+
+        @Override
+        public int getYear() {
+            return slot < 0 ? super.getYear() : _years[slot];
+        }
+
+        @Override
+        public void setYear(int year) {
+            if (slot < 0) {
+                super.setYear(year);
+            } else {
+                _years[slot] = year(year);
+            }
+        }
+
+        /**
+         * Copies the slot's values into the movie's own fields and stops reading the columns
+         */
+        void detach() {
+            String title = getTitle();
+            String director = getDirector();
+            Movie.Genre genre = getGenre();
+            int year = getYear();
+            slot = -1;
+            super.setTitle(title);
+            super.setDirector(director);
+            super.setGenre(genre);
+            super.setYear(year);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps frozen copies of a movie list's movies up to date, so the list can hand out snapshots of itself
+ * (see MovieListSnapshot) without copying its movies each time.
+ *
+ * The copies are kept in chunks of up to 2 * CHUNK_SIZE movies. Handing out a snapshot shares the current
+ * chunks with it and starts a new epoch. From then on a change copies the chunk it touches before writing
+ * to it, unless the chunk was already copied in the current epoch, so a change costs at most one chunk
+ * copy however many snapshots are being read. Without snapshots being taken, changes are made in place.
+ *
+ * The copies are built from the list the first time a snapshot is taken, and then follow the list's
+ * changes by position, in the order they are published. Changes the list does not publish, such as
+ * sorting or reloading the list, reset them, and they are built again for the next snapshot.
+ *
+ * All methods are called with the movie list's lock held.
+ *
+ * @author Feras Yahya
+ */
+public class MovieVersions implements MovieListListener {
+
+    /**
+     * Fields
+     */
+    private boolean built;
+    private Movie[][] chunks = new Movie[0][];
+    private int[] counts = new int[0];
+    // The epoch in which each chunk was created or last copied. Only chunks of the current epoch may be
+    // written to, the others are shared with snapshots
+    private int[] epochs = new int[0];
+    private int chunkCount;
+    private int size;
+    private int epoch;
+
+    // The last snapshot handed out, returned again until the list changes
+    private MovieListSnapshot latest;
+
+    private static final int CHUNK_SIZE = 512;
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns a snapshot of the list as it is now
+     *
+     * @param movies  The list's movies, used to build the copies the first time
+     * @param version The list's version
+     * @return the snapshot
+     */
+    public MovieListSnapshot snapshot(List<Movie> movies, long version) {
+        if (!built) {
+            build(movies);
+        }
+        if (latest == null || latest.getVersion() != version) {
+            latest = new MovieListSnapshot(Arrays.copyOf(chunks, chunkCount), Arrays.copyOf(counts, chunkCount),
+                    version);
+            // The chunks now belong to the snapshot as well
+            epoch++;
+        }
+        return latest;
+    }
+
+    /**
+     *
+     * @return true once the copies have been built, until they are reset
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Drops the copies, after a change that was not published. They are built again for the next snapshot
+     */
+    public void reset() {
+        built = false;
+        latest = null;
+        chunks = new Movie[0][];
+        counts = new int[0];
+        epochs = new int[0];
+        chunkCount = 0;
+        size = 0;
+    }
+
+    /**
+     * Applies the changes to the copies, if they have been built
+     *
+     * @param changes The changes, in the order they were made
+     */
+    @Override
+    public void moviesChanged(List<MovieChange> changes) {
+        if (!built) {
+            return;
+        }
+        for (MovieChange change : changes) {
+            switch (change.getType()) {
+                case ADDED:
+                    insert(change.getPosition(), MovieListSnapshot.freeze(change.getMovie()));
+                    break;
+                case UPDATED:
+                    replace(change.getPosition(), MovieListSnapshot.freeze(change.getMovie()));
+                    break;
+                case REMOVED:
+                default:
+                    remove(change.getPosition());
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void build(List<Movie> movies) {
+        reset();
+        int size = movies.size();
+        for (int start = 0; start < size; start += CHUNK_SIZE) {
+            int count = Math.min(CHUNK_SIZE, size - start);
+            Movie[] chunk = new Movie[2 * CHUNK_SIZE];
+            for (int i = 0; i < count; i++) {
+                chunk[i] = MovieListSnapshot.freeze(movies.get(start + i));
+            }
+            addChunk(chunkCount, chunk, count);
+        }
+        this.size = size;
+        built = true;
+    }
+
+    private void insert(int position, Movie movie) {
+        int chunk = chunkOf(position, true);
+        if (chunk == chunkCount || counts[chunk] == 2 * CHUNK_SIZE) {
+            if (chunk < chunkCount && position - start(chunk) < counts[chunk]) {
+                split(chunk);
+                chunk = chunkOf(position, true);
+            } else {
+                // Appending to a full chunk, or to an empty list, starts a new chunk after it
+                chunk = chunk == chunkCount ? chunkCount : chunk + 1;
+                addChunk(chunk, new Movie[2 * CHUNK_SIZE], 0);
+            }
+        }
+        Movie[] movies = writable(chunk);
+        int offset = position - start(chunk);
+        System.arraycopy(movies, offset, movies, offset + 1, counts[chunk] - offset);
+        movies[offset] = movie;
+        counts[chunk]++;
+        size++;
+    }
+
+    private void replace(int position, Movie movie) {
+        int chunk = chunkOf(position, false);
+        writable(chunk)[position - start(chunk)] = movie;
+    }
+
+    private void remove(int position) {
+        int chunk = chunkOf(position, false);
+        Movie[] movies = writable(chunk);
+        int offset = position - start(chunk);
+        System.arraycopy(movies, offset + 1, movies, offset, counts[chunk] - offset - 1);
+        counts[chunk]--;
+        size--;
+        movies[counts[chunk]] = null;
+        if (counts[chunk] == 0) {
+            System.arraycopy(chunks, chunk + 1, chunks, chunk, chunkCount - chunk - 1);
+            System.arraycopy(counts, chunk + 1, counts, chunk, chunkCount - chunk - 1);
+            System.arraycopy(epochs, chunk + 1, epochs, chunk, chunkCount - chunk - 1);
+            chunkCount--;
+            chunks[chunkCount] = null;
+        }
+    }
+
+    /**
+     * Finds the chunk holding a position. Appends are by far the most common change, so the last chunk
+     * is checked first
+     *
+     * @param append True to accept the position just after the last movie of a chunk
+     * @return the chunk, or chunkCount if the list is empty
+     */
+    private int chunkOf(int position, boolean append) {
+        if (chunkCount == 0) {
+            return 0;
+        }
+        int last = chunkCount - 1;
+        int lastStart = start(last);
+        if (position >= lastStart) {
+            return last;
+        }
+        int start = 0;
+        for (int chunk = 0; chunk < last; chunk++) {
+            int end = start + counts[chunk];
+            if (position < end || (append && position == end)) {
+                return chunk;
+            }
+            start = end;
+        }
+        return last;
+    }
+
+    private int start(int chunk) {
+        if (chunk == chunkCount - 1) {
+            // Counted from the end, as the last chunk is where appends go
+            return size - counts[chunk];
+        }
+        int start = 0;
+        for (int i = 0; i < chunk; i++) {
+            start += counts[i];
+        }
+        return start;
+    }
+
+    /**
+     * @return the chunk's array, copied first if it is shared with a snapshot
+     */
+    private Movie[] writable(int chunk) {
+        if (epochs[chunk] != epoch) {
+            chunks[chunk] = chunks[chunk].clone();
+            epochs[chunk] = epoch;
+        }
+        return chunks[chunk];
+    }
+
+    /**
+     * Splits a full chunk into two halves
+     */
+    private void split(int chunk) {
+        Movie[] second = new Movie[2 * CHUNK_SIZE];
+        System.arraycopy(chunks[chunk], CHUNK_SIZE, second, 0, counts[chunk] - CHUNK_SIZE);
+        Movie[] first = new Movie[2 * CHUNK_SIZE];
+        System.arraycopy(chunks[chunk], 0, first, 0, CHUNK_SIZE);
+        int secondCount = counts[chunk] - CHUNK_SIZE;
+        chunks[chunk] = first;
+        counts[chunk] = CHUNK_SIZE;
+        epochs[chunk] = epoch;
+        addChunk(chunk + 1, second, secondCount);
+    }
+
+    private void addChunk(int index, Movie[] chunk, int count) {
+        if (chunkCount == chunks.length) {
+            int capacity = chunkCount + (chunkCount >> 1) + 4;
+            chunks = Arrays.copyOf(chunks, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            epochs = Arrays.copyOf(epochs, capacity);
+        }
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        System.arraycopy(counts, index, counts, index + 1, chunkCount - index);
+        System.arraycopy(epochs, index, epochs, index + 1, chunkCount - index);
+        chunks[index] = chunk;
+        counts[index] = count;
+        epochs[index] = epoch;
+        chunkCount++;
+    }
+}
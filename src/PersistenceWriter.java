@@ -0,0 +1,354 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes a movie list's changes to disk on a background thread, so adding, editing or deleting a movie
+ * never waits for the disk on the JavaFX Application Thread.
+ *
+ * The writer subscribes to the movie list. A change only marks the list dirty; bursts of changes are
+ * coalesced and written to the change journal together, with a single disk sync, once the list has
+ * been dirty for a short delay or once enough changes have piled up. When the journal has grown long
+ * enough, the writer compacts it into a new snapshot of the data file instead.
+ *
+ * Call flush() before the application exits, so the changes that are still waiting are written.
+ *
+ * @author Feras Yahya
+ */
+public class PersistenceWriter implements MovieListListener {
+
+    /**
+     * Fields
+     */
+    private final MovieList movieList;
+    private final String filename;
+    private final MovieJournal journal;
+    private final long delayMillis;
+    private final int maxPending;
+    private final ScheduledExecutorService scheduler;
+
+    // Changes waiting to be written, guarded by this
+    private List<MovieChange> pending = new ArrayList<>();
+    private long dirtySince;
+    private boolean checkpointRequested;
+    private boolean suspended;
+    private ScheduledFuture<?> scheduled;
+
+    // Held while writing, so the journal and the data file are only ever written by one thread
+    private final Object writeLock = new Object();
+
+    // Number of journal records after which the journal is compacted into a new snapshot
+    private static final int CHECKPOINT_INTERVAL = 100;
+
+    // Save statistics. Latency is the time from the first change of a batch to the batch being on disk
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong changesWritten = new AtomicLong();
+    private final AtomicLong checkpointCount = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private volatile long lastLatency;
+    private volatile int maxQueueDepth;
+
+    // What was found in the journal when the list was loaded
+    private final int replayedRecords;
+    private final long ignoredJournalBytes;
+
+    /**
+     * Parameterized constructor
+     *
+     * @param movieList   The movie list to save
+     * @param filename    The movie list's data file
+     * @param journal     The movie list's change journal, already replayed
+     * @param delayMillis How long changes are collected before they are written
+     * @param maxPending  Number of waiting changes at which they are written without waiting for the delay
+     */
+    public PersistenceWriter(MovieList movieList, String filename, MovieJournal journal, long delayMillis,
+            int maxPending) {
+        this.movieList = movieList;
+        this.filename = filename;
+        this.journal = journal;
+        this.replayedRecords = journal.getRecordCount();
+        this.ignoredJournalBytes = journal.getIgnoredBytes();
+        this.delayMillis = delayMillis;
+        this.maxPending = maxPending;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "movie-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Queues the changes and schedules a write. Called by the movie list, which is locked
+     *
+     * @param changes The changes, in the order they were made
+     */
+    @Override
+    public synchronized void moviesChanged(List<MovieChange> changes) {
+        if (pending.isEmpty()) {
+            dirtySince = System.nanoTime();
+        }
+        if (suspended) {
+            // The changes will be part of the snapshot written when the writer is resumed
+            checkpointRequested = true;
+            return;
+        }
+        pending.addAll(changes);
+        maxQueueDepth = Math.max(maxQueueDepth, pending.size());
+        schedule(pending.size() >= maxPending ? 0 : delayMillis);
+    }
+
+    /**
+     * Asks for the whole list to be written as a new snapshot instead of journaling the changes. Needed
+     * after a change the journal cannot express, such as sorting the list
+     */
+    public synchronized void requestCheckpoint() {
+        checkpointRequested = true;
+        if (pending.isEmpty()) {
+            dirtySince = System.nanoTime();
+        }
+        if (!suspended) {
+            schedule(0);
+        }
+    }
+
+    /**
+     * Stops journaling changes, for a bulk operation such as an import that is saved as one snapshot
+     * at the end. Nothing is written until resume() is called
+     */
+    public synchronized void suspend() {
+        suspended = true;
+    }
+
+    /**
+     * Starts saving changes again. If changes were made while the writer was suspended, a snapshot is
+     * scheduled
+     */
+    public synchronized void resume() {
+        suspended = false;
+        if (checkpointRequested) {
+            schedule(0);
+        }
+    }
+
+    /**
+     * Writes every waiting change to disk and returns once they are there
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            List<MovieChange> batch;
+            long since;
+            boolean checkpoint;
+            synchronized (this) {
+                if (suspended) {
+                    return;
+                }
+                batch = pending;
+                since = dirtySince;
+                checkpoint = checkpointRequested;
+                pending = new ArrayList<>();
+            }
+            if (batch.isEmpty() && !checkpoint) {
+                return;
+            }
+
+            if (checkpoint || journal.getRecordCount() + batch.size() >= CHECKPOINT_INTERVAL) {
+                writeSnapshot(batch, since);
+            } else {
+                journal.moviesChanged(batch);
+                recordWrite(batch.size(), since);
+            }
+        }
+    }
+
+    /**
+     * Writes the whole list as a new snapshot of the data file and empties the journal. Returns once the
+     * snapshot is on disk
+     */
+    public void checkpoint() {
+        synchronized (this) {
+            checkpointRequested = true;
+            if (pending.isEmpty()) {
+                dirtySince = System.nanoTime();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Writes the waiting changes, stops the background thread and closes the journal
+     */
+    public void close() {
+        flush();
+        scheduler.shutdownNow();
+        synchronized (writeLock) {
+            journal.close();
+        }
+    }
+
+    /**
+     *
+     * @return the number of changes waiting to be written
+     */
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     *
+     * @return the largest number of changes that were ever waiting to be written at once
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     *
+     * @return the number of writes, each of which saved a batch of changes
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     *
+     * @return the number of changes saved
+     */
+    public long getChangesWritten() {
+        return changesWritten.get();
+    }
+
+    /**
+     *
+     * @return the number of times the journal was compacted into a new snapshot
+     */
+    public long getCheckpointCount() {
+        return checkpointCount.get();
+    }
+
+    /**
+     *
+     * @return how long the most recent batch took from its first change to being on disk, in milliseconds
+     */
+    public double getLastSaveLatencyMillis() {
+        return lastLatency / 1_000_000.0;
+    }
+
+    /**
+     *
+     * @return the average save latency, in milliseconds
+     */
+    public double getAverageSaveLatencyMillis() {
+        long count = writeCount.get();
+        return count == 0 ? 0 : totalLatency.get() / (double) count / 1_000_000.0;
+    }
+
+    /**
+     *
+     * @return the longest save latency, in milliseconds
+     */
+    public double getMaxSaveLatencyMillis() {
+        return maxLatency.get() / 1_000_000.0;
+    }
+
+    /**
+     *
+     * @return the number of journal records replayed when the list was loaded
+     */
+    public int getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    /**
+     *
+     * @return the number of bytes cut off the end of the journal when the list was loaded, because a
+     *         record there was partially written or damaged
+     */
+    public long getIgnoredJournalBytes() {
+        return ignoredJournalBytes;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Schedules a write, unless one is already scheduled to run sooner. Called while holding this
+     */
+    private void schedule(long delay) {
+        if (scheduled != null && !scheduled.isDone()) {
+            if (scheduled.getDelay(TimeUnit.MILLISECONDS) <= delay || !scheduled.cancel(false)) {
+                return;
+            }
+        }
+        scheduled = scheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a snapshot of the list as it is now. The snapshot already holds every waiting change, so
+     * they are taken off the queue instead of being journaled
+     */
+    private void writeSnapshot(List<MovieChange> batch, long since) {
+        // An immutable snapshot, so the movies are written without holding the list's lock
+        List<Movie> movies;
+        long generation;
+        synchronized (movieList) {
+            movies = movieList.moviesForSnapshot();
+            generation = movieList.getGeneration() + 1;
+            synchronized (this) {
+                batch.addAll(pending);
+                pending = new ArrayList<>();
+                checkpointRequested = false;
+            }
+        }
+
+        File target = new File(filename);
+        File temp = new File(filename + ".tmp");
+        try {
+            MovieStorage.write(temp, movies, generation);
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Such as a movie whose year cannot be stored
+            e.printStackTrace();
+            // Keep the changes so the next write tries again
+            synchronized (this) {
+                batch.addAll(pending);
+                pending = batch;
+                checkpointRequested = true;
+            }
+            return;
+        }
+
+        movieList.setGeneration(generation);
+        journal.reset(generation);
+        checkpointCount.incrementAndGet();
+        recordWrite(batch.size(), since);
+    }
+
+    private void recordWrite(int changes, long since) {
+        long latency = System.nanoTime() - since;
+        lastLatency = latency;
+        totalLatency.addAndGet(latency);
+        maxLatency.accumulateAndGet(latency, Math::max);
+        writeCount.incrementAndGet();
+        changesWritten.addAndGet(changes);
+    }
+}
@@ -1,159 +1,265 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.HashSet;
-import java.util.Optional;
-import java.util.Set;
-import javafx.fxml.FXML;
-import javafx.scene.control.Alert;
-import javafx.scene.control.Button;
-import javafx.scene.control.Alert.AlertType;
-import javafx.scene.control.ButtonType;
-import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
-import javafx.scene.layout.GridPane;
-import javafx.stage.Stage;
-
-/**
- * Reports controller class that controls the reports UI that the user sees when pressing the
- * reports button.
- *
- * @author Feras Yahya
- */
-public class ReportsController {
-
-    // GUI Controls
-    @FXML private Button returnButton;
-    @FXML private Button clearButton;
-    @FXML private Button saveButton;
-    @FXML private TextArea reportArea;
-    @FXML private ComboBox<String> reportsComboBox;
-
-    private MovieList masterMovieList_reportsMenu = MainController.masterMovieList;
-    private MovieList adjustedMovieList;
-
-    @FXML private void initialize() {
-        // Initialize genreComboBox with genre options
-
-        reportsComboBox.getItems().addAll("Year", "Genre", "Director", null);
-        adjustedMovieList = new MovieList();
-        System.out.println("Reports");
-
-    }
-
-    @FXML private void handleReportsAction() {
-        String reportType = reportsComboBox.getValue();
-        if (reportType != null)
-            openReportsInputDialog(reportType);
-    }
-
-    private void openReportsInputDialog(String ReportType) {
-
-        Alert error = new Alert(AlertType.ERROR,
-                "You did not select anything!");
-
-        // The options in this combo box actively update as the user enters a movie with
-        // a new year, genre or director.
-        ComboBox<String> activeOptions = new ComboBox<>();
-        // Use a set to store the report field options to ensure there are no
-        // duplicates.
-        Set<String> options = new HashSet<>();
-
-        try {
-            /*
-             * Determine which method to invoke based on the user's selection. Convert the
-             * user's selection from a string
-             * to an invokable method
-             */
-            Method method = Movie.class.getMethod("get" + ReportType);
-            for (Movie movies : masterMovieList_reportsMenu.get_movies()) {
-                /*
-                 * Once we have determined which method to invoke based on the user's input,
-                 * invoke that method on the movies objects
-                 * and store the contents returned by that method in the set.
-                 */
-                options.add(method.invoke(movies).toString());
-            }
-            // Another for loop to add the contents of the set into the combo box.
-            for (String option : options) {
-                activeOptions.getItems().add(option);
-            }
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
-        }
-
-        //Display a new pane for the user to select from
-        GridPane gridPane = new GridPane();
-        gridPane.add(activeOptions, 0, 0);
-
-        Alert alert = new Alert(AlertType.CONFIRMATION);
-        alert.setTitle("Report information ");
-        alert.setHeaderText("Please select the " + ReportType + ":");
-        alert.getDialogPane().setContent(gridPane);
-        alert.getButtonTypes().setAll(ButtonType.OK, ButtonType.CANCEL);
-        Optional<ButtonType> result = alert.showAndWait();
-
-        if (result.isPresent() && result.get() == ButtonType.OK) {
-            String selectedOption = activeOptions.getValue();
-            System.out.println("Selected option: " + selectedOption);
-
-            //Display an error if the user does not select a report type
-            if (selectedOption == null) {
-                error.showAndWait();
-                reportsComboBox.setValue(null);
-
-            } else {
-                adjustedMovieList.copyList(masterMovieList_reportsMenu);
-                adjustedMovieList.filterBy(ReportType, selectedOption);
-                reportArea.clear();
-                reportArea.setWrapText(true);
-                reportArea.appendText(
-                        "There are " + adjustedMovieList.get_movies().size() + " movies for the " + ReportType + " "
-                                + selectedOption);
-                reportArea.appendText("\nThese movies are: ");
-                int counter = 0;
-                for (Movie movies : adjustedMovieList.get_movies()) {
-
-                    reportArea.appendText("\n\tMovie " + ++counter + "\n" + movies);
-                }
-                reportsComboBox.setValue(null);
-
-            }
-
-        } else {
-            reportsComboBox.setValue(null);
-            System.out.println("Dialog canceled");
-        }
-
-
-    }
-
-    @FXML private void onReturnClicked() {
-        // Close the add movie window
-        Stage stage = (Stage) returnButton.getScene().getWindow();
-        stage.close();
-    }
-
-    @FXML private void onClearClicked() {
-        reportArea.clear();
-    }
-
-    @FXML private void onSaveClicked(){
-        PrintWriter writer = null;
-
-        try {
-            File fileDescriptor = new File("Reports.txt");
-            writer = new PrintWriter(fileDescriptor);
-            writer.println(reportArea.getText());
-        } catch (FileNotFoundException e) {
-            // TODO: handle exception
-        }finally{
-            if (writer != null){
-                writer.close();
-            }
-        }
-    }
-
-}
\ No newline at end of file
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.GridPane;
+import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
+
+/**
+ * Reports controller class that controls the reports UI that the user sees when pressing the
+ * reports button.
+ *
+ * @author Feras Yahya
+ */
+public class ReportsController {
+
+    // GUI Controls
+    @FXML private Button returnButton;
+    @FXML private Button clearButton;
+    @FXML private Button saveButton;
+    @FXML private TextArea reportArea;
+    @FXML private ComboBox<String> reportsComboBox;
+    @FXML private ProgressIndicator reportProgress;
+
+    private MovieList masterMovieList_reportsMenu = MainController.masterMovieList;
+
+    // The movies of the report being shown, from the snapshot it was built from, so saving writes the
+    // same movies without going back to the movie list or copying the text area
+    private List<Movie> reportMovies;
+    private String reportDescription;
+
+    // The report being built on a background thread, if any
+    private ReportTask reportTask;
+    private boolean windowWatched;
+
+    // Number of movies between progress updates and checks for cancellation
+    private static final int PROGRESS_STEP = 1024;
+
+    @FXML private void initialize() {
+        // Initialize genreComboBox with genre options
+
+        reportsComboBox.getItems().addAll("Year", "Genre", "Director", null);
+        System.out.println("Reports");
+
+    }
+
+    @FXML private void handleReportsAction() {
+        String reportType = reportsComboBox.getValue();
+        if (reportType != null)
+            openReportsInputDialog(reportType);
+    }
+
+    private void openReportsInputDialog(String ReportType) {
+
+        Alert error = new Alert(AlertType.ERROR,
+                "You did not select anything!");
+
+        // The options in this combo box actively update as the user enters a movie with
+        // a new year, genre or director. They come from the live counts of the master list.
+        ComboBox<String> activeOptions = MainController.optionsComboBox(masterMovieList_reportsMenu,
+                Movie.FILTER.valueOf(ReportType.toUpperCase()));
+
+        //Display a new pane for the user to select from
+        GridPane gridPane = new GridPane();
+        gridPane.add(activeOptions, 0, 0);
+
+        Alert alert = new Alert(AlertType.CONFIRMATION);
+        alert.setTitle("Report information ");
+        alert.setHeaderText("Please select the " + ReportType + ":");
+        alert.getDialogPane().setContent(gridPane);
+        alert.getButtonTypes().setAll(ButtonType.OK, ButtonType.CANCEL);
+        Optional<ButtonType> result = alert.showAndWait();
+
+        if (result.isPresent() && result.get() == ButtonType.OK) {
+            String selectedOption = activeOptions.getValue();
+            System.out.println("Selected option: " + selectedOption);
+
+            //Display an error if the user does not select a report type
+            if (selectedOption == null) {
+                error.showAndWait();
+                reportsComboBox.setValue(null);
+
+            } else {
+                // The query selects the movies of the report from a snapshot of the master list
+                MovieQuery query = masterMovieList_reportsMenu.query()
+                        .where(Movie.FILTER.valueOf(ReportType.toUpperCase()), selectedOption);
+                startReport(query, "for the " + ReportType + " " + selectedOption);
+                reportsComboBox.setValue(null);
+
+            }
+
+        } else {
+            reportsComboBox.setValue(null);
+            System.out.println("Dialog canceled");
+        }
+
+
+    }
+
+    @FXML private void onReturnClicked() {
+        // Close the add movie window
+        Stage stage = (Stage) returnButton.getScene().getWindow();
+        stage.close();
+    }
+
+    @FXML private void onClearClicked() {
+        cancelReport();
+        reportArea.clear();
+        reportMovies = null;
+    }
+
+    /**
+     * Saves the report being shown to Reports.txt on a background thread, so a large report does not
+     * hold up the window while it is written
+     */
+    @FXML private void onSaveClicked(){
+        if (reportMovies == null) {
+            return;
+        }
+        List<Movie> movies = reportMovies;
+        String description = reportDescription;
+        Task<Long> task = new Task<Long>() {
+            @Override
+            protected Long call() throws IOException {
+                return MovieExporter.export(movies, new File("Reports.txt"), MovieExporter.Format.REPORT,
+                        description);
+            }
+        };
+        saveButton.setDisable(true);
+        task.setOnSucceeded(event -> saveButton.setDisable(false));
+        task.setOnFailed(event -> {
+            task.getException().printStackTrace();
+            saveButton.setDisable(false);
+        });
+
+        Thread thread = new Thread(task, "movie-report-save");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Builds the report on a background thread into a single buffer, and shows it in the text area in
+     * one update when it is done. Appending to the text area movie by movie lays it out again for every
+     * movie, which takes minutes for a large report
+     *
+     * @param query       The query selecting the movies of the report. Only its filters are used
+     * @param description What the movies are, for the heading of the report
+     */
+    private void startReport(MovieQuery query, String description) {
+        cancelReport();
+        watchWindow();
+        reportMovies = null;
+        reportArea.clear();
+        reportArea.setWrapText(true);
+
+        ReportTask task = new ReportTask(masterMovieList_reportsMenu, query, description);
+        reportProgress.progressProperty().bind(task.progressProperty());
+        reportProgress.visibleProperty().bind(task.runningProperty());
+        task.setOnSucceeded(event -> {
+            reportArea.setText(task.getValue());
+            reportMovies = task.getMovies();
+            reportDescription = description;
+            reportTask = null;
+        });
+        task.setOnFailed(event -> {
+            task.getException().printStackTrace();
+            reportTask = null;
+        });
+        reportTask = task;
+
+        Thread thread = new Thread(task, "movie-report");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the report being built, if any
+     */
+    private void cancelReport() {
+        if (reportTask != null) {
+            reportTask.cancel();
+            reportTask = null;
+        }
+    }
+
+    /**
+     * Cancels the report being built when the window is closed, however it is closed
+     */
+    private void watchWindow() {
+        if (!windowWatched) {
+            reportArea.getScene().getWindow().addEventHandler(WindowEvent.WINDOW_HIDDEN,
+                    event -> cancelReport());
+            windowWatched = true;
+        }
+    }
+
+    /**
+     * Builds a report from a snapshot of the movie list into a single string, off the JavaFX Application
+     * Thread. The snapshot is taken once and never changes, so the report holds the movies as they were
+     * when it started, however the list is edited meanwhile, and the list is not locked while it is read.
+     * The report is written the way MovieExporter writes it to a file
+     */
+    private static class ReportTask extends Task<String> {
+
+        private final MovieList movieList;
+        private final MovieQuery query;
+        private final String description;
+        private volatile List<Movie> movies;
+
+        ReportTask(MovieList movieList, MovieQuery query, String description) {
+            this.movieList = movieList;
+            this.query = query;
+            this.description = description;
+        }
+
+        @Override
+        protected String call() throws IOException {
+            MovieListSnapshot snapshot = movieList.snapshot();
+            List<Movie> result = new ArrayList<>();
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (i % PROGRESS_STEP == 0) {
+                    if (isCancelled()) {
+                        return null;
+                    }
+                    updateProgress(i, snapshot.size());
+                }
+                Movie movie = snapshot.get(i);
+                if (query.matches(movie)) {
+                    result.add(movie);
+                }
+            }
+
+            StringWriter text = new StringWriter(64 + result.size() * 80);
+            MovieExporter.writeReportHeading(result.size(), description, text);
+            for (int i = 0; i < result.size(); i++) {
+                MovieExporter.writeReportMovie(i + 1, result.get(i), text);
+            }
+            movies = result;
+            return text.toString();
+        }
+
+        /**
+         *
+         * @return the movies of the report, once it is built. They are frozen copies from the snapshot
+         */
+        List<Movie> getMovies() {
+            return movies;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs title searches on a background thread so typing in the search field never blocks the UI.
+ * Keystrokes are debounced: a search only starts once the search term has stopped changing for a short
+ * delay. Submitting a new search term cancels the search that is pending or running, and only the
+ * result of the most recent search term is ever published.
+ *
+ * @author Feras Yahya
+ */
+public class SearchExecutor {
+
+    /**
+     * Fields
+     */
+    private final MovieList movieList;
+    private final long debounceMillis;
+    private final Executor publisher;
+    private final ScheduledExecutorService scheduler;
+
+    // Incremented for every submitted search term. A search only publishes if it is still the latest
+    private final AtomicLong latest = new AtomicLong();
+    private ScheduledFuture<?> pending;
+
+    // Latency statistics, in nanoseconds
+    private final AtomicLong queryCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private volatile long lastLatency;
+
+    /**
+     * Parameterized constructor
+     *
+     * @param movieList      The movie list to search
+     * @param debounceMillis How long the search term must stay the same before the search runs
+     * @param publisher      Runs the result callbacks, for example Platform::runLater to publish results
+     *                       on the JavaFX Application Thread
+     */
+    public SearchExecutor(MovieList movieList, long debounceMillis, Executor publisher) {
+        this.movieList = movieList;
+        this.debounceMillis = debounceMillis;
+        this.publisher = publisher;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "movie-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Schedules a search for every movie whose title contains the search term. Any earlier search that
+     * has not published its result yet is cancelled.
+     *
+     * @param searchTerm The text to look for in the titles
+     * @param onResult   Receives the matching movies, through the publisher
+     */
+    public void submit(String searchTerm, Consumer<List<Movie>> onResult) {
+        submit(() -> movieList.searchByTitleContaining(searchTerm), onResult);
+    }
+
+    /**
+     * Schedules a query over the movie list, for example a title search combined with a sort order.
+     * Any earlier search that has not published its result yet is cancelled.
+     *
+     * @param query    The query to run. Build it on the calling thread, so it captures the UI's state
+     * @param onResult Receives the matching movies, through the publisher
+     */
+    public void submit(MovieQuery query, Consumer<List<Movie>> onResult) {
+        submit(query::list, onResult);
+    }
+
+    /**
+     * Cancels the pending search, if any, so its result is never published
+     */
+    public synchronized void cancel() {
+        latest.incrementAndGet();
+        cancelPending();
+    }
+
+    /**
+     * Stops the background thread
+     */
+    public void shutdown() {
+        cancel();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     *
+     * @return the number of searches that ran to completion
+     */
+    public long getQueryCount() {
+        return queryCount.get();
+    }
+
+    /**
+     *
+     * @return the number of searches that were cancelled or superseded before publishing
+     */
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    /**
+     *
+     * @return how long the most recent search took, in milliseconds
+     */
+    public double getLastLatencyMillis() {
+        return lastLatency / 1_000_000.0;
+    }
+
+    /**
+     *
+     * @return the average time a search took, in milliseconds
+     */
+    public double getAverageLatencyMillis() {
+        long count = queryCount.get();
+        return count == 0 ? 0 : totalLatency.get() / (double) count / 1_000_000.0;
+    }
+
+    /**
+     *
+     * @return the longest time a search took, in milliseconds
+     */
+    public double getMaxLatencyMillis() {
+        return maxLatency.get() / 1_000_000.0;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private synchronized void submit(Supplier<List<Movie>> search, Consumer<List<Movie>> onResult) {
+        long ticket = latest.incrementAndGet();
+        cancelPending();
+        pending = scheduler.schedule(() -> run(ticket, search, onResult), debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelPending() {
+        // A search that is already running finishes, but notices it is stale and does not publish
+        if (pending != null && pending.cancel(false)) {
+            cancelledCount.incrementAndGet();
+        }
+        pending = null;
+    }
+
+    private void run(long ticket, Supplier<List<Movie>> search, Consumer<List<Movie>> onResult) {
+        if (ticket != latest.get()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<Movie> result = search.get();
+        long latency = System.nanoTime() - start;
+
+        lastLatency = latency;
+        totalLatency.addAndGet(latency);
+        maxLatency.accumulateAndGet(latency, Math::max);
+        queryCount.incrementAndGet();
+
+        if (ticket != latest.get()) {
+            cancelledCount.incrementAndGet();
+            return;
+        }
+        publisher.execute(() -> {
+            // A newer search term may have been submitted while this result was queued
+            if (ticket == latest.get()) {
+                onResult.accept(result);
+            }
+        });
+    }
+}
@@ -0,0 +1,330 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Cached sort orders of the movie list, one per sort key. Each order is an array of movie ids sorted in
+ * ascending order of the key, with movies of equal value ordered by id. Descending order is the same
+ * array walked backwards, so flipping the sort direction never sorts anything.
+ *
+ * An order is only built the first time its key is used. From then on, adding, editing or removing a
+ * movie patches every built order with a binary search instead of sorting it again.
+ *
+ * The index remembers the title, director, genre and year each movie had when it was added, and sorts
+ * and searches by those values rather than the movie's current ones. A movie that has already been
+ * edited, but not yet removed from the index, is therefore still found where it was sorted, and the
+ * movies around it stay in order, however many movies of a batch have been edited.
+ *
+ * Years and genres are sorted as primitive keys that pack the value and the id into a long. Large lists
+ * are sorted with Arrays.parallelSort, which splits the work across the fork/join pool.
+ *
+ * @author Feras Yahya
+ */
+public class SortIndex {
+
+    /**
+     * Fields
+     */
+    private final int[][] _orders = new int[SORTS.length][];
+    private int size;
+    private int parallelThreshold = Integer.MAX_VALUE;
+
+    // The values each movie was sorted with, by id. Genres are kept as their rank by name, 0 for none
+    private final BitSet _ids = new BitSet();
+    private String[] _titles = new String[0];
+    private String[] _directors = new String[0];
+    private byte[] _genres = new byte[0];
+    private int[] _years = new int[0];
+
+    private static final Movie.SORT[] SORTS = Movie.SORT.values();
+    private static final byte[] GENRE_RANKS = genreRanks();
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the ids of the movies in ascending order of the sort key. Only the first size() entries
+     * of the array are used.
+     *
+     * @param sort The sort key
+     * @return the cached order, which must not be changed
+     */
+    public int[] order(Movie.SORT sort) {
+        int[] order = _orders[sort.ordinal()];
+        if (order == null) {
+            int[] ids = new int[size];
+            int i = 0;
+            for (int id = _ids.nextSetBit(0); id >= 0; id = _ids.nextSetBit(id + 1)) {
+                ids[i++] = id;
+            }
+            order = new int[Math.max(16, ids.length)];
+            if (sort == Movie.SORT.YEAR || sort == Movie.SORT.GENRE) {
+                sortByKey(sort, ids, order);
+            } else {
+                sortByComparator(sort, ids, order);
+            }
+            _orders[sort.ordinal()] = order;
+        }
+        return order;
+    }
+
+    /**
+     * Sets the size from which orders are sorted in parallel
+     *
+     * @param parallelThreshold Orders of at least this many movies are sorted in parallel
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     *
+     * @return the number of movies indexed, which is the number of ids used in each order
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inserts a movie into every order that has been built. A movie that is already in the index is
+     * left where it is
+     *
+     * @param movie The movie, with an id
+     */
+    public void add(Movie movie) {
+        if (!remember(movie)) {
+            return;
+        }
+        int id = movie.getId();
+        for (int key = 0; key < _orders.length; key++) {
+            int[] order = _orders[key];
+            if (order == null) {
+                continue;
+            }
+            int position = -search(order, id, key) - 1;
+            if (size == order.length) {
+                order = Arrays.copyOf(order, size + (size >> 1) + 16);
+                _orders[key] = order;
+            }
+            System.arraycopy(order, position, order, position + 1, size - position);
+            order[position] = id;
+        }
+        size++;
+    }
+
+    /**
+     * Inserts several movies into every order that has been built. The movies are sorted among
+     * themselves and then merged into each order in one pass, instead of shifting the order once per
+     * movie. Movies that are already in the index are left where they are
+     *
+     * @param added The movies, with ids
+     */
+    public void addAll(List<Movie> added) {
+        Integer[] sorted = new Integer[added.size()];
+        int count = 0;
+        for (Movie movie : added) {
+            if (remember(movie)) {
+                sorted[count++] = movie.getId();
+            }
+        }
+        sorted = Arrays.copyOf(sorted, count);
+
+        for (int key = 0; key < _orders.length; key++) {
+            int[] order = _orders[key];
+            if (order == null) {
+                continue;
+            }
+            int sortKey = key;
+            Arrays.sort(sorted, (a, b) -> compare(sortKey, a, b));
+
+            int[] merged = new int[Math.max(16, size + sorted.length)];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < size && j < sorted.length) {
+                if (compare(key, order[i], sorted[j]) <= 0) {
+                    merged[k++] = order[i++];
+                } else {
+                    merged[k++] = sorted[j++];
+                }
+            }
+            while (i < size) {
+                merged[k++] = order[i++];
+            }
+            while (j < sorted.length) {
+                merged[k++] = sorted[j++];
+            }
+            _orders[key] = merged;
+        }
+        size += sorted.length;
+    }
+
+    /**
+     * Removes a movie from every order that has been built. The movie is looked up by the values it
+     * was added with, so for an edited movie these are its values from before the edit
+     *
+     * @param id The movie's id. Nothing is done if the movie is not in the index
+     * @throws IllegalStateException if the movie is missing from an order, which means the orders no
+     *                               longer match the index. No order is changed
+     */
+    public void remove(int id) {
+        if (!_ids.get(id)) {
+            return;
+        }
+        int[] positions = new int[_orders.length];
+        for (int key = 0; key < _orders.length; key++) {
+            if (_orders[key] != null) {
+                positions[key] = search(_orders[key], id, key);
+                if (positions[key] < 0) {
+                    throw new IllegalStateException("Movie " + id + " is missing from the " + SORTS[key]
+                            + " order");
+                }
+            }
+        }
+        for (int key = 0; key < _orders.length; key++) {
+            int[] order = _orders[key];
+            if (order != null) {
+                System.arraycopy(order, positions[key] + 1, order, positions[key], size - positions[key] - 1);
+            }
+        }
+        size--;
+        _ids.clear(id);
+        _titles[id] = null;
+        _directors[id] = null;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Remembers the values a movie is sorted with
+     *
+     * @return false if the movie is already in the index
+     */
+    private boolean remember(Movie movie) {
+        int id = movie.getId();
+        if (_ids.get(id)) {
+            return false;
+        }
+        if (id >= _years.length) {
+            int newLength = Math.max(id + 1, _years.length + (_years.length >> 1) + 16);
+            _titles = Arrays.copyOf(_titles, newLength);
+            _directors = Arrays.copyOf(_directors, newLength);
+            _genres = Arrays.copyOf(_genres, newLength);
+            _years = Arrays.copyOf(_years, newLength);
+        }
+        _ids.set(id);
+        _titles[id] = movie.getTitle();
+        _directors[id] = movie.getDirector();
+        _genres[id] = movie.getGenre() == null ? 0 : GENRE_RANKS[movie.getGenre().ordinal()];
+        _years[id] = movie.getYear();
+        return true;
+    }
+
+    /**
+     * Compares two movies by a sort key and then by id, with the values they were added with. Matches
+     * MovieQuery.comparator: missing titles, directors and genres come first and genres sort by name
+     */
+    private int compare(int key, int a, int b) {
+        int compare;
+        switch (SORTS[key]) {
+            case TITLE:
+                compare = compareNullsFirst(_titles[a], _titles[b]);
+                break;
+            case DIRECTOR:
+                compare = compareNullsFirst(_directors[a], _directors[b]);
+                break;
+            case GENRE:
+                compare = Integer.compare(_genres[a], _genres[b]);
+                break;
+            case YEAR:
+            default:
+                compare = Integer.compare(_years[a], _years[b]);
+                break;
+        }
+        return compare != 0 ? compare : Integer.compare(a, b);
+    }
+
+    private static int compareNullsFirst(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * Sorts by a key that fits in an int. The key goes in the high half of a long and the id in the low
+     * half, so sorting the longs orders the movies by key and then by id.
+     */
+    private void sortByKey(Movie.SORT sort, int[] ids, int[] order) {
+        long[] keys = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int key = sort == Movie.SORT.YEAR ? _years[ids[i]] : _genres[ids[i]];
+            keys[i] = ((long) key << 32) | ids[i];
+        }
+        if (keys.length >= parallelThreshold) {
+            Arrays.parallelSort(keys);
+        } else {
+            Arrays.sort(keys);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = (int) keys[i];
+        }
+    }
+
+    private void sortByComparator(Movie.SORT sort, int[] ids, int[] order) {
+        Integer[] sorted = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            sorted[i] = ids[i];
+        }
+        int key = sort.ordinal();
+        Comparator<Integer> comparator = (a, b) -> compare(key, a, b);
+        if (sorted.length >= parallelThreshold) {
+            Arrays.parallelSort(sorted, comparator);
+        } else {
+            Arrays.sort(sorted, comparator);
+        }
+        for (int i = 0; i < sorted.length; i++) {
+            order[i] = sorted[i];
+        }
+    }
+
+    /**
+     * Binary search for a movie in an order, by the values the movie was added with
+     *
+     * @return the position of the movie, or (-(insertion point) - 1) if it is not in the order
+     */
+    private int search(int[] order, int id, int key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = compare(key, order[middle], id);
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return the rank of each genre, by ordinal, in order of the genres' names. Ranks start at 1, so 0
+     *         can stand for a movie without a genre
+     */
+    private static byte[] genreRanks() {
+        Movie.Genre[] byName = Movie.Genre.values();
+        Arrays.sort(byName, Comparator.comparing(Movie.Genre::name));
+        byte[] ranks = new byte[byName.length];
+        for (int rank = 0; rank < byName.length; rank++) {
+            ranks[byName[rank].ordinal()] = (byte) (rank + 1);
+        }
+        return ranks;
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index of the trigrams (every run of three characters) found in the movie titles. Titles are
+ * lower cased before they are indexed. A substring search looks up the posting list of each trigram in
+ * the search term and only checks the movies that appear in all of them, instead of scanning every
+ * title. Search terms shorter than three characters have no trigrams and fall back to a scan over the
+ * lower cased titles, which are kept by the index so they are not lower cased again on every search.
+ *
+ * Movies are identified by their id (see Movie.getId()). Posting lists keep the ids sorted, so search
+ * results come back in the order the movies were added.
+ *
+ * @author Feras Yahya
+ */
+public class TrigramIndex {
+
+    /**
+     * Fields
+     */
+    private Map<Long, IdSet> _postings = new HashMap<>();
+    private String[] _titles = new String[0];
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Adds a movie's title to the index
+     *
+     * @param id    The movie's id
+     * @param title The movie's title
+     */
+    public void add(int id, String title) {
+        if (id >= _titles.length) {
+            _titles = Arrays.copyOf(_titles, Math.max(id + 1, _titles.length + (_titles.length >> 1) + 16));
+        }
+        String normalized = normalize(title);
+        _titles[id] = normalized;
+        for (long trigram : trigrams(normalized)) {
+            _postings.computeIfAbsent(trigram, key -> new IdSet()).add(id);
+        }
+    }
+
+    /**
+     * Removes a movie's title from the index
+     *
+     * @param id The movie's id
+     */
+    public void remove(int id) {
+        if (id < 0 || id >= _titles.length || _titles[id] == null) {
+            return;
+        }
+        for (long trigram : trigrams(_titles[id])) {
+            IdSet ids = _postings.get(trigram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.size() == 0) {
+                    _postings.remove(trigram);
+                }
+            }
+        }
+        _titles[id] = null;
+    }
+
+    /**
+     * Finds every movie whose title contains the search term, ignoring case
+     *
+     * @param term The search term
+     * @return the ids of the matching movies in ascending order
+     */
+    public int[] search(String term) {
+        String normalized = normalize(term);
+        Set<Long> trigrams = trigrams(normalized);
+        int[] candidates;
+        int count;
+
+        if (trigrams.isEmpty()) {
+            // Too short to have a trigram, check every title
+            candidates = new int[_titles.length];
+            count = 0;
+            for (int id = 0; id < _titles.length; id++) {
+                if (_titles[id] != null) {
+                    candidates[count++] = id;
+                }
+            }
+        } else {
+            // Intersect the posting lists, starting with the shortest one
+            List<IdSet> lists = new ArrayList<>(trigrams.size());
+            for (long trigram : trigrams) {
+                IdSet ids = _postings.get(trigram);
+                if (ids == null) {
+                    return new int[0];
+                }
+                lists.add(ids);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+            candidates = lists.get(0).toArray();
+            count = candidates.length;
+            for (int i = 1; i < lists.size() && count > 0; i++) {
+                count = lists.get(i).retain(candidates, count);
+            }
+        }
+
+        // Every trigram matching does not mean the term itself appears in the title, so check it
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            int id = candidates[i];
+            if (_titles[id].contains(normalized)) {
+                candidates[matches++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, matches);
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static String normalize(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<Long> trigrams(String s) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            trigrams.add(((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,66 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of CatalogueGenerator: the same seed generates the same collection, whatever the files it is
+ * written to, and another seed generates another collection
+ *
+ * @author Feras Yahya
+ */
+class CatalogueGeneratorTest {
+
+    private static final int COUNT = 2000;
+
+    @TempDir
+    File folder;
+
+    @Test
+    void sameSeedGeneratesTheSameMovies() throws IOException {
+        File csv = new File(folder, "first.csv");
+        File data = new File(folder, "first.dat");
+        generator(7).generate(COUNT, Arrays.asList(csv, data));
+        File again = new File(folder, "again.csv");
+        generator(7).generate(COUNT, Arrays.asList(again));
+
+        assertArrayEquals(Files.readAllBytes(csv.toPath()), Files.readAllBytes(again.toPath()));
+        // The data file holds the same movies as the CSV file written alongside it
+        List<Movie> movies = new ArrayList<>();
+        MovieStorage.read(data, movies);
+        assertEquals(COUNT, movies.size());
+        File exported = new File(folder, "exported.csv");
+        MovieExporter.export(movies, exported, MovieExporter.Format.CSV, null);
+        assertArrayEquals(Files.readAllBytes(csv.toPath()), Files.readAllBytes(exported.toPath()));
+    }
+
+    @Test
+    void otherSeedGeneratesOtherMovies() throws IOException {
+        File first = new File(folder, "first.csv");
+        generator(7).generate(COUNT, Arrays.asList(first));
+        File second = new File(folder, "second.csv");
+        generator(8).generate(COUNT, Arrays.asList(second));
+
+        List<String> firstLines = Files.readAllLines(first.toPath());
+        List<String> secondLines = Files.readAllLines(second.toPath());
+        assertEquals(firstLines.get(0), secondLines.get(0));
+        assertNotEquals(firstLines.subList(1, 20), secondLines.subList(1, 20));
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static CatalogueGenerator generator(long seed) {
+        return new CatalogueGenerator(seed, COUNT / CatalogueGenerator.MOVIES_PER_DIRECTOR,
+                CatalogueGenerator.DEFAULT_ZIPF_EXPONENT, CatalogueGenerator.DEFAULT_MIN_YEAR, 2020);
+    }
+}
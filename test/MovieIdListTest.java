@@ -0,0 +1,150 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of MovieIdList: the changes it reports, replayed onto a copy of the rows the view had, give
+ * the rows it has now, whether ids are replaced, removed or inserted in place
+ *
+ * @author Feras Yahya
+ */
+class MovieIdListTest {
+
+    // Display order of the tests: even ids first, each half in descending order
+    private static final Comparator<Integer> ORDER = Comparator.<Integer>comparingInt(id -> id % 2)
+            .thenComparing(Comparator.reverseOrder());
+
+    @Test
+    void reportsReplacedIds() {
+        MovieIdList list = new MovieIdList();
+        List<Integer> view = watch(list);
+
+        list.setIds(new int[] {1, 2, 3, 4, 5, 6});
+        assertEquals(list, view);
+        // A permutation, a removal, an addition and a replacement of a range
+        list.setIds(new int[] {1, 5, 3, 4, 2, 6});
+        assertEquals(list, view);
+        list.setIds(new int[] {1, 5, 4, 6});
+        assertEquals(list, view);
+        list.setIds(new int[] {7, 1, 5, 8, 4, 6, 9});
+        assertEquals(list, view);
+        list.setIds(new int[] {7, 10, 11, 9});
+        assertEquals(list, view);
+        list.setIds(new int[0]);
+        assertEquals(list, view);
+
+        Random random = new Random(12);
+        for (int round = 0; round < 500; round++) {
+            List<Integer> ids = new ArrayList<>(list);
+            int operation = random.nextInt(4);
+            int from = ids.isEmpty() ? 0 : random.nextInt(ids.size());
+            int to = from + random.nextInt(ids.size() - from + 1);
+            if (operation == 0) {
+                Collections.shuffle(ids.subList(from, to), random);
+            } else if (operation == 1) {
+                ids.removeIf(id -> random.nextInt(4) == 0);
+            } else if (operation == 2) {
+                // Ids that were never in the list
+                int first = 100 + round * 10;
+                for (int id = first + random.nextInt(10); id > first; id--) {
+                    ids.add(random.nextInt(ids.size() + 1), id);
+                }
+            } else {
+                ids = new ArrayList<>();
+                for (int id : randomIds(random, 40)) {
+                    ids.add(id);
+                }
+            }
+            list.setIds(ids.stream().mapToInt(Integer::intValue).toArray());
+            assertEquals(ids, list, "round " + round);
+            assertEquals(list, view, "round " + round);
+        }
+    }
+
+    @Test
+    void removesAndInsertsIdsInPlace() {
+        MovieIdList list = new MovieIdList();
+        List<Integer> view = watch(list);
+        Random random = new Random(12);
+        list.setIds(sorted(randomIds(random, 200)));
+        assertEquals(list, view);
+
+        for (int round = 0; round < 500; round++) {
+            BitSet removed = new BitSet();
+            for (int i = random.nextInt(10); i > 0; i--) {
+                // Some of them are not in the list, and are ignored
+                removed.set(random.nextInt(300));
+            }
+            List<Integer> expected = new ArrayList<>(list);
+            expected.removeIf(removed::get);
+            list.removeIds(removed);
+            assertEquals(expected, list, "round " + round);
+            assertEquals(list, view, "round " + round);
+
+            int[] added = new int[random.nextInt(10)];
+            int count = 0;
+            for (int i = 0; i < added.length; i++) {
+                int id = random.nextInt(300);
+                if (!expected.contains(id)) {
+                    expected.add(id);
+                    added[count++] = id;
+                }
+            }
+            expected.sort(ORDER);
+            list.insertIds(Arrays.copyOf(added, count), ORDER);
+            assertEquals(expected, list, "round " + round);
+            assertEquals(list, view, "round " + round);
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * @return a copy of the list's rows, kept up to date by replaying the changes the list reports
+     */
+    private static List<Integer> watch(MovieIdList list) {
+        List<Integer> view = new ArrayList<>(list);
+        list.addListener((ListChangeListener<Integer>) change -> {
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    List<Integer> moved = new ArrayList<>(view.subList(change.getFrom(), change.getTo()));
+                    for (int i = change.getFrom(); i < change.getTo(); i++) {
+                        view.set(change.getPermutation(i), moved.get(i - change.getFrom()));
+                    }
+                } else {
+                    assertEquals(change.getRemoved(),
+                            view.subList(change.getFrom(), change.getFrom() + change.getRemovedSize()));
+                    view.subList(change.getFrom(), change.getFrom() + change.getRemovedSize()).clear();
+                    view.addAll(change.getFrom(), change.getAddedSubList());
+                }
+            }
+        });
+        return view;
+    }
+
+    /**
+     * @return distinct ids below twice the size, in random order
+     */
+    private static int[] randomIds(Random random, int size) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < 2 * size; id++) {
+            ids.add(id);
+        }
+        Collections.shuffle(ids, random);
+        return ids.subList(0, random.nextInt(size + 1)).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] sorted(int[] ids) {
+        return Arrays.stream(ids).boxed().sorted(ORDER).mapToInt(Integer::intValue).toArray();
+    }
+}
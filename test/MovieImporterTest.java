@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of MovieImporter: parsing each format, the line numbers written to the reject file, and the
+ * order and duplicates of rows parsed in several chunks
+ *
+ * @author Feras Yahya
+ */
+class MovieImporterTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    void parsesCsvWithHeaderAndQuotedValues() throws IOException {
+        MovieList movieList = new MovieList();
+        MovieImporter.Result result = importLines(movieList, "movies.csv",
+                "year,Title,director,genre",
+                "1999,\"The Matrix\",\"Wachowski, Lana\",sci-fi",
+                "2001,\"Say \"\"Hi\"\"\",Someone,Comedy",
+                "2010,\"Two",
+                "Lines\",Nolan,Science Fiction");
+
+        assertEquals(3, result.getRows());
+        assertEquals(3, result.getImported());
+        assertEquals(0, result.getRejected());
+        assertMovie(movieList.get_movies().get(0), "The Matrix", "Wachowski, Lana", Movie.Genre.SCIENCE_FICTION, 1999);
+        assertMovie(movieList.get_movies().get(1), "Say \"Hi\"", "Someone", Movie.Genre.COMEDY, 2001);
+        assertMovie(movieList.get_movies().get(2), "Two\nLines", "Nolan", Movie.Genre.SCIENCE_FICTION, 2010);
+    }
+
+    @Test
+    void parsesTsvAndJsonLines() throws IOException {
+        MovieList movieList = new MovieList();
+        importLines(movieList, "movies.tsv",
+                "Heat\tMichael Mann\tCrime\t1995",
+                " Alien \tRidley Scott\thorror\t1979");
+        importLines(movieList, "movies.jsonl",
+                "{\"title\": \"Up\", \"director\": \"Pete Docter\", \"genre\": \"ANIMATION\", \"year\": 2009}",
+                "{\"year\": \"1984\", \"genre\": \"action\", \"director\": \"James Cameron\", \"title\": \"The Terminator\"}");
+
+        List<Movie> movies = movieList.get_movies();
+        assertEquals(4, movies.size());
+        assertMovie(movies.get(0), "Heat", "Michael Mann", Movie.Genre.CRIME, 1995);
+        assertMovie(movies.get(1), "Alien", "Ridley Scott", Movie.Genre.HORROR, 1979);
+        assertMovie(movies.get(2), "Up", "Pete Docter", Movie.Genre.ANIMATION, 2009);
+        assertMovie(movies.get(3), "The Terminator", "James Cameron", Movie.Genre.ACTION, 1984);
+    }
+
+    @Test
+    void writesRejectsWithTheirLineNumbers() throws IOException {
+        MovieList movieList = new MovieList();
+        MovieImporter.Result result = importLines(movieList, "movies.csv",
+                "title,director,genre,year",
+                "Good,Someone,Drama,2000",
+                "\"Spans",
+                "two lines\",Someone,Drama,2001",
+                "No Director,,Drama,2002",
+                "",
+                "Bad Genre,Someone,Musical,2003",
+                "Bad Year,Someone,Drama,soon",
+                "Too Old,Someone,Drama,1700",
+                "\"Never closed,Someone,Drama,2004");
+
+        assertEquals(2, result.getImported());
+        assertEquals(5, result.getRejected());
+        List<String> rejects = Files.readAllLines(new File(folder, "rejects.txt").toPath(), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList(
+                "5\tMissing director\tNo Director,,Drama,2002",
+                "7\tUnknown genre \"Musical\"\tBad Genre,Someone,Musical,2003",
+                "8\tInvalid year \"soon\"\tBad Year,Someone,Drama,soon",
+                "9\tYear out of range 1700\tToo Old,Someone,Drama,1700",
+                "10\tUnterminated quote\t\"Never closed,Someone,Drama,2004"), rejects);
+    }
+
+    @Test
+    void addsChunksInFileOrderAndDropsDuplicates() throws IOException {
+        MovieList movieList = new MovieList();
+        movieList.addMovieWithId(new Movie("Title 5", "Director 5", Movie.Genre.DRAMA, 1905));
+
+        List<String> lines = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        expected.add("Title 5");
+        for (int i = 0; i < 200; i++) {
+            lines.add("Title " + i + ",Director " + i + ",Drama," + (1900 + i % 100));
+            if (i != 5) {
+                expected.add("Title " + i);
+            }
+        }
+        // Repeats of rows in earlier chunks, in the same chunk, and with the director in another case
+        lines.add("Title 10,Director 10,Drama,1910");
+        lines.add("Title 150,DIRECTOR 150,Drama,1950");
+        lines.add("Title 150,Director 150,Drama,1950");
+        // Not duplicates: another year, and a title written in another case
+        lines.add("Title 20,Director 20,Drama,1921");
+        lines.add("TITLE 30,Director 30,Drama,1930");
+        expected.add("Title 20");
+        expected.add("TITLE 30");
+
+        File input = write("movies.csv", lines);
+        MovieImporter.Result result = new MovieImporter(movieList, 7, 4).importFile(input,
+                new File(folder, "rejects.txt"));
+
+        assertEquals(205, result.getRows());
+        assertEquals(201, result.getImported());
+        assertEquals(4, result.getDuplicates());
+        List<String> titles = new ArrayList<>();
+        for (Movie movie : movieList.get_movies()) {
+            titles.add(movie.getTitle());
+        }
+        assertEquals(expected, titles);
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private MovieImporter.Result importLines(MovieList movieList, String name, String... lines) throws IOException {
+        File input = write(name, Arrays.asList(lines));
+        return new MovieImporter(movieList, 2, 2).importFile(input, new File(folder, "rejects.txt"));
+    }
+
+    private File write(String name, List<String> lines) throws IOException {
+        File file = new File(folder, name);
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static void assertMovie(Movie movie, String title, String director, Movie.Genre genre, int year) {
+        assertEquals(title, movie.getTitle());
+        assertEquals(director, movie.getDirector());
+        assertEquals(genre, movie.getGenre());
+        assertEquals(year, movie.getYear());
+    }
+}
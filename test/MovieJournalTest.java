@@ -0,0 +1,164 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of MovieJournal: replaying the records written for a batch of changes, stopping at a record
+ * that was partially written or is damaged, and ignoring a journal of another snapshot generation
+ *
+ * @author Feras Yahya
+ */
+class MovieJournalTest {
+
+    private static final long GENERATION = 7;
+
+    @TempDir
+    File folder;
+
+    @Test
+    void replaysEveryChange() {
+        long[] ends = writeJournal();
+
+        List<Movie> movies = new ArrayList<>();
+        MovieJournal journal = new MovieJournal(dataFile());
+        assertEquals(5, journal.replay(movies, GENERATION));
+        journal.close();
+
+        assertEquals(Arrays.asList("Alien|Ridley Scott|HORROR|1979", "Edited|Pete Docter|ANIMATION|2009"),
+                dump(movies));
+        assertEquals(0, journal.getIgnoredBytes());
+        assertNull(journal.getIgnoredProblem());
+        assertEquals(ends[ends.length - 1], journalFile().length());
+    }
+
+    @Test
+    void replaysTheRecordsBeforeAPartiallyWrittenOne() throws IOException {
+        long[] ends = writeJournal();
+        // Lose the end of the last record, as if the application was killed while writing it
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile(), "rw")) {
+            raf.setLength(ends[4] - 3);
+        }
+
+        List<Movie> movies = new ArrayList<>();
+        MovieJournal journal = new MovieJournal(dataFile());
+        assertEquals(4, journal.replay(movies, GENERATION));
+
+        assertEquals(Arrays.asList("Heat|Michael Mann|CRIME|1995", "Alien|Ridley Scott|HORROR|1979",
+                "Edited|Pete Docter|ANIMATION|2009"), dump(movies));
+        assertEquals(ends[4] - 3 - ends[3], journal.getIgnoredBytes());
+        assertEquals("partially written record", journal.getIgnoredProblem());
+        // The torn record is cut off, so the next records follow the last valid one
+        assertEquals(ends[3], journalFile().length());
+
+        journal.moviesChanged(List.of(new MovieChange(MovieChange.Type.ADDED,
+                new Movie("Heat", "Michael Mann", Movie.Genre.CRIME, 1995), 3)));
+        journal.close();
+        movies = new ArrayList<>();
+        journal = new MovieJournal(dataFile());
+        assertEquals(5, journal.replay(movies, GENERATION));
+        journal.close();
+        assertEquals(Arrays.asList("Heat|Michael Mann|CRIME|1995", "Alien|Ridley Scott|HORROR|1979",
+                "Edited|Pete Docter|ANIMATION|2009", "Heat|Michael Mann|CRIME|1995"), dump(movies));
+    }
+
+    @Test
+    void stopsAtARecordThatDoesNotMatchItsChecksum() throws IOException {
+        long[] ends = writeJournal();
+        // Change a byte of the third record's title, leaving its length and checksum as they were
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile(), "rw")) {
+            long position = ends[1] + Integer.BYTES + 1 + Integer.BYTES + Integer.BYTES;
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0x20);
+        }
+
+        List<Movie> movies = new ArrayList<>();
+        MovieJournal journal = new MovieJournal(dataFile());
+        assertEquals(2, journal.replay(movies, GENERATION));
+        journal.close();
+
+        assertEquals(Arrays.asList("Heat|Michael Mann|CRIME|1995", "Alien|Ridley Scott|HORROR|1979"), dump(movies));
+        assertEquals(ends[4] - ends[1], journal.getIgnoredBytes());
+        assertEquals("record does not match its checksum", journal.getIgnoredProblem());
+        assertEquals(ends[1], journalFile().length());
+    }
+
+    @Test
+    void ignoresAJournalOfAnotherGeneration() {
+        writeJournal();
+
+        List<Movie> movies = new ArrayList<>();
+        movies.add(new Movie("Heat", "Michael Mann", Movie.Genre.CRIME, 1995));
+        MovieJournal journal = new MovieJournal(dataFile());
+        // The snapshot was written after the journal, which has already been folded into it
+        assertEquals(0, journal.replay(movies, GENERATION + 1));
+        journal.close();
+
+        assertEquals(Arrays.asList("Heat|Michael Mann|CRIME|1995"), dump(movies));
+        assertEquals(0, journal.getRecordCount());
+        // A fresh journal holding only its header, the magic number and the generation, is started
+        assertEquals(Integer.BYTES + Long.BYTES, journalFile().length());
+        journal = new MovieJournal(dataFile());
+        assertEquals(0, journal.replay(new ArrayList<>(), GENERATION + 1));
+        journal.close();
+        assertNull(journal.getIgnoredProblem());
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Writes a journal of five records, one batch each: three adds, an edit of the third movie and a
+     * removal of the first
+     *
+     * @return the length of the journal after each record
+     */
+    private long[] writeJournal() {
+        MovieJournal journal = new MovieJournal(dataFile());
+        journal.replay(new ArrayList<>(), GENERATION);
+        List<List<MovieChange>> batches = List.of(
+                List.of(new MovieChange(MovieChange.Type.ADDED,
+                        new Movie("Heat", "Michael Mann", Movie.Genre.CRIME, 1995), 0)),
+                List.of(new MovieChange(MovieChange.Type.ADDED,
+                        new Movie("Alien", "Ridley Scott", Movie.Genre.HORROR, 1979), 1)),
+                List.of(new MovieChange(MovieChange.Type.ADDED,
+                        new Movie("Up", "Pete Docter", Movie.Genre.ANIMATION, 2009), 2)),
+                List.of(new MovieChange(MovieChange.Type.UPDATED,
+                        new Movie("Edited", "Pete Docter", Movie.Genre.ANIMATION, 2009), 2)),
+                List.of(new MovieChange(MovieChange.Type.REMOVED,
+                        new Movie("Heat", "Michael Mann", Movie.Genre.CRIME, 1995), 0)));
+        long[] ends = new long[batches.size()];
+        for (int i = 0; i < batches.size(); i++) {
+            journal.moviesChanged(batches.get(i));
+            ends[i] = journalFile().length();
+        }
+        journal.close();
+        return ends;
+    }
+
+    private String dataFile() {
+        return new File(folder, "movies.dat").getPath();
+    }
+
+    private File journalFile() {
+        return new File(folder, "movies.dat.journal");
+    }
+
+    private static List<String> dump(List<Movie> movies) {
+        List<String> values = new ArrayList<>();
+        for (Movie movie : movies) {
+            values.add(movie.getTitle() + "|" + movie.getDirector() + "|" + movie.getGenre() + "|" + movie.getYear());
+        }
+        return values;
+    }
+}
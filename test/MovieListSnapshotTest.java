@@ -0,0 +1,151 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of MovieList.snapshot(): snapshots keep their contents through later changes to the list, and
+ * can be read while another thread edits the list
+ *
+ * @author Feras Yahya
+ */
+class MovieListSnapshotTest {
+
+    private static final Movie.Genre[] GENRES = Movie.Genre.values();
+
+    @Test
+    void snapshotsKeepTheirContentsInMemory() {
+        checkSnapshotsKeepTheirContents(new MovieList());
+    }
+
+    @Test
+    void snapshotsKeepTheirContentsInColumns() {
+        checkSnapshotsKeepTheirContents(new MovieList(new MovieStore()));
+    }
+
+    @Test
+    void readersSeeWholeSnapshotsWhileTheListIsEdited() throws InterruptedException {
+        MovieList movieList = new MovieList();
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            movies.add(new Movie("Title " + i, "Director " + (i % 500), Movie.Genre.COMEDY, 1990));
+        }
+        movieList.addMovies(movies);
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread editor = new Thread(() -> {
+            try {
+                Random random = new Random(21);
+                for (int i = 0; i < 5000; i++) {
+                    if (random.nextBoolean()) {
+                        movieList.addMovie(new Movie("New " + i, "Editor", Movie.Genre.DRAMA, 2001));
+                    } else {
+                        movieList.removeMovie(random.nextInt(50000));
+                    }
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "movie-editor");
+        editor.start();
+
+        int passes = 0;
+        while (editor.isAlive() || passes == 0) {
+            MovieListSnapshot snapshot = movieList.snapshot();
+            long version = snapshot.getVersion();
+            int count = 0;
+            for (Movie movie : snapshot) {
+                if (movie != null) {
+                    count++;
+                }
+            }
+            assertEquals(snapshot.size(), count, "snapshot of version " + version + " changed while read");
+            passes++;
+        }
+        editor.join();
+        assertNull(failure.get());
+        assertEquals(dump(movieList.get_movies()), dump(movieList.snapshot()));
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Makes random adds, edits, removals and sorts, taking snapshots along the way, and checks that every
+     * snapshot still holds the movies the list had when it was taken
+     */
+    private static void checkSnapshotsKeepTheirContents(MovieList movieList) {
+        Random random = new Random(9);
+        List<MovieListSnapshot> snapshots = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int round = 0; round < 300; round++) {
+            List<Movie> movies = movieList.get_movies();
+            int operation = random.nextInt(10);
+            if (operation < 4) {
+                List<Movie> batch = new ArrayList<>();
+                int count = 1 + random.nextInt(random.nextInt(10) == 0 ? 2000 : 20);
+                for (int i = 0; i < count; i++) {
+                    batch.add(randomMovie(random));
+                }
+                movieList.addMovies(batch);
+            } else if (operation < 6 && !movies.isEmpty()) {
+                for (int i = 0; i < 5; i++) {
+                    Movie movie = movies.get(random.nextInt(movies.size()));
+                    if (movie.getId() >= 0) {
+                        movieList.updateMovie(movie.getId(), randomMovie(random));
+                    } else {
+                        // Movies only get ids once the list is indexed
+                        movie.setTitle("Edited " + round);
+                        movieList.updateMovie(movie);
+                    }
+                }
+            } else if (operation < 8 && !movies.isEmpty()) {
+                List<Movie> removed = new ArrayList<>();
+                for (int i = 0; i < 1 + random.nextInt(50); i++) {
+                    removed.add(movies.get(random.nextInt(movies.size())));
+                }
+                movieList.removeMovies(removed);
+            } else if (operation == 8) {
+                movieList.sortBy(Movie.SORT.values()[random.nextInt(Movie.SORT.values().length)].name(),
+                        random.nextBoolean());
+            }
+
+            if (random.nextInt(3) == 0) {
+                MovieListSnapshot snapshot = movieList.snapshot();
+                // Asking again without a change hands out the same snapshot
+                assertSame(snapshot, movieList.snapshot());
+                snapshots.add(snapshot);
+                expected.add(dump(movieList.get_movies()));
+                assertEquals(expected.get(expected.size() - 1), dump(snapshot), "new snapshot at round " + round);
+            }
+        }
+
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertEquals(expected.get(i), dump(snapshots.get(i)), "snapshot " + i + " changed");
+        }
+        Movie frozen = snapshots.get(snapshots.size() - 1).get(0);
+        assertThrows(UnsupportedOperationException.class, () -> frozen.setTitle("Changed"));
+    }
+
+    private static Movie randomMovie(Random random) {
+        return new Movie("Title " + random.nextInt(9999), "Director " + random.nextInt(50),
+                GENRES[random.nextInt(GENRES.length)], 1900 + random.nextInt(100));
+    }
+
+    private static String dump(List<Movie> movies) {
+        StringBuilder text = new StringBuilder();
+        for (Movie movie : movies) {
+            text.append(movie.getTitle()).append('|').append(movie.getDirector()).append('|')
+                    .append(movie.getGenre()).append('|').append(movie.getYear()).append('#')
+                    .append(movie.getId()).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,126 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of MovieList keeping its indexes up to date as movies change
+ *
+ * @author Feras Yahya
+ */
+class MovieListTest {
+
+    private static final Movie.Genre[] GENRES = Movie.Genre.values();
+
+    @Test
+    void sortsCorrectlyAfterBatchUpdate() {
+        Random random = new Random(13);
+        MovieList movieList = new MovieList();
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            movies.add(randomMovie(random));
+        }
+        movieList.addMovies(movies);
+        // Build every sort order, so the batch has to patch them rather than sort from scratch
+        for (Movie.SORT sort : Movie.SORT.values()) {
+            movieList.sortBy(sort.name(), true);
+        }
+
+        // Edit a batch of movies in place, several of them more than once, before the list is told
+        List<Movie> batch = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            Movie movie = movieList.get_movies().get(random.nextInt(movies.size()));
+            Movie values = randomMovie(random);
+            movie.setTitle(values.getTitle());
+            movie.setDirector(values.getDirector());
+            movie.setGenre(values.getGenre());
+            movie.setYear(values.getYear());
+            batch.add(movie);
+        }
+        movieList.updateMovies(batch);
+
+        for (Movie.SORT sort : Movie.SORT.values()) {
+            for (boolean ascending : new boolean[] {true, false}) {
+                movieList.sortBy(sort.name(), ascending);
+                List<Movie> sorted = movieList.get_movies();
+
+                Set<Movie> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+                distinct.addAll(sorted);
+                assertEquals(movies.size(), distinct.size(), sort + " order lost or repeated movies");
+
+                Comparator<Movie> order = MovieQuery.comparator(sort).thenComparingInt(Movie::getId);
+                List<Movie> expected = new ArrayList<>(movies);
+                expected.sort(ascending ? order : order.reversed());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertSame(expected.get(i), sorted.get(i), sort + " order is wrong at " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsAnEditWithAnUnstorableYearWithoutChangingTheMovie() {
+        MovieList movieList = new MovieList(new MovieStore());
+        movieList.addMovieWithId(new Movie("Heat", "Michael Mann", Movie.Genre.CRIME, 1995));
+        long version = movieList.snapshot().getVersion();
+
+        Movie values = new Movie("Alien", "Ridley Scott", Movie.Genre.HORROR, 100000);
+        assertThrows(IllegalArgumentException.class, () -> movieList.updateMovie(0, values));
+
+        Movie movie = movieList.getById(0);
+        assertEquals("Heat", movie.getTitle());
+        assertEquals("Michael Mann", movie.getDirector());
+        assertEquals(Movie.Genre.CRIME, movie.getGenre());
+        assertEquals(1995, movie.getYear());
+        assertEquals(version, movieList.snapshot().getVersion());
+    }
+
+    @Test
+    void findsMoviesByPositionUntilTheListIsIndexed() {
+        MovieList movieList = new MovieList();
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            movies.add(new Movie("Title " + i, "Director " + (i % 7), Movie.Genre.DRAMA, 1950 + i));
+        }
+        movieList.addMovies(movies);
+
+        // Looked up and edited by position, before anything needed the indexes
+        assertSame(movies.get(42), movieList.getById(42));
+        assertNull(movieList.getById(100));
+        assertEquals(100, movieList.addMovieWithId(new Movie("Heat", "Michael Mann", Movie.Genre.CRIME, 1995)));
+        assertTrue(movieList.updateMovie(7, new Movie("Edited", "Director 0", Movie.Genre.COMEDY, 2000)));
+        assertEquals(101, movieList.query().list().size());
+        MovieListSnapshot snapshot = movieList.snapshot();
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(i, snapshot.get(i).getId());
+        }
+
+        // The indexes keep the ids, and take over once movies are removed
+        assertEquals(1, movieList.query().where(Movie.FILTER.GENRE, "COMEDY").list().size());
+        assertTrue(movieList.removeMovie(3));
+        assertNull(movieList.getById(3));
+        assertSame(movies.get(42), movieList.getById(42));
+        assertEquals("Heat", movieList.getById(100).getTitle());
+        assertEquals("Edited", movieList.searchByTitle("Edited").getTitle());
+        assertEquals(7, movieList.searchByTitle("Edited").getId());
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static Movie randomMovie(Random random) {
+        return new Movie("Title " + random.nextInt(400), "Director " + random.nextInt(40),
+                GENRES[random.nextInt(GENRES.length)], 1950 + random.nextInt(70));
+    }
+}
@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of MovieQuery: the plan chosen for each kind of query, results matching a check of every movie,
+ * and unsorted results coming back in id order rather than in the list's order
+ *
+ * @author Feras Yahya
+ */
+class MovieQueryTest {
+
+    @Test
+    void plansFromTheIndexes() {
+        MovieList movieList = sampleList();
+
+        assertPlan(movieList, movieList.query().where(Movie.FILTER.YEAR, "1960").titleContains("title"), 0, -1,
+                "year index; title scan of 20 candidates");
+        // Too many candidates to check their titles one by one
+        assertPlan(movieList, movieList.query().where(Movie.FILTER.GENRE, "DRAMA").titleContains("Title 12"), 0, -1,
+                "genre index; trigram index");
+        // Too short a term to have trigrams
+        assertPlan(movieList, movieList.query().where(Movie.FILTER.GENRE, "DRAMA").titleContains("12"), 3, 4,
+                "genre index; title scan of 500 candidates");
+        assertPlan(movieList, movieList.query().titleContains("itle 99"), 0, -1, "trigram index");
+        assertPlan(movieList, movieList.query().where(Movie.FILTER.DIRECTOR, "Director 3")
+                .where(Movie.FILTER.YEAR, "1953"), 0, -1, "director index; year index");
+        assertPlan(movieList, movieList.query(), 990, -1, "all movies");
+        // A few matches are sorted, and many are read off the list's cached order
+        assertPlan(movieList, movieList.query().where(Movie.FILTER.YEAR, "1960").orderBy(Movie.SORT.TITLE, true), 0, 5,
+                "year index; sort by TITLE");
+        assertPlan(movieList, movieList.query().orderBy(Movie.SORT.YEAR, false), 15, 10,
+                "all movies; cached YEAR order");
+        assertPlan(movieList, movieList.query().where(Movie.FILTER.GENRE, "COMEDY").orderBy(Movie.SORT.DIRECTOR, true),
+                0, -1, "genre index; cached DIRECTOR order");
+    }
+
+    @Test
+    void unsortedResultsAreInIdOrder() {
+        MovieList movieList = sampleList();
+        movieList.sortBy("TITLE", false);
+        assertEquals("Title 999", movieList.get_movies().get(0).getTitle());
+
+        // The list is in descending title order, but the query returns the movies in the order they were added
+        MovieQuery query = movieList.query().where(Movie.FILTER.GENRE, "DRAMA").limit(5);
+        assertArrayEquals(new int[] {0, 2, 4, 6, 8}, query.list().getIds());
+        assertArrayEquals(new int[] {0, 2, 4, 6, 8}, query.list(movieList.snapshot()).getIds());
+        assertArrayEquals(matches(movieList, query).subList(0, 5).stream().mapToInt(Movie::getId).toArray(),
+                query.list().getIds());
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * A thousand movies: five directors, two genres and fifty years, each shared by every fifth, second
+     * and fiftieth movie
+     */
+    private static MovieList sampleList() {
+        MovieList movieList = new MovieList();
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            movies.add(new Movie("Title " + i, "Director " + (i % 5), i % 2 == 0 ? Movie.Genre.DRAMA
+                    : Movie.Genre.COMEDY, 1950 + i % 50));
+        }
+        movieList.addMovies(movies);
+        return movieList;
+    }
+
+    /**
+     * Checks the plan of a page of a query, and that both list() and a scan of a snapshot return the
+     * same page as checking every movie of the list
+     */
+    private static void assertPlan(MovieList movieList, MovieQuery query, int offset, int limit, String plan) {
+        List<Movie> matches = matches(movieList, query);
+        int end = limit < 0 ? matches.size() : Math.min(offset + limit, matches.size());
+        int[] expected = matches.subList(offset, end).stream().mapToInt(Movie::getId).toArray();
+        query.offset(offset).limit(limit);
+
+        MovieQuery.Result result = query.list();
+        assertEquals(plan, query.getPlan());
+        assertArrayEquals(expected, result.getIds(), plan);
+        assertEquals(matches.size(), result.getTotal(), plan);
+
+        MovieListSnapshot snapshot = movieList.snapshot();
+        result = query.list(snapshot);
+        assertEquals("scan of snapshot " + snapshot.getVersion(), query.getPlan());
+        assertArrayEquals(expected, result.getIds(), plan);
+        assertEquals(matches.size(), result.getTotal(), plan);
+    }
+
+    /**
+     * @return every movie of the list matching the query, in the query's order
+     */
+    private static List<Movie> matches(MovieList movieList, MovieQuery query) {
+        List<Movie> matches = new ArrayList<>();
+        for (Movie movie : movieList.get_movies()) {
+            if (query.matches(movie)) {
+                matches.add(movie);
+            }
+        }
+        matches.sort(query.order());
+        return matches;
+    }
+}
@@ -0,0 +1,98 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of MovieServer: pages of a query and single movies are read from the list's snapshot, so they
+ * are served while the list is locked by an edit
+ *
+ * @author Feras Yahya
+ */
+class MovieServerTest {
+
+    private MovieList movieList;
+    private MovieServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        movieList = new MovieList();
+        for (int i = 0; i < 50; i++) {
+            movieList.addMovie(new Movie("Title " + i, "Director " + (i % 5), i % 2 == 0 ? Movie.Genre.DRAMA
+                    : Movie.Genre.COMEDY, 1950 + i));
+        }
+        server = new MovieServer(movieList, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    @Test
+    void servesPagesInQueryOrder() throws IOException {
+        String body = get("/movies?genre=drama&sort=year:desc&offset=2&limit=3");
+        assertTrue(body.startsWith("{\"total\":25,\"offset\":2,\"limit\":3,\"movies\":["), body);
+        assertTrue(body.contains("{\"id\":44,\"title\":\"Title 44\",\"director\":\"Director 4\",\"genre\":\"DRAMA\","
+                + "\"year\":1994},\n{\"id\":42,"), body);
+        assertTrue(body.contains("{\"id\":40,"), body);
+        assertEquals(3, body.split("\"id\"").length - 1, body);
+
+        // Unsorted pages are in id order, like MovieQuery.list()
+        body = get("/movies?director=Director%203&limit=2");
+        assertTrue(body.contains("{\"id\":3,") && body.contains("{\"id\":8,"), body);
+    }
+
+    @Test
+    void readsWhileTheListIsLocked() throws Exception {
+        // Only the first snapshot is taken under the lock. From then on every edit takes the next one
+        movieList.snapshot();
+        movieList.addMovie(new Movie("Heat", "Michael Mann", Movie.Genre.CRIME, 1995));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread editor = new Thread(() -> {
+            synchronized (movieList) {
+                locked.countDown();
+                try {
+                    done.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "movie-editor");
+        editor.start();
+        locked.await();
+        try {
+            assertTrue(get("/movies?limit=1").startsWith("{\"total\":51,"));
+            assertTrue(get("/movies/7").startsWith("{\"id\":7,\"title\":\"Title 7\""));
+            assertTrue(get("/movies/50").startsWith("{\"id\":50,\"title\":\"Heat\""));
+        } finally {
+            done.countDown();
+            editor.join();
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private String get(String path) throws IOException {
+        URI uri = URI.create("http://127.0.0.1:" + server.getPort() + path);
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        assertEquals(200, connection.getResponseCode());
+        try (InputStream in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
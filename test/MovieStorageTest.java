@@ -0,0 +1,165 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of MovieStorage: writing and reading back every kind of value, migrating a data file in the
+ * streamed format (version 1) to the mapped format, and rejecting damaged streamed files
+ *
+ * @author Feras Yahya
+ */
+class MovieStorageTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        List<Movie> movies = sampleMovies();
+        File file = new File(folder, "movies.dat");
+        MovieStorage.write(file, movies, 12);
+
+        assertEquals(MovieStorage.VERSION_MAPPED, MovieStorage.readVersion(file));
+        List<Movie> read = new ArrayList<>();
+        assertEquals(12, MovieStorage.read(file, read));
+        assertEquals(dump(movies), dump(read));
+
+        try (MovieSnapshot snapshot = MovieSnapshot.open(file)) {
+            assertEquals(dump(movies), dump(snapshot.asList()));
+        }
+    }
+
+    @Test
+    void migratesAStreamedFileToTheMappedFormat() throws IOException {
+        List<Movie> movies = sampleMovies();
+        File file = new File(folder, "movies.dat");
+        writeStreamed(file, movies, 5);
+        // The streamed format writes no title as an empty one
+        List<String> expected = dump(movies);
+        expected.set(1, expected.get(1).replace("null|", "|"));
+
+        List<Movie> read = new ArrayList<>();
+        assertEquals(5, MovieStorage.read(file, read));
+        assertEquals(expected, dump(read));
+
+        MovieList movieList = new MovieList(file.getPath());
+        movieList.getWriter().close();
+        assertEquals(expected, dump(movieList.get_movies()));
+        assertEquals(1, movieList.getWriter().getCheckpointCount());
+        assertEquals(MovieStorage.VERSION_MAPPED, MovieStorage.readVersion(file));
+
+        read = new ArrayList<>();
+        MovieStorage.read(file, read);
+        assertEquals(expected, dump(read));
+    }
+
+    @Test
+    void rejectsAStreamedFileWithDamagedLengths() throws IOException {
+        File file = new File(folder, "movies.dat");
+        writeStreamed(file, sampleMovies(), 5);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        // A director name claiming to be longer than the file
+        byte[] damaged = bytes.clone();
+        int firstDirector = Integer.BYTES + Short.BYTES + Long.BYTES + 2 * Integer.BYTES;
+        damaged[firstDirector] = (byte) 0xFF;
+        damaged[firstDirector + 1] = (byte) 0xFF;
+        damaged[firstDirector + 2] = (byte) 0xFF;
+        damaged[firstDirector + 3] = (byte) 0x7F;
+        assertRejected(file, damaged);
+
+        // A movie count larger than the file can hold
+        damaged = bytes.clone();
+        damaged[Integer.BYTES + Short.BYTES + Long.BYTES] = (byte) 0x7F;
+        assertRejected(file, damaged);
+
+        // A negative director count
+        damaged = bytes.clone();
+        damaged[Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES] = (byte) 0xFF;
+        assertRejected(file, damaged);
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Movies with every kind of value the format has to keep: no title, an empty title, no director,
+     * no genre, characters outside ASCII and the smallest and largest years
+     */
+    private static List<Movie> sampleMovies() {
+        return new ArrayList<>(Arrays.asList(
+                new Movie("Heat", "Michael Mann", Movie.Genre.CRIME, 1995),
+                new Movie(null, "Michael Mann", Movie.Genre.DRAMA, 1981),
+                new Movie("", "Ridley Scott", Movie.Genre.HORROR, 1979),
+                new Movie("Amélie", null, null, Short.MIN_VALUE),
+                new Movie("千と千尋の神隠し", "宮崎駿", Movie.Genre.ANIMATION, Short.MAX_VALUE)));
+    }
+
+    /**
+     * Writes a data file in the streamed format (version 1), which the application no longer writes
+     */
+    private static void writeStreamed(File file, List<Movie> movies, long generation) throws IOException {
+        List<String> directors = new ArrayList<>();
+        for (Movie movie : movies) {
+            if (movie.getDirector() != null && !directors.contains(movie.getDirector())) {
+                directors.add(movie.getDirector());
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MovieStorage.MAGIC);
+            out.writeShort(MovieStorage.VERSION_STREAMED);
+            out.writeLong(generation);
+            out.writeInt(movies.size());
+            out.writeInt(directors.size());
+            for (String director : directors) {
+                writeString(out, director);
+            }
+            for (Movie movie : movies) {
+                out.writeByte(movie.getGenre() == null ? -1 : movie.getGenre().ordinal());
+                out.writeShort(movie.getYear());
+                out.writeInt(directors.indexOf(movie.getDirector()));
+                writeString(out, movie.getTitle() == null ? "" : movie.getTitle());
+            }
+        }
+    }
+
+    /**
+     * Writes a string as its varint length in UTF-8 bytes followed by the bytes
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        while (length >= 0x80) {
+            out.writeByte(length & 0x7F | 0x80);
+            length >>>= 7;
+        }
+        out.writeByte(length);
+        out.write(bytes);
+    }
+
+    private static void assertRejected(File file, byte[] bytes) throws IOException {
+        Files.write(file.toPath(), bytes);
+        assertThrows(IOException.class, () -> MovieStorage.read(file, new ArrayList<>()));
+    }
+
+    private static List<String> dump(List<Movie> movies) {
+        List<String> values = new ArrayList<>();
+        for (Movie movie : movies) {
+            values.add(movie.getTitle() + "|" + movie.getDirector() + "|" + movie.getGenre() + "|" + movie.getYear());
+        }
+        return values;
+    }
+}
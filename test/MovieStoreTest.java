@@ -0,0 +1,128 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of MovieStore: titles surviving the compaction of edited titles, and removed movies keeping
+ * their values once they are detached from the store
+ *
+ * @author Feras Yahya
+ */
+class MovieStoreTest {
+
+    private static final Movie.Genre[] GENRES = Movie.Genre.values();
+
+    @Test
+    void keepsEveryTitleThroughCompaction() {
+        Random random = new Random(20);
+        MovieStore store = new MovieStore();
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Movie movie = randomMovie(random);
+            store.add(movie);
+            titles.add(movie.getTitle());
+        }
+
+        // Each edit leaves the old title behind as garbage, so these edits pass the garbage allowed before
+        // the titles are compacted many times over. Some titles are cleared, and some movies are removed
+        // and added, along the way
+        for (int i = 0; i < 20000; i++) {
+            int index = random.nextInt(store.size());
+            int operation = random.nextInt(20);
+            if (operation == 0) {
+                store.get(index).setTitle(null);
+                titles.set(index, null);
+            } else if (operation == 1) {
+                store.remove(index);
+                titles.remove(index);
+                Movie movie = randomMovie(random);
+                store.add(movie);
+                titles.add(movie.getTitle());
+            } else {
+                String title = randomTitle(random);
+                store.get(index).setTitle(title);
+                titles.set(index, title);
+            }
+            if (i % 1000 == 0) {
+                assertTitles(titles, store);
+            }
+        }
+        assertTitles(titles, store);
+    }
+
+    @Test
+    void removedMoviesKeepTheirValues() {
+        MovieStore store = new MovieStore();
+        store.add(new Movie("Heat", "Michael Mann", Movie.Genre.CRIME, 1995));
+        store.add(new Movie("Alien", "Ridley Scott", Movie.Genre.HORROR, 1979));
+        store.add(new Movie("Up", "Pete Docter", Movie.Genre.ANIMATION, 2009));
+        store.add(new Movie(null, null, null, 2000));
+
+        Movie heat = store.get(0);
+        assertSame(heat, store.remove(0));
+        assertMovie(heat, "Heat", "Michael Mann", Movie.Genre.CRIME, 1995);
+
+        Movie alien = store.get(0);
+        Movie untitled = store.get(2);
+        store.removeIf(movie -> movie.getYear() < 1980 || movie.getTitle() == null);
+        assertEquals(1, store.size());
+        assertMovie(alien, "Alien", "Ridley Scott", Movie.Genre.HORROR, 1979);
+        assertMovie(untitled, null, null, null, 2000);
+
+        // Slots are not reused, and a detached movie's setters no longer write the columns
+        store.add(new Movie("Brazil", "Terry Gilliam", Movie.Genre.COMEDY, 1985));
+        heat.setTitle("Heat (1995)");
+        heat.setYear(100000);
+        assertMovie(heat, "Heat (1995)", "Michael Mann", Movie.Genre.CRIME, 100000);
+        assertMovie(store.get(0), "Up", "Pete Docter", Movie.Genre.ANIMATION, 2009);
+        assertMovie(store.get(1), "Brazil", "Terry Gilliam", Movie.Genre.COMEDY, 1985);
+
+        // Adding a removed movie back copies it into a new slot
+        store.add(alien);
+        assertNotSame(alien, store.get(2));
+        assertMovie(store.get(2), "Alien", "Ridley Scott", Movie.Genre.HORROR, 1979);
+        alien.setTitle("Aliens");
+        assertEquals("Alien", store.get(2).getTitle());
+
+        Movie up = store.get(0);
+        store.clear();
+        assertMovie(up, "Up", "Pete Docter", Movie.Genre.ANIMATION, 2009);
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static void assertTitles(List<String> titles, MovieStore store) {
+        assertEquals(titles.size(), store.size());
+        for (int i = 0; i < titles.size(); i++) {
+            assertEquals(titles.get(i), store.get(i).getTitle(), "title at " + i);
+            assertEquals(titles.get(i), store.titleAt(i), "title at " + i);
+        }
+    }
+
+    private static void assertMovie(Movie movie, String title, String director, Movie.Genre genre, int year) {
+        assertEquals(title, movie.getTitle());
+        assertEquals(director, movie.getDirector());
+        assertEquals(genre, movie.getGenre());
+        assertEquals(year, movie.getYear());
+    }
+
+    private static Movie randomMovie(Random random) {
+        return new Movie(randomTitle(random), "Director " + random.nextInt(40), GENRES[random.nextInt(GENRES.length)],
+                1950 + random.nextInt(70));
+    }
+
+    private static String randomTitle(Random random) {
+        StringBuilder title = new StringBuilder("Title");
+        for (int i = random.nextInt(60); i > 0; i--) {
+            title.append((char) ('a' + random.nextInt(26)));
+        }
+        return title.toString();
+    }
+}